@@ -0,0 +1,39 @@
+package com.openfashion.ledgerservice.core.actuator;
+
+import com.openfashion.ledgerservice.model.CurrencyType;
+import com.openfashion.ledgerservice.service.AccountDirectory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Operator entrypoint for cluster-wide account directory invalidation.
+ *
+ * <p>Use after freezing or closing an account so every ledger node stops accepting it
+ * without waiting for the directory TTL.
+ *
+ * <p>Both operations mutate state and the service has no HTTP security, so the endpoint is
+ * exposed over local JMX only ({@code management.endpoints.jmx.exposure.include}); keep it out
+ * of the web exposure list.
+ */
+@Component
+@Endpoint(id = "accountdirectory")
+@RequiredArgsConstructor
+public class AccountDirectoryEndpoint {
+
+    private final AccountDirectory accountDirectory;
+
+    @WriteOperation
+    public void invalidate(UUID userId, CurrencyType currency) {
+        accountDirectory.invalidate(userId, currency);
+    }
+
+    @DeleteOperation
+    public void invalidateAll() {
+        accountDirectory.invalidateAll();
+    }
+}
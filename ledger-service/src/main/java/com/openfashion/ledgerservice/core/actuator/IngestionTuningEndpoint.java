@@ -0,0 +1,24 @@
+package com.openfashion.ledgerservice.core.actuator;
+
+import com.openfashion.ledgerservice.dto.consumer.IngestionTuningSnapshot;
+import com.openfashion.ledgerservice.service.IngestionController;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the current decisions of the adaptive ingestion controller.
+ */
+@Component
+@Endpoint(id = "ingestiontuning")
+@RequiredArgsConstructor
+public class IngestionTuningEndpoint {
+
+    private final IngestionController ingestionController;
+
+    @ReadOperation
+    public IngestionTuningSnapshot tuning() {
+        return ingestionController.snapshot();
+    }
+}
@@ -0,0 +1,37 @@
+package com.openfashion.ledgerservice.core.actuator;
+
+import com.openfashion.ledgerservice.model.CurrencyType;
+import com.openfashion.ledgerservice.service.SystemAccountRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Exposes the preloaded system account registry and allows an on-demand atomic refresh.
+ *
+ * <p>Refreshing reloads every node-local registry from Postgres and there is no HTTP security,
+ * so the endpoint is exposed over local JMX only, like {@link AccountDirectoryEndpoint}.
+ */
+@Component
+@Endpoint(id = "systemaccounts")
+@RequiredArgsConstructor
+public class SystemAccountsEndpoint {
+
+    private final SystemAccountRegistry systemAccountRegistry;
+
+    @ReadOperation
+    public Map<CurrencyType, Map<String, UUID>> accounts() {
+        return systemAccountRegistry.snapshot();
+    }
+
+    @WriteOperation
+    public Map<CurrencyType, Map<String, UUID>> refresh() {
+        systemAccountRegistry.refresh();
+        return systemAccountRegistry.snapshot();
+    }
+}
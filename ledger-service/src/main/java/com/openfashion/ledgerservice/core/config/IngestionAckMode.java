@@ -0,0 +1,18 @@
+package com.openfashion.ledgerservice.core.config;
+
+/**
+ * Point at which a staged Kafka batch counts as done and its offsets may be committed.
+ */
+public enum IngestionAckMode {
+
+    /**
+     * After the accepted records are persisted to Postgres.
+     */
+    PERSISTED,
+
+    /**
+     * As soon as Redis has accepted the staged records, optionally after WAIT/WAITAOF.
+     * {@code RedisProcessor} drains to Postgres independently.
+     */
+    STAGED
+}
@@ -0,0 +1,17 @@
+package com.openfashion.ledgerservice.core.config;
+
+/**
+ * How Kafka offsets of a staged batch are completed once Redis staging succeeds.
+ */
+public enum IngestionCompletionMode {
+
+    /**
+     * Poll worker blocks until the batch is persisted to Postgres.
+     */
+    BLOCKING,
+
+    /**
+     * Poll worker returns after staging; offsets complete when the persisted signal arrives.
+     */
+    ASYNC
+}
@@ -0,0 +1,21 @@
+package com.openfashion.ledgerservice.core.config;
+
+/**
+ * Ordering guarantee applied to inbound {@code transaction.request} records.
+ */
+public enum IngestionOrdering {
+
+    /**
+     * Parallel Consumer key ordering on the Kafka key (the sender userId).
+     */
+    KEY,
+
+    /**
+     * Two-stage ingestion. Inbound records are still consumed in Kafka key order, mapped, and
+     * republished to {@code transaction.request.by-account} keyed by the wallet the posting acts
+     * on (see {@link com.openfashion.ledgerservice.core.kafka.AccountOrderingKey}). A second key
+     * ordered consumer stages that topic, so postings on one wallet are staged in the order they
+     * were accepted while unrelated wallets of the same sender run in parallel.
+     */
+    ACCOUNT
+}
@@ -1,15 +1,21 @@
 package com.openfashion.ledgerservice.core.config;
 
+import com.openfashion.ledgerservice.core.kafka.TransactionInitiatedEventDeserializer;
+import com.openfashion.ledgerservice.dto.TransactionRequest;
 import com.openfashion.ledgerservice.dto.event.TransactionInitiatedEvent;
+import com.openfashion.ledgerservice.service.imp.AccountRekeyPublisherImp;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
@@ -27,7 +33,7 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
-    private Map<String, Object> commonConsumerProps() {
+    private Map<String, Object> commonConsumerProps(String groupId) {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
@@ -38,14 +44,11 @@ public class KafkaConfig {
 
     @Bean
     public ConsumerFactory<String, TransactionInitiatedEvent> initiatedConsumerFactory() {
-        JacksonJsonDeserializer<TransactionInitiatedEvent> jsonDeserializer =
-                new JacksonJsonDeserializer<>(TransactionInitiatedEvent.class);
-        jsonDeserializer.addTrustedPackages("com.openfashion.ledgerservice.dto.event");
-
+        // Streaming parser marks malformed records via headers; the wrapper only guards unexpected errors
         return new DefaultKafkaConsumerFactory<>(
-                commonConsumerProps(),
+                commonConsumerProps(groupId),
                 new StringDeserializer(),
-                new ErrorHandlingDeserializer<>(jsonDeserializer)
+                new ErrorHandlingDeserializer<>(new TransactionInitiatedEventDeserializer())
         );
     }
 
@@ -79,4 +82,34 @@ public class KafkaConfig {
     ) {
         return initiatedEventConsumerFactory.createConsumer();
     }
-}
\ No newline at end of file
+
+    /**
+     * Re-keyed topic staged by the second consumer in account ordering mode.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "ledger.ingestion.ordering", havingValue = "ACCOUNT")
+    public NewTopic accountOrderedTopic(@Value("${ledger.ingestion.account-topic.partitions:12}") int partitions) {
+        return TopicBuilder.name(AccountRekeyPublisherImp.ACCOUNT_TOPIC)
+                .partitions(partitions)
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "ledger.ingestion.ordering", havingValue = "ACCOUNT")
+    public Consumer<String, TransactionRequest> accountOrderedConsumer(
+            @Value("${ledger.ingestion.account-topic.group-id}") String accountGroupId
+    ) {
+        // Records are produced by this service, so the reflective deserializer is not on a hot untrusted path
+        JacksonJsonDeserializer<TransactionRequest> jsonDeserializer =
+                new JacksonJsonDeserializer<>(TransactionRequest.class, false);
+        jsonDeserializer.addTrustedPackages("com.openfashion.ledgerservice.dto");
+
+        // Own group, so a rebalance of one topic does not stop the consumers of the other
+        return new DefaultKafkaConsumerFactory<>(
+                commonConsumerProps(accountGroupId),
+                new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(jsonDeserializer)
+        ).createConsumer();
+    }
+}
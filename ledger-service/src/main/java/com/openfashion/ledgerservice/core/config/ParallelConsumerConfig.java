@@ -1,41 +1,88 @@
 package com.openfashion.ledgerservice.core.config;
 
+import com.openfashion.ledgerservice.dto.TransactionRequest;
 import com.openfashion.ledgerservice.dto.event.TransactionInitiatedEvent;
+import io.confluent.parallelconsumer.ParallelConsumer;
 import io.confluent.parallelconsumer.ParallelConsumerOptions;
 import io.confluent.parallelconsumer.ParallelStreamProcessor;
+import io.confluent.parallelconsumer.reactor.ReactorProcessor;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.Consumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
  * Configures Confluent Parallel Consumer for high-throughput ingestion from Kafka.
  *
- * <p>The processor is tuned for key ordering, bounded concurrency, and batched polling.
+ * <p>The processors are tuned for key ordering, bounded concurrency, and batched polling.
+ * Concurrency and poll batch size are upper bounds; the effective in-flight staging batches
+ * and merged batch size are tuned at runtime by the ingestion controller.
+ * The concrete processor depends on {@code ledger.ingestion.completion-mode}: a blocking
+ * {@link ParallelStreamProcessor} or a {@link ReactorProcessor} that completes offsets
+ * asynchronously. In account ordering mode a second processor stages the re-keyed
+ * {@code transaction.request.by-account} topic with the same settings.
  */
 @Configuration
 @RequiredArgsConstructor
 public class ParallelConsumerConfig {
 
     /**
-     * Creates the {@code ParallelStreamProcessor} used by transaction ingestion listener.
+     * Creates the processor used by transaction ingestion listener.
+     *
+     * <p>Inbound records are always consumed in Kafka key order; account ordering mode re-keys
+     * them by wallet downstream instead of dropping the key guarantee.
      *
      * @param nativeConsumer Kafka consumer created from application consumer factory
-     * @return configured stream processor
+     * @param completionMode how offsets are completed after Redis staging
+     * @param maxConcurrency upper bound on concurrently processed poll batches
+     * @param batchSize upper bound on records per poll batch
+     * @return configured processor
+     */
+    @Bean
+    public ParallelConsumer<String, TransactionInitiatedEvent> parallelConsumer(
+            Consumer<String, TransactionInitiatedEvent> nativeConsumer,
+            @Value("${ledger.ingestion.completion-mode:BLOCKING}") IngestionCompletionMode completionMode,
+            @Value("${ledger.ingestion.max-concurrency:100}") int maxConcurrency,
+            @Value("${ledger.ingestion.batch-size:150}") int batchSize
+    ) {
+        return create(nativeConsumer, completionMode, maxConcurrency, batchSize);
+    }
+
+    /**
+     * Creates the staging processor for the wallet-keyed topic in account ordering mode.
+     *
+     * @param accountOrderedConsumer Kafka consumer of {@code transaction.request.by-account}
+     * @return configured processor
      */
     @Bean
-    public ParallelStreamProcessor<String, TransactionInitiatedEvent> parallelConsumer(
-            Consumer<String, TransactionInitiatedEvent> nativeConsumer
+    @ConditionalOnProperty(name = "ledger.ingestion.ordering", havingValue = "ACCOUNT")
+    public ParallelConsumer<String, TransactionRequest> accountParallelConsumer(
+            Consumer<String, TransactionRequest> accountOrderedConsumer,
+            @Value("${ledger.ingestion.completion-mode:BLOCKING}") IngestionCompletionMode completionMode,
+            @Value("${ledger.ingestion.max-concurrency:100}") int maxConcurrency,
+            @Value("${ledger.ingestion.batch-size:150}") int batchSize
     ) {
-        var options = ParallelConsumerOptions.<String, TransactionInitiatedEvent>builder()
+        return create(accountOrderedConsumer, completionMode, maxConcurrency, batchSize);
+    }
+
+    private static <V> ParallelConsumer<String, V> create(Consumer<String, V> consumer,
+                                                          IngestionCompletionMode completionMode,
+                                                          int maxConcurrency,
+                                                          int batchSize) {
+        var options = ParallelConsumerOptions.<String, V>builder()
                 .ordering(ParallelConsumerOptions.ProcessingOrder.KEY)
-                .maxConcurrency(100)
-                .consumer(nativeConsumer)
-                .batchSize(150)
+                .maxConcurrency(maxConcurrency)
+                .consumer(consumer)
+                .batchSize(batchSize)
                 .commitMode(ParallelConsumerOptions.CommitMode.PERIODIC_CONSUMER_SYNC)
                 .build();
 
-        return ParallelStreamProcessor.createEosStreamProcessor(options);
+        return switch (completionMode) {
+            case ASYNC -> new ReactorProcessor<>(options);
+            case BLOCKING -> ParallelStreamProcessor.createEosStreamProcessor(options);
+        };
     }
 
 }
@@ -0,0 +1,17 @@
+package com.openfashion.ledgerservice.core.config;
+
+/**
+ * How ledger result events reach Kafka topic {@code transaction.response}.
+ */
+public enum ResultPublishMode {
+
+    /**
+     * Rows in {@code outbox_events}, routed by Debezium.
+     */
+    OUTBOX,
+
+    /**
+     * Rows in {@code result_events}, published by the ledger itself after commit.
+     */
+    KAFKA
+}
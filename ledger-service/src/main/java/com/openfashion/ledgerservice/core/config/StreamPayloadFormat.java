@@ -0,0 +1,19 @@
+package com.openfashion.ledgerservice.core.config;
+
+/**
+ * Encoding used when writing staged requests to {@code ledger:stream:tx} and its DLQ.
+ *
+ * <p>Readers always accept both formats, so switching is safe while old entries drain.
+ */
+public enum StreamPayloadFormat {
+
+    /**
+     * Jackson JSON, the original format.
+     */
+    JSON,
+
+    /**
+     * Versioned binary layout, optionally LZ4-framed; see {@code TransactionRequestCodec}.
+     */
+    BINARY
+}
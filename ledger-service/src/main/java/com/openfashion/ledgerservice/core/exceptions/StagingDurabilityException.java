@@ -0,0 +1,14 @@
+package com.openfashion.ledgerservice.core.exceptions;
+
+public class StagingDurabilityException extends RuntimeException {
+
+    /**
+     * Thrown when Redis does not confirm durability of a staged batch in time.
+     *
+     * <p>Used in staged acknowledgement mode to retry the batch instead of committing offsets.
+     */
+    public StagingDurabilityException() {
+        super("Redis durability not confirmed - retrying batch");
+    }
+
+}
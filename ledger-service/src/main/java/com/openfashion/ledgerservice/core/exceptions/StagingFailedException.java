@@ -0,0 +1,15 @@
+package com.openfashion.ledgerservice.core.exceptions;
+
+public class StagingFailedException extends RuntimeException {
+
+    /**
+     * Thrown when Redis staging failed for some requests of a coalesced batch.
+     *
+     * <p>Fails only the submissions holding those requests; their redelivered requests that did
+     * stage are caught as duplicates.
+     */
+    public StagingFailedException() {
+        super("Redis staging failed for part of the batch - retrying batch");
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.openfashion.ledgerservice.core.kafka;
+
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Derives the Kafka key used to order postings per wallet in
+ * {@link com.openfashion.ledgerservice.core.config.IngestionOrdering#ACCOUNT} mode.
+ *
+ * <p>The key is {@code <userId>:<currency>}, which identifies exactly one user account. It is
+ * the owner of the debit leg when that is a user account (the NSF-checked side), otherwise the
+ * owner of the credit leg. System accounts never become keys: every deposit debits
+ * {@code WORLD_LIQUIDITY}, so keying on it would serialize all deposits. A posting between two
+ * system accounts ({@code WITHDRAWAL_SETTLE}) is keyed by the withdrawing user, which puts it
+ * behind its {@code WITHDRAWAL_RESERVE} and next to its {@code WITHDRAWAL_RELEASE}.
+ *
+ * <p>A deposit to X and a later transfer from X therefore share a key and are staged in order.
+ * Postings on different wallets are not ordered against each other, exactly as records with
+ * different keys on {@code transaction.request} never were.
+ */
+public final class AccountOrderingKey {
+
+    private AccountOrderingKey() {
+    }
+
+    /**
+     * @param request mapped request with resolved accounts
+     * @param systemAccounts ids of every system account
+     * @return ordering key of the wallet the posting acts on
+     */
+    public static String of(TransactionRequest request, Set<UUID> systemAccounts) {
+        boolean systemDebit = systemAccounts.contains(request.getDebitAccountId());
+        boolean systemCredit = systemAccounts.contains(request.getCreditAccountId());
+
+        UUID owner = systemDebit && !systemCredit ? request.getReceiverId() : request.getSenderId();
+
+        return owner + ":" + request.getCurrency();
+    }
+}
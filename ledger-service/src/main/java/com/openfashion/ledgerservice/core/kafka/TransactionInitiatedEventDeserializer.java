@@ -0,0 +1,228 @@
+package com.openfashion.ledgerservice.core.kafka;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.openfashion.ledgerservice.dto.event.TransactionInitiatedEvent;
+import com.openfashion.ledgerservice.dto.event.TransactionPayload;
+import com.openfashion.ledgerservice.model.CurrencyType;
+import com.openfashion.ledgerservice.model.TransactionStatus;
+import com.openfashion.ledgerservice.model.TransactionType;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Streaming deserializer for the fixed {@code transaction.request} event shape.
+ *
+ * <p>Reads {@link TransactionInitiatedEvent} and its nested {@link TransactionPayload} straight
+ * from the record bytes with a token parser: no tree, no reflection, no per-record exception
+ * wrapping. Unknown fields are skipped.
+ *
+ * <p>Malformed records never throw. The value becomes {@code null} and the record carries the
+ * original bytes in {@link #RAW_VALUE_HEADER} and the failure reason in {@link #ERROR_HEADER},
+ * which the DLQ publisher forwards.
+ */
+public class TransactionInitiatedEventDeserializer implements Deserializer<TransactionInitiatedEvent> {
+
+    public static final String RAW_VALUE_HEADER = "ledgerDeserializationRawValue";
+    public static final String ERROR_HEADER = "ledgerDeserializationError";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Override
+    public TransactionInitiatedEvent deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public TransactionInitiatedEvent deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(data)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT, "event");
+            TransactionInitiatedEvent event = readEvent(parser);
+
+            if (parser.nextToken() != null) {
+                throw new MalformedEventException("Trailing content after event object");
+            }
+
+            return event;
+        } catch (Exception e) {
+            markMalformed(headers, data, e);
+            return null;
+        }
+    }
+
+    private TransactionInitiatedEvent readEvent(JsonParser parser) throws IOException {
+        UUID eventId = null;
+        TransactionType eventType = null;
+        UUID referenceId = null;
+        Instant timestamp = null;
+        TransactionPayload payload = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            switch (field) {
+                case "eventId" -> eventId = readUuid(parser, value);
+                case "eventType" -> eventType = readEnum(parser, value, TransactionType.class);
+                case "aggregatedId" -> referenceId = readUuid(parser, value);
+                case "timestamp" -> timestamp = readInstant(parser, value);
+                case "payload" -> payload = readPayload(parser, value);
+                default -> parser.skipChildren();
+            }
+        }
+
+        expect(parser.currentToken(), JsonToken.END_OBJECT, "event");
+        return new TransactionInitiatedEvent(eventId, eventType, referenceId, timestamp, payload);
+    }
+
+    private TransactionPayload readPayload(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        expect(token, JsonToken.START_OBJECT, "payload");
+
+        UUID senderId = null;
+        UUID receiverId = null;
+        BigDecimal amount = null;
+        CurrencyType currency = null;
+        TransactionStatus status = null;
+        String userMessage = null;
+        Instant timestamp = null;
+        Map<String, String> metadata = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            switch (field) {
+                case "senderId" -> senderId = readUuid(parser, value);
+                case "receiverId" -> receiverId = readUuid(parser, value);
+                case "amount" -> amount = readDecimal(parser, value);
+                case "currency" -> currency = readEnum(parser, value, CurrencyType.class);
+                case "status" -> status = readEnum(parser, value, TransactionStatus.class);
+                case "userMessage" -> userMessage = readText(parser, value);
+                case "timestamp" -> timestamp = readInstant(parser, value);
+                case "metadata" -> metadata = readStringMap(parser, value);
+                default -> parser.skipChildren();
+            }
+        }
+
+        expect(parser.currentToken(), JsonToken.END_OBJECT, "payload");
+        return new TransactionPayload(senderId, receiverId, amount, currency, status, userMessage, timestamp, metadata);
+    }
+
+    private static UUID readUuid(JsonParser parser, JsonToken token) throws IOException {
+        String text = readText(parser, token);
+        return text == null ? null : UUID.fromString(text);
+    }
+
+    private static <E extends Enum<E>> E readEnum(JsonParser parser, JsonToken token, Class<E> type) throws IOException {
+        String text = readText(parser, token);
+        return text == null ? null : Enum.valueOf(type, text);
+    }
+
+    private static String readText(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        expect(token, JsonToken.VALUE_STRING, parser.currentName());
+        return parser.getText();
+    }
+
+    private static BigDecimal readDecimal(JsonParser parser, JsonToken token) throws IOException {
+        return switch (token) {
+            case VALUE_NULL -> null;
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getDecimalValue();
+            case VALUE_STRING -> new BigDecimal(parser.getText());
+            default -> throw new MalformedEventException("Unexpected " + token + " for " + parser.currentName());
+        };
+    }
+
+    /**
+     * Accepts ISO-8601 strings as well as numeric epoch seconds (with optional fraction),
+     * matching the default Jackson {@code Instant} handling.
+     */
+    private static Instant readInstant(JsonParser parser, JsonToken token) throws IOException {
+        return switch (token) {
+            case VALUE_NULL -> null;
+            case VALUE_STRING -> Instant.parse(parser.getText());
+            case VALUE_NUMBER_INT -> Instant.ofEpochSecond(parser.getLongValue());
+            case VALUE_NUMBER_FLOAT -> {
+                BigDecimal seconds = parser.getDecimalValue();
+                long whole = seconds.longValue();
+                long nanos = seconds.subtract(BigDecimal.valueOf(whole)).movePointRight(9).longValue();
+                yield Instant.ofEpochSecond(whole, nanos);
+            }
+            default -> throw new MalformedEventException("Unexpected " + token + " for " + parser.currentName());
+        };
+    }
+
+    private static Map<String, String> readStringMap(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        expect(token, JsonToken.START_OBJECT, "metadata");
+
+        Map<String, String> map = new HashMap<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            if (value.isStructStart()) {
+                throw new MalformedEventException("Nested value for metadata key " + key);
+            }
+
+            map.put(key, value == JsonToken.VALUE_NULL ? null : parser.getValueAsString());
+        }
+
+        expect(parser.currentToken(), JsonToken.END_OBJECT, "metadata");
+        return map;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected, String context) {
+        if (actual != expected) {
+            throw new MalformedEventException("Expected " + expected + " for " + context + " but got " + actual);
+        }
+    }
+
+    private static void markMalformed(Headers headers, byte[] data, Exception e) {
+        if (headers == null) {
+            return;
+        }
+
+        String reason = e.getClass().getSimpleName() + ": " + e.getMessage();
+
+        headers.remove(RAW_VALUE_HEADER);
+        headers.remove(ERROR_HEADER);
+        headers.add(RAW_VALUE_HEADER, data);
+        headers.add(ERROR_HEADER, reason.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Shape violation detected while walking tokens; caught locally and never thrown to Kafka.
+     */
+    private static final class MalformedEventException extends RuntimeException {
+
+        private MalformedEventException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.openfashion.ledgerservice.core.redis;
+
+import com.openfashion.ledgerservice.model.TransactionType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Encodes the account fields of the balance hashes and the members of the idempotency sets.
+ *
+ * <p>Text keys are {@code UUID.toString()} (36 bytes) and {@code <referenceId>-<TYPE>}. Binary
+ * keys are the 16 raw UUID bytes, and the idempotency member appends the type ordinal as a 1-byte
+ * tag. Lua treats both as opaque strings, so the scripts are unaffected by the choice.
+ */
+@Component
+@Slf4j
+public class RedisFieldCodec {
+
+    private static final int UUID_BYTES = 16;
+    private static final int UUID_TEXT_LENGTH = 36;
+
+    private final boolean binary;
+
+    public RedisFieldCodec(@Value("${ledger.redis.keys.binary:false}") boolean binary) {
+        this.binary = binary;
+        log.info("Redis balance and idempotency keys use {} encoding", binary ? "binary" : "text");
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Field of an account in {@code ledger:db:snapshot:minor} and {@code ledger:pending:delta:minor}.
+     */
+    public byte[] account(UUID accountId) {
+        return binary ? uuidBytes(accountId).array() : text(accountId.toString());
+    }
+
+    /**
+     * Account id of a balance-hash field in either encoding.
+     */
+    public UUID accountOf(byte[] field) {
+        if (field.length == UUID_BYTES) {
+            ByteBuffer buffer = ByteBuffer.wrap(field);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+        return UUID.fromString(new String(field, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Member of an idempotency bucket for one request.
+     */
+    public byte[] idempotency(UUID referenceId, TransactionType type) {
+        return binary ? binaryIdempotency(referenceId, type) : text(referenceId + "-" + type.name());
+    }
+
+    /**
+     * Converts a text account field to the binary form, or {@code null} if it is not one.
+     */
+    public byte[] binaryAccountFromText(String field) {
+        UUID accountId = parseUuid(field);
+        return accountId == null ? null : uuidBytes(accountId).array();
+    }
+
+    /**
+     * Converts a text idempotency member to the binary form, or {@code null} if it is not one.
+     */
+    public byte[] binaryIdempotencyFromText(String member) {
+        if (member == null || member.length() <= UUID_TEXT_LENGTH + 1 || member.charAt(UUID_TEXT_LENGTH) != '-') {
+            return null;
+        }
+
+        UUID referenceId = parseUuid(member.substring(0, UUID_TEXT_LENGTH));
+
+        if (referenceId == null) {
+            return null;
+        }
+
+        try {
+            return binaryIdempotency(referenceId, TransactionType.valueOf(member.substring(UUID_TEXT_LENGTH + 1)));
+        } catch (IllegalArgumentException _) {
+            return null;
+        }
+    }
+
+    private static byte[] binaryIdempotency(UUID referenceId, TransactionType type) {
+        return ByteBuffer.allocate(UUID_BYTES + 1)
+                .put(uuidBytes(referenceId).array())
+                .put((byte) type.ordinal())
+                .array();
+    }
+
+    private static UUID parseUuid(String value) {
+        if (value == null || value.length() != UUID_TEXT_LENGTH) {
+            return null;
+        }
+
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException _) {
+            return null;
+        }
+    }
+
+    private static ByteBuffer uuidBytes(UUID uuid) {
+        return ByteBuffer.allocate(UUID_BYTES)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static byte[] text(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
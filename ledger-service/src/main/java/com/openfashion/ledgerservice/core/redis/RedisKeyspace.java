@@ -0,0 +1,219 @@
+package com.openfashion.ledgerservice.core.redis;
+
+import io.lettuce.core.cluster.SlotHash;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Maps ledger Redis keys onto {@code ledger.redis.shards} hash-tagged shards.
+ *
+ * <p>Every shard owns its own snapshot and pending-delta hashes, idempotency buckets, tx stream,
+ * batch meta hashes and done stream, all sharing one hash tag so one staging script only ever
+ * touches a single Redis Cluster slot. An account lives on shard
+ * {@code floorMod(accountId.hashCode(), shards)}.
+ *
+ * <p>Shard {@code i} uses the tag {@code {ledger-i}} when its slot falls in the {@code i}-th of
+ * {@code shards} equal slot ranges, otherwise the first {@code {ledger-i-<n>}} that does. With as
+ * many masters as shards and the even slot split {@code redis-cli --cluster create} makes, every
+ * shard therefore lands on its own master; after resharding the mapping is only as even as the
+ * new slot layout, which {@code RedisServiceImp} reports at startup.
+ *
+ * <p>With one shard (the default) every key keeps its original, untagged name, so a single
+ * Redis instance sees exactly the old keyspace.
+ *
+ * <p>The tx stream of each shard is further split into {@code ledger.redis.stream.partitions}
+ * partition streams ({@code ledger:stream:tx:p<partition>}), picked by the debit account, so
+ * persistence workers can drain and lock disjoint sets of accounts. With one partition the stream
+ * keeps its original name.
+ *
+ * <p>A sharded batch stages one sub-batch per shard it touches. Its id is
+ * {@code <correlationId>@<shard>,<shard>...}, and each sub-batch is tracked as
+ * {@code <correlationId>@<shard>} in that shard's meta hash and done stream.
+ */
+@Component
+@Slf4j
+public class RedisKeyspace {
+
+    private static final char SHARD_SEPARATOR = '@';
+    private static final int CLUSTER_SLOTS = 16384;
+    // Leaves every shard a slot range wide enough to find a tag in
+    private static final int MAX_SHARDS = 1024;
+
+    private final int shards;
+    private final int partitions;
+    private final List<String> tags;
+
+    public RedisKeyspace(@Value("${ledger.redis.shards:1}") int shards,
+                         @Value("${ledger.redis.stream.partitions:1}") int partitions) {
+        if (shards < 1 || shards > MAX_SHARDS) {
+            throw new IllegalArgumentException("ledger.redis.shards must be between 1 and " + MAX_SHARDS + ", got " + shards);
+        }
+        if (partitions < 1) {
+            throw new IllegalArgumentException("ledger.redis.stream.partitions must be at least 1, got " + partitions);
+        }
+        this.shards = shards;
+        this.partitions = partitions;
+        this.tags = IntStream.range(0, shards).mapToObj(shard -> tagFor(shard, shards)).toList();
+        log.info("Ledger Redis keyspace uses {} shard(s) with {} stream partition(s) each", shards, partitions);
+    }
+
+    public int shards() {
+        return shards;
+    }
+
+    public boolean isSharded() {
+        return shards > 1;
+    }
+
+    public int shardOf(UUID accountId) {
+        return isSharded() ? Math.floorMod(accountId.hashCode(), shards) : 0;
+    }
+
+    /**
+     * Redis Cluster slot of every key of one shard.
+     */
+    public int slotOf(int shard) {
+        return SlotHash.getSlot(tags.get(shard));
+    }
+
+    public int partitions() {
+        return partitions;
+    }
+
+    /**
+     * Stream partition of an account within its shard.
+     *
+     * <p>The hash is remixed so the partition is independent of the shard: plain {@code hashCode}
+     * modulo both counts would put every account of a shard on the same few partitions.
+     */
+    public int partitionOf(UUID accountId) {
+        if (partitions == 1) {
+            return 0;
+        }
+
+        int hash = accountId.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), partitions);
+    }
+
+    /**
+     * Name of {@code base} on one shard; the untagged base name when not sharded.
+     */
+    public String key(String base, int shard) {
+        return isSharded() ? base + ":{" + tags.get(shard) + "}" : base;
+    }
+
+    /**
+     * Names of {@code base} on every shard, in shard order.
+     */
+    public List<String> keys(String base) {
+        return IntStream.range(0, shards).mapToObj(shard -> key(base, shard)).toList();
+    }
+
+    /**
+     * Name of one partition of the stream {@code base} on one shard.
+     */
+    public String partitionKey(String base, int shard, int partition) {
+        return key(partitions == 1 ? base : base + ":p" + partition, shard);
+    }
+
+    /**
+     * Names of every partition of the stream {@code base} on one shard, in partition order.
+     */
+    public List<String> partitionKeys(String base, int shard) {
+        return IntStream.range(0, partitions).mapToObj(partition -> partitionKey(base, shard, partition)).toList();
+    }
+
+    /**
+     * Names of every partition of the stream {@code base} on every shard.
+     */
+    public List<String> partitionKeys(String base) {
+        return IntStream.range(0, shards).boxed()
+                .flatMap(shard -> partitionKeys(base, shard).stream())
+                .toList();
+    }
+
+    /**
+     * Batch id handed to waiters for a batch staged on the given shards.
+     */
+    public String batchId(String correlationId, Collection<Integer> touchedShards) {
+        if (!isSharded()) {
+            return correlationId;
+        }
+
+        return correlationId + SHARD_SEPARATOR + touchedShards.stream()
+                .sorted()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * Id of the sub-batch a shard tracks for one correlation id.
+     */
+    public String shardBatchId(String correlationId, int shard) {
+        return isSharded() ? correlationId + SHARD_SEPARATOR + shard : correlationId;
+    }
+
+    /**
+     * Splits a batch id from {@link #batchId} into the sub-batch ids to wait for.
+     */
+    public List<String> shardBatchIds(String batchId) {
+        int separator = batchId.indexOf(SHARD_SEPARATOR);
+
+        if (separator < 0) {
+            return List.of(batchId);
+        }
+
+        String correlationId = batchId.substring(0, separator);
+        String shardList = batchId.substring(separator + 1);
+        List<String> ids = new ArrayList<>();
+
+        if (!shardList.isEmpty()) {
+            for (String shard : shardList.split(",")) {
+                ids.add(correlationId + SHARD_SEPARATOR + shard);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Hash tag whose slot lies inside the shard's share of the slot space, a slot away from both
+     * edges because cluster tooling rounds range boundaries either way.
+     */
+    private static String tagFor(int shard, int shards) {
+        int from = (int) Math.ceil((double) shard * CLUSTER_SLOTS / shards) + 1;
+        int to = (int) ((long) (shard + 1) * CLUSTER_SLOTS / shards) - 1;
+        String base = "ledger-" + shard;
+
+        if (shards == 1 || inRange(base, from, to)) {
+            return base;
+        }
+
+        for (int salt = 1; ; salt++) {
+            String candidate = base + "-" + salt;
+            if (inRange(candidate, from, to)) {
+                return candidate;
+            }
+        }
+    }
+
+    private static boolean inRange(String tag, int from, int to) {
+        int slot = SlotHash.getSlot(tag);
+        return slot >= from && slot < to;
+    }
+
+    /**
+     * Shard that tracks a sub-batch id from {@link #shardBatchId}.
+     */
+    public int shardOfBatch(String shardBatchId) {
+        int separator = shardBatchId.indexOf(SHARD_SEPARATOR);
+        return separator < 0 ? 0 : Integer.parseInt(shardBatchId.substring(separator + 1));
+    }
+}
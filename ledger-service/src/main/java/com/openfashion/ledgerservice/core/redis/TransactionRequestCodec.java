@@ -0,0 +1,255 @@
+package com.openfashion.ledgerservice.core.redis;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openfashion.ledgerservice.core.config.StreamPayloadFormat;
+import com.openfashion.ledgerservice.core.util.MoneyUtil;
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.model.CurrencyType;
+import com.openfashion.ledgerservice.model.TransactionType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.serializer.support.SerializationFailedException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Encodes staged {@link TransactionRequest}s for {@code ledger:stream:tx} and its DLQ.
+ *
+ * <p>Binary layout, version 1:
+ * <pre>
+ *   magic (0xFE) | version | flags (bit 0: LZ4) | [uncompressed length, if LZ4] | body
+ *   body: presence mask (short) | referenceId | type ordinal | amount (minor units, long)
+ *         | currency ordinal | senderId | receiverId | debitAccountId | creditAccountId | metadata
+ * </pre>
+ * UUIDs are 16 raw bytes, metadata is a length-prefixed UTF-8 string, and absent fields are
+ * skipped according to the presence mask. Enum ordinals are only stable within one version, so
+ * reordering {@link TransactionType} or {@link CurrencyType} requires a new version.
+ *
+ * <p>{@link #decode(byte[])} accepts both this layout and the legacy JSON payloads: JSON never
+ * starts with {@code 0xFE}, which is not a valid UTF-8 byte. Binary bodies are limited to
+ * {@value #MAX_BODY_BYTES} bytes so a corrupt length field cannot make a reader allocate more;
+ * the rare request whose metadata would exceed that is written as JSON instead.
+ */
+@Component
+@Slf4j
+public class TransactionRequestCodec {
+
+    private static final byte MAGIC = (byte) 0xFE;
+    private static final byte VERSION = 1;
+    private static final byte FLAG_LZ4 = 1;
+    private static final int HEADER_BYTES = 3;
+    static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private static final int HAS_REFERENCE = 1;
+    private static final int HAS_TYPE = 1 << 1;
+    private static final int HAS_AMOUNT = 1 << 2;
+    private static final int HAS_CURRENCY = 1 << 3;
+    private static final int HAS_SENDER = 1 << 4;
+    private static final int HAS_RECEIVER = 1 << 5;
+    private static final int HAS_DEBIT = 1 << 6;
+    private static final int HAS_CREDIT = 1 << 7;
+    private static final int HAS_METADATA = 1 << 8;
+
+    // Presence mask, five UUIDs, type, amount, currency and the metadata length prefix
+    private static final int MAX_FIXED_FIELD_BYTES = Short.BYTES + 5 * 16 + 1 + Long.BYTES + 1 + Integer.BYTES;
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final CurrencyType[] CURRENCIES = CurrencyType.values();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private final LZ4SafeDecompressor decompressor = LZ4Factory.fastestInstance().safeDecompressor();
+
+    private final StreamPayloadFormat format;
+    private final boolean lz4Enabled;
+    private final int lz4MinBytes;
+    private final DistributionSummary payloadBytes;
+
+    public TransactionRequestCodec(
+            MeterRegistry meterRegistry,
+            @Value("${ledger.redis.stream.format:BINARY}") StreamPayloadFormat format,
+            @Value("${ledger.redis.stream.lz4.enabled:true}") boolean lz4Enabled,
+            @Value("${ledger.redis.stream.lz4.min-bytes:256}") int lz4MinBytes) {
+        this.format = format;
+        this.lz4Enabled = lz4Enabled;
+        this.lz4MinBytes = lz4MinBytes;
+        this.payloadBytes = DistributionSummary.builder("ledger.stream.payload.bytes")
+                .description("Encoded size of staged stream payloads")
+                .baseUnit("bytes")
+                .tag("format", format.name())
+                .register(meterRegistry);
+
+        log.info("Stream payload format: {} (lz4={}, min-bytes={})", format, lz4Enabled, lz4MinBytes);
+    }
+
+    /**
+     * Encodes a request in the configured write format.
+     */
+    public byte[] encode(TransactionRequest request) {
+        byte[] encoded = format == StreamPayloadFormat.JSON ? encodeJson(request) : encodeBinary(request);
+        payloadBytes.record(encoded.length);
+        return encoded;
+    }
+
+    /**
+     * Decodes either format.
+     *
+     * @throws IOException when the payload is empty, truncated, or of an unknown version
+     */
+    public TransactionRequest decode(byte[] payload) throws IOException {
+        if (payload == null || payload.length == 0) {
+            throw new IOException("Empty stream payload");
+        }
+
+        if (payload[0] != MAGIC) {
+            return objectMapper.readValue(payload, TransactionRequest.class);
+        }
+
+        try {
+            return decodeBinary(payload);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed binary stream payload: " + e.getMessage(), e);
+        }
+    }
+
+    private byte[] encodeJson(TransactionRequest request) {
+        try {
+            return objectMapper.writeValueAsBytes(request);
+        } catch (Exception e) {
+            throw new SerializationFailedException("Serialization failed", e);
+        }
+    }
+
+    private byte[] encodeBinary(TransactionRequest request) {
+        byte[] metadata = request.getMetadata() == null
+                ? null
+                : request.getMetadata().getBytes(StandardCharsets.UTF_8);
+
+        if (metadata != null && metadata.length > MAX_BODY_BYTES - MAX_FIXED_FIELD_BYTES) {
+            return encodeJson(request);
+        }
+
+        int mask = 0;
+        int size = Short.BYTES;
+
+        if (request.getReferenceId() != null) { mask |= HAS_REFERENCE; size += 16; }
+        if (request.getType() != null) { mask |= HAS_TYPE; size += 1; }
+        if (request.getAmount() != null) { mask |= HAS_AMOUNT; size += Long.BYTES; }
+        if (request.getCurrency() != null) { mask |= HAS_CURRENCY; size += 1; }
+        if (request.getSenderId() != null) { mask |= HAS_SENDER; size += 16; }
+        if (request.getReceiverId() != null) { mask |= HAS_RECEIVER; size += 16; }
+        if (request.getDebitAccountId() != null) { mask |= HAS_DEBIT; size += 16; }
+        if (request.getCreditAccountId() != null) { mask |= HAS_CREDIT; size += 16; }
+        if (metadata != null) { mask |= HAS_METADATA; size += Integer.BYTES + metadata.length; }
+
+        ByteBuffer body = ByteBuffer.allocate(size);
+        body.putShort((short) mask);
+
+        if (request.getReferenceId() != null) putUuid(body, request.getReferenceId());
+        if (request.getType() != null) body.put((byte) request.getType().ordinal());
+        if (request.getAmount() != null) body.putLong(MoneyUtil.toMinorUnits(request.getAmount()));
+        if (request.getCurrency() != null) body.put((byte) request.getCurrency().ordinal());
+        if (request.getSenderId() != null) putUuid(body, request.getSenderId());
+        if (request.getReceiverId() != null) putUuid(body, request.getReceiverId());
+        if (request.getDebitAccountId() != null) putUuid(body, request.getDebitAccountId());
+        if (request.getCreditAccountId() != null) putUuid(body, request.getCreditAccountId());
+        if (metadata != null) {
+            body.putInt(metadata.length);
+            body.put(metadata);
+        }
+
+        byte[] raw = body.array();
+
+        // Only metadata-heavy payloads are worth framing; the fixed fields barely compress
+        if (lz4Enabled && raw.length >= lz4MinBytes) {
+            byte[] framed = new byte[HEADER_BYTES + Integer.BYTES + compressor.maxCompressedLength(raw.length)];
+            int compressed = compressor.compress(raw, 0, raw.length, framed, HEADER_BYTES + Integer.BYTES);
+
+            if (compressed < raw.length) {
+                ByteBuffer.wrap(framed).put(MAGIC).put(VERSION).put(FLAG_LZ4).putInt(raw.length);
+                return Arrays.copyOf(framed, HEADER_BYTES + Integer.BYTES + compressed);
+            }
+        }
+
+        byte[] plain = new byte[HEADER_BYTES + raw.length];
+        plain[0] = MAGIC;
+        plain[1] = VERSION;
+        plain[2] = 0;
+        System.arraycopy(raw, 0, plain, HEADER_BYTES, raw.length);
+        return plain;
+    }
+
+    private TransactionRequest decodeBinary(byte[] payload) {
+        if (payload.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("truncated header");
+        }
+        if (payload[1] != VERSION) {
+            throw new IllegalArgumentException("unsupported version " + payload[1]);
+        }
+
+        ByteBuffer body;
+
+        if ((payload[2] & FLAG_LZ4) != 0) {
+            int length = ByteBuffer.wrap(payload, HEADER_BYTES, Integer.BYTES).getInt();
+
+            if (length < Short.BYTES || length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("LZ4 frame declares " + length + " bytes");
+            }
+
+            byte[] raw = new byte[length];
+            int offset = HEADER_BYTES + Integer.BYTES;
+            int read = decompressor.decompress(payload, offset, payload.length - offset, raw, 0, length);
+
+            if (read != length) {
+                throw new IllegalArgumentException("LZ4 frame decoded to " + read + " of " + length + " bytes");
+            }
+            body = ByteBuffer.wrap(raw);
+        } else {
+            body = ByteBuffer.wrap(payload, HEADER_BYTES, payload.length - HEADER_BYTES);
+        }
+
+        int mask = Short.toUnsignedInt(body.getShort());
+        TransactionRequest request = new TransactionRequest();
+
+        if ((mask & HAS_REFERENCE) != 0) request.setReferenceId(getUuid(body));
+        if ((mask & HAS_TYPE) != 0) request.setType(TYPES[body.get()]);
+        if ((mask & HAS_AMOUNT) != 0) request.setAmount(MoneyUtil.fromMinorUnits(body.getLong()));
+        if ((mask & HAS_CURRENCY) != 0) request.setCurrency(CURRENCIES[body.get()]);
+        if ((mask & HAS_SENDER) != 0) request.setSenderId(getUuid(body));
+        if ((mask & HAS_RECEIVER) != 0) request.setReceiverId(getUuid(body));
+        if ((mask & HAS_DEBIT) != 0) request.setDebitAccountId(getUuid(body));
+        if ((mask & HAS_CREDIT) != 0) request.setCreditAccountId(getUuid(body));
+        if ((mask & HAS_METADATA) != 0) {
+            int length = body.getInt();
+
+            if (length < 0 || length > body.remaining()) {
+                throw new IllegalArgumentException("metadata declares " + length + " bytes, " + body.remaining() + " left");
+            }
+
+            byte[] metadata = new byte[length];
+            body.get(metadata);
+            request.setMetadata(new String(metadata, StandardCharsets.UTF_8));
+        }
+
+        return request;
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
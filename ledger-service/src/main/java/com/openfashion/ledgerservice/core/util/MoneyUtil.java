@@ -10,9 +10,38 @@ public class MoneyUtil {
     public static final int SCALE = 4;
     public static final RoundingMode ROUNDING = RoundingMode.HALF_EVEN;
 
+    /**
+     * Largest minor-unit magnitude Redis Lua can compare exactly (its numbers are doubles).
+     */
+    public static final long MAX_SAFE_MINOR_UNITS = (1L << 53) - 1;
+
     public static BigDecimal format(BigDecimal amount) {
         if (amount == null) return BigDecimal.ZERO;
         return amount.setScale(SCALE, ROUNDING);
     }
 
+    /**
+     * Converts an amount to integer minor units at {@link #SCALE}.
+     *
+     * @throws ArithmeticException when the value does not fit in a {@code long}
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        return format(amount).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromMinorUnits(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    /**
+     * Whether an amount converts to minor units within {@link #MAX_SAFE_MINOR_UNITS}.
+     */
+    public static boolean isSafeMinorUnits(BigDecimal amount) {
+        try {
+            return Math.abs(toMinorUnits(amount)) <= MAX_SAFE_MINOR_UNITS;
+        } catch (ArithmeticException _) {
+            return false;
+        }
+    }
+
 }
@@ -0,0 +1,17 @@
+package com.openfashion.ledgerservice.dto.consumer;
+
+import com.openfashion.ledgerservice.model.AccountStatus;
+
+import java.util.UUID;
+
+/**
+ * Minimal account view needed to map an inbound event onto ledger legs.
+ *
+ * @param id resolved ledger account id
+ * @param status operational state used to reject inactive accounts
+ */
+public record AccountRef(
+        UUID id,
+        AccountStatus status
+) {
+}
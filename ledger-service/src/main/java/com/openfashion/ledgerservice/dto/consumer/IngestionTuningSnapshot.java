@@ -0,0 +1,21 @@
+package com.openfashion.ledgerservice.dto.consumer;
+
+import java.util.Map;
+
+/**
+ * Point-in-time view of the adaptive ingestion controller.
+ *
+ * @param inFlightLimit current cap on concurrently staged, not yet persisted batches
+ * @param inFlight batches currently holding an in-flight slot
+ * @param batchSize current coalescer flush threshold in records
+ * @param p99Millis last observed p99 per stage, in milliseconds
+ * @param lastDecision outcome of the last control tick ({@code INCREASE}, {@code DECREASE} or {@code HOLD})
+ */
+public record IngestionTuningSnapshot(
+        int inFlightLimit,
+        int inFlight,
+        int batchSize,
+        Map<String, Double> p99Millis,
+        String lastDecision
+) {
+}
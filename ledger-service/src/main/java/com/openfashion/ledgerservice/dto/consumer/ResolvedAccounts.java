@@ -0,0 +1,42 @@
+package com.openfashion.ledgerservice.dto.consumer;
+
+import com.openfashion.ledgerservice.model.CurrencyType;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Account view resolved once per Kafka poll batch.
+ *
+ * <p>Strategies map events against this view instead of querying the repository per event,
+ * so a whole batch costs a single set-based account lookup.
+ *
+ * @param userAccounts user wallet accounts keyed by owner and currency
+ * @param systemAccounts named system account ids keyed by name and currency
+ */
+public record ResolvedAccounts(
+        Map<UserKey, AccountRef> userAccounts,
+        Map<SystemKey, UUID> systemAccounts
+) {
+
+    public Optional<AccountRef> userAccount(UUID userId, CurrencyType currency) {
+        return Optional.ofNullable(userAccounts.get(new UserKey(userId, currency)));
+    }
+
+    public Optional<UUID> systemAccount(String name, CurrencyType currency) {
+        return Optional.ofNullable(systemAccounts.get(new SystemKey(name, currency)));
+    }
+
+    /**
+     * Lookup key for a user-owned account.
+     */
+    public record UserKey(UUID userId, CurrencyType currency) {
+    }
+
+    /**
+     * Lookup key for a named system account.
+     */
+    public record SystemKey(String name, CurrencyType currency) {
+    }
+}
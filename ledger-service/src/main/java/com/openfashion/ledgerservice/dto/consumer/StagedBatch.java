@@ -0,0 +1,27 @@
+package com.openfashion.ledgerservice.dto.consumer;
+
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+
+import java.util.List;
+
+/**
+ * Outcome of staging one batch in Redis.
+ *
+ * @param batchId correlation id used in Redis batch metadata and stream entries
+ * @param accepted requests appended to {@code ledger:stream:tx}; their count is the batch's expected count
+ * @param nsf requests rejected by the soft-balance check
+ * @param overflow requests rejected because an amount or balance would leave the exact minor-unit range
+ * @param failed requests that got no verdict because staging failed on their shard; requests of
+ *               the other shards are staged regardless
+ * @param durable whether Redis confirmed the requested durability for every shard; always
+ *                {@code true} when none was requested
+ */
+public record StagedBatch(
+        String batchId,
+        List<TransactionRequest> accepted,
+        List<TransactionRequest> nsf,
+        List<TransactionRequest> overflow,
+        List<TransactionRequest> failed,
+        boolean durable
+) {
+}
@@ -0,0 +1,19 @@
+package com.openfashion.ledgerservice.dto.consumer;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Progress handles for requests handed to the staging coalescer.
+ *
+ * @param staged completed once the merged batch has passed Redis Lua staging
+ * @param persisted completed once accepted requests are persisted to Postgres
+ */
+public record StagingTicket(
+        CompletableFuture<Void> staged,
+        CompletableFuture<Void> persisted
+) {
+
+    public static StagingTicket completed() {
+        return new StagingTicket(CompletableFuture.completedFuture(null), CompletableFuture.completedFuture(null));
+    }
+}
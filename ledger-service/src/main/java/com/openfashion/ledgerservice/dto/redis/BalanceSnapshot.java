@@ -0,0 +1,16 @@
+package com.openfashion.ledgerservice.dto.redis;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Persisted balance of one account, as seeded into the Redis DB snapshot.
+ *
+ * @param accountId account identifier
+ * @param balance balance committed in Postgres
+ */
+public record BalanceSnapshot(
+        UUID accountId,
+        BigDecimal balance
+) {
+}
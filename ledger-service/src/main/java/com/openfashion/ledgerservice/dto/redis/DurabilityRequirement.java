@@ -0,0 +1,23 @@
+package com.openfashion.ledgerservice.dto.redis;
+
+import java.time.Duration;
+
+/**
+ * Durability a staging call must confirm before its batch counts as accepted.
+ *
+ * @param replicas replicas that must acknowledge ({@code WAIT}) or fsync ({@code WAITAOF}) the writes
+ * @param waitAof whether the writes must also be fsynced to the local AOF
+ * @param timeout longest time Redis may block the staging connection for the confirmation
+ */
+public record DurabilityRequirement(
+        int replicas,
+        boolean waitAof,
+        Duration timeout
+) {
+
+    public static final DurabilityRequirement NONE = new DurabilityRequirement(0, false, Duration.ZERO);
+
+    public boolean isRequired() {
+        return waitAof || replicas > 0;
+    }
+}
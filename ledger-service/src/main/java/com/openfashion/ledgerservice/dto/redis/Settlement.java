@@ -0,0 +1,32 @@
+package com.openfashion.ledgerservice.dto.redis;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Redis side of a committed batch, recorded in Postgres until Redis has applied it.
+ *
+ * @param id settlement id; Redis applies each id at most once per shard
+ * @param committed net balance changes committed to Postgres, settled into the snapshot and out of
+ *                  the pending delta
+ * @param released deltas staged for replays that Postgres skipped, released from the pending delta only
+ */
+public record Settlement(
+        UUID id,
+        Map<UUID, BigDecimal> committed,
+        Map<UUID, BigDecimal> released
+) {
+
+    public boolean isEmpty() {
+        return committed.isEmpty() && released.isEmpty();
+    }
+
+    public Set<UUID> accountIds() {
+        Set<UUID> accountIds = new HashSet<>(committed.keySet());
+        accountIds.addAll(released.keySet());
+        return accountIds;
+    }
+}
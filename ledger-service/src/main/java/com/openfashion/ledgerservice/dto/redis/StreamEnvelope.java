@@ -3,19 +3,21 @@ package com.openfashion.ledgerservice.dto.redis;
 /**
  * Wrapper around a Redis stream record plus its deserialized payload.
  *
- * <p>The envelope carries both the raw JSON and parsed form so the pipeline can
+ * <p>The envelope carries both the raw payload bytes and parsed form so the pipeline can
  * persist business data while still preserving enough context for logging or DLQ routing.
  *
+ * @param streamKey stream the record was read from (one per shard when the keyspace is sharded)
  * @param streamId Redis stream record id
  * @param batchId batch correlation id propagated from Redis staging
- * @param rawJson original serialized payload
+ * @param rawPayload original encoded payload (JSON or binary), copied as-is to the DLQ
  * @param data parsed payload object
  * @param deliveryCount number of delivery attempts observed for this record
  */
 public record StreamEnvelope<T>(
+        String streamKey,
         String streamId, // Redis record id (e.g., 1712345678901-0)
         String batchId,
-        String rawJson,
+        byte[] rawPayload,
         T data,
         long deliveryCount
 ) {
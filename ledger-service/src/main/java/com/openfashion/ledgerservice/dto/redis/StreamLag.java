@@ -0,0 +1,26 @@
+package com.openfashion.ledgerservice.dto.redis;
+
+import java.time.Duration;
+
+/**
+ * Backlog of {@code ledger:stream:tx} as seen by the persistence consumer group.
+ *
+ * @param length total entries currently in the stream
+ * @param undelivered entries not yet delivered to the group, capped at the probe limit
+ * @param pending delivered but not yet acknowledged entries
+ * @param oldestPendingAge age of the oldest unacknowledged entry, {@link Duration#ZERO} when none
+ */
+public record StreamLag(
+        long length,
+        long undelivered,
+        long pending,
+        Duration oldestPendingAge
+) {
+
+    /**
+     * Entries staged in Redis but not yet persisted to Postgres.
+     */
+    public long backlog() {
+        return undelivered + pending;
+    }
+}
@@ -0,0 +1,20 @@
+package com.openfashion.ledgerservice.dto.redis;
+
+/**
+ * Outcome of trimming one or more Redis streams.
+ *
+ * @param entries number of entries removed
+ * @param bytesReclaimed drop in {@code MEMORY USAGE} of the trimmed streams; an estimate, since
+ *                       Redis samples large streams
+ */
+public record TrimResult(
+        long entries,
+        long bytesReclaimed
+) {
+
+    public static final TrimResult NONE = new TrimResult(0, 0);
+
+    public TrimResult plus(TrimResult other) {
+        return new TrimResult(entries + other.entries, bytesReclaimed + other.bytesReclaimed);
+    }
+}
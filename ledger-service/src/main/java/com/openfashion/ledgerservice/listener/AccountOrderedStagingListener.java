@@ -0,0 +1,95 @@
+package com.openfashion.ledgerservice.listener;
+
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.service.DlqPublisher;
+import com.openfashion.ledgerservice.service.StagingCoalescer;
+import com.openfashion.ledgerservice.service.imp.AccountRekeyPublisherImp;
+import io.confluent.parallelconsumer.ParallelConsumer;
+import io.confluent.parallelconsumer.ParallelStreamProcessor;
+import io.confluent.parallelconsumer.PollContext;
+import io.confluent.parallelconsumer.reactor.ReactorProcessor;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Second ingestion stage of account ordering mode.
+ *
+ * <p>Consumes {@code transaction.request.by-account}, where {@link TransactionEventListener} has
+ * already validated, mapped and re-keyed every request by wallet, and stages it through the same
+ * coalescer as key ordering mode. Parallel Consumer key ordering guarantees that a wallet's
+ * requests are staged one poll batch after another, in offset order.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "ledger.ingestion.ordering", havingValue = "ACCOUNT")
+public class AccountOrderedStagingListener {
+
+    private final ParallelConsumer<String, TransactionRequest> accountParallelConsumer;
+    private final StagingCoalescer stagingCoalescer;
+    private final DlqPublisher dlqPublisher;
+
+    @PostConstruct
+    public void init() {
+        accountParallelConsumer.subscribe(List.of(AccountRekeyPublisherImp.ACCOUNT_TOPIC));
+
+        if (accountParallelConsumer instanceof ReactorProcessor<String, TransactionRequest> reactorProcessor) {
+            log.info("Starting account ordered staging in ASYNC completion mode");
+            reactorProcessor.react(context ->
+                    Mono.defer(() -> Mono.fromFuture(stageBatch(context)))
+                            .subscribeOn(Schedulers.boundedElastic()));
+            return;
+        }
+
+        if (accountParallelConsumer instanceof ParallelStreamProcessor<String, TransactionRequest> streamProcessor) {
+            log.info("Starting account ordered staging in BLOCKING completion mode");
+            streamProcessor.poll(context -> awaitPersisted(stageBatch(context)));
+            return;
+        }
+
+        throw new IllegalStateException("Unsupported parallel consumer type: " + accountParallelConsumer.getClass());
+    }
+
+    private CompletableFuture<Void> stageBatch(PollContext<String, TransactionRequest> context) {
+        List<TransactionRequest> requests = new ArrayList<>();
+
+        context.stream().forEach(recordContext -> {
+            if (recordContext.value() == null) {
+                // The error handling deserializer left the failure in the headers, as on the inbound topic
+                log.error("Routing undecodable re-keyed request at {}-{}@{} to the DLQ",
+                        recordContext.topic(), recordContext.partition(), recordContext.offset());
+                dlqPublisher.publishMalformedToDlq(recordContext);
+                return;
+            }
+            requests.add(recordContext.value());
+        });
+
+        if (requests.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return stagingCoalescer.submit(requests).persisted();
+    }
+
+    private void awaitPersisted(CompletableFuture<Void> completion) {
+        try {
+            completion.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+}
@@ -5,22 +5,31 @@ import com.openfashion.ledgerservice.core.exceptions.AccountNotFoundException;
 import com.openfashion.ledgerservice.core.exceptions.DbTimeoutException;
 import com.openfashion.ledgerservice.core.exceptions.MissingSystemAccountException;
 import com.openfashion.ledgerservice.dto.TransactionRequest;
-import com.openfashion.ledgerservice.dto.consumer.BatchToken;
+import com.openfashion.ledgerservice.dto.consumer.ResolvedAccounts;
+import com.openfashion.ledgerservice.dto.consumer.StagingTicket;
 import com.openfashion.ledgerservice.dto.event.TransactionInitiatedEvent;
 import com.openfashion.ledgerservice.model.TransactionStatus;
 import com.openfashion.ledgerservice.model.TransactionType;
+import com.openfashion.ledgerservice.service.AccountRekeyPublisher;
+import com.openfashion.ledgerservice.service.AccountResolutionService;
 import com.openfashion.ledgerservice.service.DlqPublisher;
 import com.openfashion.ledgerservice.service.LedgerBatchService;
-import com.openfashion.ledgerservice.service.RedisService;
+import com.openfashion.ledgerservice.service.StagingCoalescer;
 import com.openfashion.ledgerservice.service.strategy.LedgerStrategy;
+import io.confluent.parallelconsumer.ParallelConsumer;
 import io.confluent.parallelconsumer.ParallelStreamProcessor;
+import io.confluent.parallelconsumer.PollContext;
+import io.confluent.parallelconsumer.RecordContext;
+import io.confluent.parallelconsumer.reactor.ReactorProcessor;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Kafka ingestion entrypoint for ledger processing.
@@ -32,9 +41,13 @@ import java.util.*;
  * <p>Pipeline summary:
  * <ol>
  *   <li>Consume batch from Kafka via Parallel Consumer.</li>
+ *   <li>Resolve every account the batch needs with one set-based lookup.</li>
  *   <li>Map event type to strategy and build normalized {@code TransactionRequest} items.</li>
- *   <li>Run Redis Lua pre-processing ({@code processBatchAtomic}) for idempotency + NSF checks.</li>
- *   <li>Persist NSF rejections immediately; wait for accepted batch completion signal.</li>
+ *   <li>In account ordering mode, republish to the wallet-keyed topic and stop here; see
+ *   {@link AccountOrderedStagingListener}.</li>
+ *   <li>Coalesce with concurrent polls and run Redis Lua pre-processing for idempotency + NSF checks.</li>
+ *   <li>Publish DLQ records, persist validation rejections and stage accepted requests concurrently.</li>
+ *   <li>Persist NSF rejections immediately; complete offsets on the accepted batch completion signal.</li>
  * </ol>
  */
 @Component
@@ -42,13 +55,15 @@ import java.util.*;
 @RequiredArgsConstructor
 public class TransactionEventListener {
 
-    private final ParallelStreamProcessor<String, TransactionInitiatedEvent> parallelConsumer;
-    private final RedisService redisService;
+    private final ParallelConsumer<String, TransactionInitiatedEvent> parallelConsumer;
+    private final StagingCoalescer stagingCoalescer;
+    private final Optional<AccountRekeyPublisher> accountRekeyPublisher;
 
     private final List<LedgerStrategy> strategyList;
     private final Map<TransactionType, LedgerStrategy> strategyMap = new EnumMap<>(TransactionType.class);
     private final LedgerBatchService ledgerBatchService;
     private final DlqPublisher dlqPublisher;
+    private final AccountResolutionService accountResolutionService;
 
     /**
      * Initializes strategy mapping and starts asynchronous Kafka consumption.
@@ -82,85 +97,177 @@ public class TransactionEventListener {
     }
 
     /**
-     * Starts polling {@code transaction.request} and submits mapped batches into Redis staging.
+     * Starts consuming {@code transaction.request} in the configured completion mode.
      *
-     * <p>Throws a timeout exception when accepted records are not confirmed as persisted
-     * within the configured wait window, allowing safe retry behavior.
+     * <p>In blocking mode the poll callback parks its worker until the batch is persisted.
+     * In async mode the callback returns once the batch is staged, and Parallel Consumer only
+     * marks the offsets complete when the persisted signal arrives (or retries them on timeout),
+     * so consumer throughput is no longer capped by {@code maxConcurrency / DB latency}.
      */
     private void startConsuming() {
         parallelConsumer.subscribe(List.of("transaction.request"));
 
-        parallelConsumer.poll(context -> {
+        if (parallelConsumer instanceof ReactorProcessor<String, TransactionInitiatedEvent> reactorProcessor) {
+            log.info("Starting ledger ingestion in ASYNC completion mode");
+            reactorProcessor.react(context ->
+                    Mono.defer(() -> Mono.fromFuture(processBatch(context)))
+                            .subscribeOn(Schedulers.boundedElastic()));
+            return;
+        }
 
-            List<TransactionRequest> validRequests = new ArrayList<>();
-            List<TransactionRequest> validationFailures = new ArrayList<>();
+        if (parallelConsumer instanceof ParallelStreamProcessor<String, TransactionInitiatedEvent> streamProcessor) {
+            log.info("Starting ledger ingestion in BLOCKING completion mode");
+            streamProcessor.poll(context -> awaitPersisted(processBatch(context)));
+            return;
+        }
 
-            context.stream().forEach(recordContext -> {
-                TransactionInitiatedEvent event = recordContext.value();
+        throw new IllegalStateException("Unsupported parallel consumer type: " + parallelConsumer.getClass());
+    }
 
-                if (event == null) {
-                    dlqPublisher.publishMalformedToDlq(recordContext);
-                    return;
-                }
+    /**
+     * Maps one poll batch and hands it to the staging coalescer, returning a future that
+     * completes once accepted records are persisted.
+     *
+     * <p>The future fails with {@link DbTimeoutException} when persistence is not confirmed
+     * within the wait window, allowing safe retry behavior.
+     */
+    private CompletableFuture<Void> processBatch(PollContext<String, TransactionInitiatedEvent> context) {
 
-                LedgerStrategy strategy = strategyMap.get(event.eventType());
+        List<TransactionRequest> validRequests = new ArrayList<>();
+        List<TransactionRequest> validationFailures = new ArrayList<>();
+        List<PendingMapping> pendingMappings = new ArrayList<>();
+        List<Runnable> dlqSends = new ArrayList<>();
 
-                if (strategy == null) {
-                    dlqPublisher.publishUnsupportedTypeToDlq(recordContext, String.valueOf(event.eventType()));
-                    return;
-                }
+        context.stream().forEach(recordContext -> {
+            TransactionInitiatedEvent event = recordContext.value();
 
-                if (!strategy.isValidTransaction(event)) {
-                    log.warn("Business validation failed for referenceId={}", event.referenceId());
-                    validationFailures.add(strategy.createRejectedRequest(event));
-                    dlqPublisher.publishBusinessViolationMessageToDlq(recordContext);
-                    return;
-                }
+            if (event == null) {
+                dlqSends.add(() -> dlqPublisher.publishMalformedToDlq(recordContext));
+                return;
+            }
 
-                try {
-                    validRequests.add(strategy.mapToRequest(event));
-                } catch (AccountNotFoundException | MissingSystemAccountException | AccountInactiveException e) {
-                    log.warn("Account resolution failed for referenceId={}: {}", event.referenceId(), e.getMessage());
-                    validationFailures.add(strategy.createRejectedRequest(event));
-                    dlqPublisher.publishBusinessViolationMessageToDlq(recordContext);
-                } catch (Exception e) {
-                    // If it's a completely unexpected system error, THEN it goes to the DLQ
-                    log.error("Unexpected error mapping request", e);
-                    dlqPublisher.publishMalformedToDlq(recordContext);
-                }
-            });
+            LedgerStrategy strategy = strategyMap.get(event.eventType());
 
-            if (!validationFailures.isEmpty()) {
-                ledgerBatchService.persistRejected(validationFailures, TransactionStatus.REJECTED_VALIDATION);
+            if (strategy == null) {
+                dlqSends.add(() -> dlqPublisher.publishUnsupportedTypeToDlq(recordContext, String.valueOf(event.eventType())));
+                return;
             }
 
-            if (validRequests.isEmpty()) return;
+            if (!strategy.isValidTransaction(event)) {
+                log.warn("Business validation failed for referenceId={}", event.referenceId());
+                validationFailures.add(strategy.createRejectedRequest(event));
+                dlqSends.add(() -> dlqPublisher.publishBusinessViolationMessageToDlq(recordContext));
+                return;
+            }
 
-            log.info("Processing valid Kafka batch of size: {}", validRequests.size());
+            pendingMappings.add(new PendingMapping(recordContext, event, strategy));
+        });
 
-            BatchToken token = redisService.createBatchToken();
+        // One set-based lookup for the whole batch instead of one or two queries per event
+        ResolvedAccounts accounts = pendingMappings.isEmpty()
+                ? new ResolvedAccounts(Map.of(), Map.of())
+                : accountResolutionService.resolveForBatch(
+                        pendingMappings.stream().map(PendingMapping::event).toList());
+
+        for (PendingMapping mapping : pendingMappings) {
+            TransactionInitiatedEvent event = mapping.event();
+            LedgerStrategy strategy = mapping.strategy();
+
+            try {
+                validRequests.add(strategy.mapToRequest(event, accounts));
+            } catch (AccountNotFoundException | MissingSystemAccountException | AccountInactiveException e) {
+                log.warn("Account resolution failed for referenceId={}: {}", event.referenceId(), e.getMessage());
+                validationFailures.add(strategy.createRejectedRequest(event));
+                dlqSends.add(() -> dlqPublisher.publishBusinessViolationMessageToDlq(mapping.recordContext()));
+            } catch (Exception e) {
+                // If it's a completely unexpected system error, THEN it goes to the DLQ
+                log.error("Unexpected error mapping request", e);
+                dlqSends.add(() -> dlqPublisher.publishMalformedToDlq(mapping.recordContext()));
+            }
+        }
 
-            Map<String, List<TransactionRequest>> results = redisService.processBatchAtomic(validRequests, token.batchId());
+        return runBatchLegs(dlqSends, validationFailures, validRequests);
+    }
 
-            int okCount = results.getOrDefault("ok", List.of()).size();
+    /**
+     * Runs the independent I/O legs of a poll batch concurrently on virtual threads: DLQ sends
+     * (Kafka), validation-reject persistence (Postgres) and staging (Redis). The scope only
+     * closes once every leg has finished, so nothing outlives the poll callback, and any
+     * failing leg fails the batch so Parallel Consumer retries it. Every leg is idempotent
+     * under retry.
+     *
+     * @return the persisted future of the staged requests, or the first leg failure
+     */
+    private CompletableFuture<Void> runBatchLegs(List<Runnable> dlqSends,
+                                                 List<TransactionRequest> validationFailures,
+                                                 List<TransactionRequest> validRequests) {
+        Future<?> dlqLeg;
+        Future<?> rejectedLeg;
+        Future<CompletableFuture<Void>> stagingLeg;
+
+        try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+            dlqLeg = scope.submit(() -> dlqSends.forEach(Runnable::run));
+            rejectedLeg = scope.submit(() -> {
+                if (!validationFailures.isEmpty()) {
+                    ledgerBatchService.persistRejected(validationFailures, TransactionStatus.REJECTED_VALIDATION);
+                }
+            });
+            stagingLeg = scope.submit(() -> stage(validRequests));
+        }
 
-            redisService.setBatchExpectedCount(token.batchId(), okCount);
+        try {
+            dlqLeg.get();
+            rejectedLeg.get();
+            return stagingLeg.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        } catch (ExecutionException e) {
+            return CompletableFuture.failedFuture(e.getCause());
+        }
+    }
 
+    /**
+     * Hands mapped requests to the staging coalescer, or in account ordering mode to the
+     * wallet-keyed topic, whose acknowledgement then completes the inbound offsets.
+     */
+    private CompletableFuture<Void> stage(List<TransactionRequest> validRequests) {
+        if (validRequests.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-            ledgerBatchService.persistRejected(results.get("nsf"), TransactionStatus.REJECTED_NSF);
+        if (accountRekeyPublisher.isPresent()) {
+            return accountRekeyPublisher.get().republish(validRequests);
+        }
 
+        // Merged with concurrent polls into one Redis staging batch; NSF rejections persist on flush
+        StagingTicket ticket = stagingCoalescer.submit(validRequests);
 
-            boolean success = true;
+        return ticket.persisted();
+    }
 
-            if (okCount > 0) {
-                // High-load timeout (30s)
-                success = redisService.awaitBatchCompletion(token.batchId(), Duration.ofSeconds(30));
+    /**
+     * Blocks the calling worker until the batch future settles, rethrowing its failure as-is.
+     */
+    private void awaitPersisted(CompletableFuture<Void> completion) {
+        try {
+            completion.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
+            throw e;
+        }
+    }
 
-            if (!success) {
-                throw new DbTimeoutException();
-            }
-        });
+    /**
+     * Business-valid record waiting for batch account resolution before strategy mapping.
+     */
+    private record PendingMapping(
+            RecordContext<String, TransactionInitiatedEvent> recordContext,
+            TransactionInitiatedEvent event,
+            LedgerStrategy strategy
+    ) {
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.openfashion.ledgerservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Result event published directly to Kafka topic {@code transaction.response}.
+ *
+ * <p>Written in the same transaction as the ledger rows; {@code publishedAt} stays empty until
+ * the broker acknowledges the record, so unpublished rows can be swept and re-sent. A sweeping
+ * node sets {@code claimedUntil} so other nodes leave the row alone while it re-sends it.
+ */
+@Entity
+@Data
+@Builder
+@Table(name = "result_events")
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResultEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    /** Kafka message key, same value Debezium would use for the outbox row. */
+    @Column(nullable = false)
+    private String aggregateId;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private TransactionType eventType;
+
+    @Column(columnDefinition = "jsonb", nullable = false)
+    @JdbcTypeCode(SqlTypes.JSON)
+    private String payload;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Instant publishedAt;
+
+    private Instant claimedUntil;
+}
@@ -49,6 +49,9 @@ public class Transaction {
     @JdbcTypeCode(SqlTypes.JSON)
     private String metadata;
 
+    /** Staging stream entry that carried the request; {@code null} for rejections. */
+    private String stagingId;
+
     /** Effective accounting timestamp for the journal entry. */
     @Column(nullable = false)
     private Instant effectiveDate;
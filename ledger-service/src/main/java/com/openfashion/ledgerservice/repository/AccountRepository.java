@@ -24,4 +24,11 @@ public interface AccountRepository extends JpaRepository<Account, UUID> {
 
     List<Account> findByUserIdIn(Set<UUID> userIds);
 
+    /**
+     * Loads the user wallets a whole ingestion batch needs in one query.
+     */
+    List<Account> findByUserIdInAndCurrencyIn(Set<UUID> userIds, Set<CurrencyType> currencies);
+
+    List<Account> findByNameInAndCurrencyIn(Set<String> names, Set<CurrencyType> currencies);
+
 }
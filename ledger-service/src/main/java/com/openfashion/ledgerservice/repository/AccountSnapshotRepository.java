@@ -0,0 +1,41 @@
+package com.openfashion.ledgerservice.repository;
+
+import com.openfashion.ledgerservice.dto.redis.BalanceSnapshot;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * JDBC read contract for bulk account balance scans.
+ *
+ * <p>This abstraction exists because loading every account through JPA materializes full
+ * entities in the persistence context; the Redis warm-up only needs id and balance.
+ */
+public interface AccountSnapshotRepository {
+
+    /**
+     * Streams the id and balance of every account through a server-side cursor.
+     *
+     * @param fetchSize rows fetched per round trip
+     * @param chunkSize rows handed to {@code chunkHandler} at a time
+     * @param chunkHandler receives each chunk on the calling thread; chunks are not reused
+     * @return number of accounts read
+     */
+    long streamBalances(int fetchSize, int chunkSize, Consumer<List<BalanceSnapshot>> chunkHandler);
+
+    /**
+     * Loads the current balance of the given accounts in one query; unknown ids are omitted.
+     */
+    List<BalanceSnapshot> findBalances(Collection<UUID> accountIds);
+
+    /**
+     * Loads the current balance of the given accounts and hands them to {@code seed} while no
+     * balance update of these accounts is in flight; unknown ids are omitted.
+     *
+     * <p>Updates that started earlier have committed and settled Redis before the balances are
+     * read, and updates that start later wait until {@code seed} has returned.
+     */
+    void seedGuardedBalances(Collection<UUID> accountIds, Consumer<List<BalanceSnapshot>> seed);
+}
@@ -0,0 +1,61 @@
+package com.openfashion.ledgerservice.repository;
+
+import com.openfashion.ledgerservice.model.ResultEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository for result events published directly to Kafka.
+ */
+@Repository
+public interface ResultEventRepository extends JpaRepository<ResultEvent, UUID> {
+
+    /**
+     * Locks unacknowledged rows no other node has claimed; rows locked by a concurrent sweep are
+     * skipped. Must run in the transaction that then {@link #claim claims} them.
+     */
+    @Query(value = """
+            SELECT * FROM result_events
+            WHERE published_at IS NULL
+              AND created_at < :createdBefore
+              AND (claimed_until IS NULL OR claimed_until < :now)
+            ORDER BY created_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<ResultEvent> lockUnclaimed(@Param("createdBefore") Instant createdBefore,
+                                    @Param("now") Instant now,
+                                    @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE ResultEvent r SET r.claimedUntil = :claimedUntil WHERE r.id IN :ids")
+    int claim(@Param("ids") Collection<UUID> ids, @Param("claimedUntil") Instant claimedUntil);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ResultEvent r SET r.publishedAt = :publishedAt WHERE r.id IN :ids AND r.publishedAt IS NULL")
+    int markPublished(@Param("ids") Collection<UUID> ids, @Param("publishedAt") Instant publishedAt);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM result_events
+            WHERE id IN (
+                SELECT id FROM result_events
+                WHERE published_at < :publishedBefore
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            """, nativeQuery = true)
+    int purgePublished(@Param("publishedBefore") Instant publishedBefore, @Param("limit") int limit);
+
+}
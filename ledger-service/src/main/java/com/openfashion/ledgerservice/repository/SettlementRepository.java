@@ -0,0 +1,36 @@
+package com.openfashion.ledgerservice.repository;
+
+import com.openfashion.ledgerservice.dto.redis.Settlement;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JDBC contract for the Redis settlements of committed batches and the guard they run under.
+ *
+ * <p>A settlement is recorded in the transaction of its batch and deleted once Redis has applied
+ * it, so a settle that fails after commit is retried instead of lost.
+ */
+public interface SettlementRepository {
+
+    /**
+     * Takes the settlement guard of the accounts until the current transaction ends.
+     *
+     * <p>Lazy snapshot hydration of these accounts waits until then. The transaction must stay
+     * open until Redis has settled the balance changes committed meanwhile; calling this outside
+     * a transaction fails.
+     */
+    void holdSettlementGuard(Collection<UUID> accountIds);
+
+    void save(Settlement settlement);
+
+    void delete(Collection<UUID> settlementIds);
+
+    /**
+     * Locks settlements recorded before {@code createdBefore}; rows locked by a concurrent sweep
+     * or a settle in progress are skipped. Must run in the transaction that settles and deletes them.
+     */
+    List<Settlement> lockStale(Instant createdBefore, int limit);
+}
@@ -23,6 +23,9 @@ public interface TransactionBatchRepository {
     /**
      * Applies aggregated net balance changes derived from persisted postings.
      *
+     * <p>The caller holds the settlement guard of the touched accounts until Redis has settled
+     * the change (see {@link SettlementRepository#holdSettlementGuard}).
+     *
      * @param filteredPostings postings confirmed as newly persisted
      */
     void updateAccountBalances(List<Posting> filteredPostings);
@@ -0,0 +1,101 @@
+package com.openfashion.ledgerservice.repository.implementation;
+
+import com.openfashion.ledgerservice.dto.redis.BalanceSnapshot;
+import com.openfashion.ledgerservice.repository.AccountSnapshotRepository;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * JDBC implementation of bulk account balance scans.
+ *
+ * <p>The PostgreSQL driver only uses a cursor when auto-commit is off and a fetch size is set,
+ * so the scan runs in a read-only transaction; otherwise the whole table would be buffered.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AccountSnapshotRepositoryImp implements AccountSnapshotRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamBalances(int fetchSize, int chunkSize, Consumer<List<BalanceSnapshot>> chunkHandler) {
+        String sql = "SELECT id, balance FROM accounts";
+        ChunkingHandler handler = new ChunkingHandler(chunkSize, chunkHandler);
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, handler);
+
+        handler.flush();
+        return handler.read;
+    }
+
+    @Override
+    public List<BalanceSnapshot> findBalances(Collection<UUID> accountIds) {
+        if (accountIds.isEmpty()) return List.of();
+
+        String sql = "SELECT id, balance FROM accounts WHERE id = ANY(?)";
+
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setArray(1, connection.createArrayOf("uuid", accountIds.toArray()));
+            return ps;
+        }, (rs, _) -> new BalanceSnapshot(rs.getObject(1, UUID.class), rs.getBigDecimal(2)));
+    }
+
+    @Override
+    @Transactional
+    public void seedGuardedBalances(Collection<UUID> accountIds, Consumer<List<BalanceSnapshot>> seed) {
+        if (accountIds.isEmpty()) return;
+
+        SettlementGuard.holdForHydration(jdbcTemplate, accountIds);
+        seed.accept(findBalances(accountIds));
+    }
+
+    private static final class ChunkingHandler implements RowCallbackHandler {
+
+        private final int chunkSize;
+        private final Consumer<List<BalanceSnapshot>> chunkHandler;
+        private List<BalanceSnapshot> chunk;
+        private long read;
+
+        private ChunkingHandler(int chunkSize, Consumer<List<BalanceSnapshot>> chunkHandler) {
+            this.chunkSize = chunkSize;
+            this.chunkHandler = chunkHandler;
+            this.chunk = new ArrayList<>(chunkSize);
+        }
+
+        @Override
+        public void processRow(@NonNull ResultSet rs) throws SQLException {
+            chunk.add(new BalanceSnapshot(rs.getObject(1, UUID.class), rs.getBigDecimal(2)));
+            read++;
+
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (!chunk.isEmpty()) {
+                chunkHandler.accept(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.openfashion.ledgerservice.repository.implementation;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Per-account Postgres advisory locks that keep lazy Redis snapshot hydration away from balance
+ * settlements in flight.
+ *
+ * <p>A settlement holds the shared lock in a transaction that stays open from before its balance
+ * update commits until Redis has settled it. A hydration takes the exclusive lock while it reads
+ * the balance and seeds Redis, so it never sees a committed change that Redis has not settled
+ * yet, and every settlement that starts later finds the seeded snapshot. Both are
+ * transaction-level locks: they end with their transaction, whatever happens to it, and never
+ * stay behind on a pooled connection. Locks are keyed by a 64-bit fold of the account id; a
+ * collision only makes two accounts wait for each other.
+ */
+final class SettlementGuard {
+
+    // Locks are taken in key order so hydrations and settlements cannot deadlock each other
+    private static final String LOCK_SHARED = """
+            SELECT pg_advisory_xact_lock_shared(k)
+            FROM (SELECT DISTINCT k FROM unnest(?) AS k ORDER BY k) keys
+            """;
+    private static final String LOCK_EXCLUSIVE = """
+            SELECT pg_advisory_xact_lock(k)
+            FROM (SELECT DISTINCT k FROM unnest(?) AS k ORDER BY k) keys
+            """;
+
+    private static final RowCallbackHandler IGNORE_ROWS = _ -> {
+    };
+
+    private SettlementGuard() {
+    }
+
+    /**
+     * Takes the shared lock of every account until the current transaction ends.
+     */
+    static void holdForSettlement(JdbcTemplate jdbcTemplate, Collection<UUID> accountIds) {
+        query(jdbcTemplate, LOCK_SHARED, keys(accountIds));
+    }
+
+    /**
+     * Takes the exclusive lock of every account until the current transaction ends.
+     */
+    static void holdForHydration(JdbcTemplate jdbcTemplate, Collection<UUID> accountIds) {
+        query(jdbcTemplate, LOCK_EXCLUSIVE, keys(accountIds));
+    }
+
+    private static void query(JdbcTemplate jdbcTemplate, String sql, Long[] keys) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setArray(1, connection.createArrayOf("bigint", keys));
+            return ps;
+        }, IGNORE_ROWS);
+    }
+
+    private static Long[] keys(Collection<UUID> accountIds) {
+        return accountIds.stream()
+                .map(id -> id.getMostSignificantBits() ^ id.getLeastSignificantBits())
+                .toArray(Long[]::new);
+    }
+}
@@ -0,0 +1,123 @@
+package com.openfashion.ledgerservice.repository.implementation;
+
+import com.openfashion.ledgerservice.dto.redis.Settlement;
+import com.openfashion.ledgerservice.repository.SettlementRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * JDBC implementation of the settlement record, one {@code pending_settlements} row per batch.
+ *
+ * <p>A batch's changes live in one row, so a sweep locks and applies a settlement whole.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SettlementRepositoryImp implements SettlementRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void holdSettlementGuard(Collection<UUID> accountIds) {
+        if (accountIds.isEmpty()) return;
+
+        SettlementGuard.holdForSettlement(jdbcTemplate, accountIds);
+    }
+
+    @Override
+    @Transactional
+    public void save(Settlement settlement) {
+        List<UUID> accountIds = List.copyOf(settlement.accountIds());
+        BigDecimal[] committed = accountIds.stream()
+                .map(id -> settlement.committed().getOrDefault(id, BigDecimal.ZERO))
+                .toArray(BigDecimal[]::new);
+        BigDecimal[] released = accountIds.stream()
+                .map(id -> settlement.released().getOrDefault(id, BigDecimal.ZERO))
+                .toArray(BigDecimal[]::new);
+
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement("""
+                    INSERT INTO pending_settlements (id, account_ids, committed, released)
+                    VALUES (?, ?, ?, ?)
+                    """);
+            ps.setObject(1, settlement.id());
+            ps.setArray(2, connection.createArrayOf("uuid", accountIds.toArray()));
+            ps.setArray(3, connection.createArrayOf("numeric", committed));
+            ps.setArray(4, connection.createArrayOf("numeric", released));
+            return ps;
+        });
+    }
+
+    @Override
+    @Transactional
+    public void delete(Collection<UUID> settlementIds) {
+        if (settlementIds.isEmpty()) return;
+
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement("DELETE FROM pending_settlements WHERE id = ANY(?)");
+            ps.setArray(1, connection.createArrayOf("uuid", settlementIds.toArray()));
+            return ps;
+        });
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Settlement> lockStale(Instant createdBefore, int limit) {
+        String sql = """
+                SELECT id, account_ids, committed, released FROM pending_settlements
+                WHERE created_at < ?
+                ORDER BY created_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+                """;
+
+        return jdbcTemplate.query(sql, (rs, _) -> settlement(rs), Timestamp.from(createdBefore), limit);
+    }
+
+    private static Settlement settlement(ResultSet rs) throws SQLException {
+        Object[] accountIds = array(rs.getArray("account_ids"));
+        Object[] committed = array(rs.getArray("committed"));
+        Object[] released = array(rs.getArray("released"));
+
+        Map<UUID, BigDecimal> committedChanges = new HashMap<>();
+        Map<UUID, BigDecimal> releasedChanges = new HashMap<>();
+
+        for (int i = 0; i < accountIds.length; i++) {
+            UUID accountId = (UUID) accountIds[i];
+            putNonZero(committedChanges, accountId, (BigDecimal) committed[i]);
+            putNonZero(releasedChanges, accountId, (BigDecimal) released[i]);
+        }
+
+        return new Settlement(rs.getObject("id", UUID.class), committedChanges, releasedChanges);
+    }
+
+    private static Object[] array(Array array) throws SQLException {
+        try {
+            return (Object[]) array.getArray();
+        } finally {
+            array.free();
+        }
+    }
+
+    private static void putNonZero(Map<UUID, BigDecimal> changes, UUID accountId, BigDecimal change) {
+        if (change.signum() != 0) {
+            changes.put(accountId, change);
+        }
+    }
+}
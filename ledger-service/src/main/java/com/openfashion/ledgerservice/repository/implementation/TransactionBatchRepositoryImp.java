@@ -15,7 +15,6 @@ import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -48,8 +47,8 @@ public class TransactionBatchRepositoryImp implements TransactionBatchRepository
     public int[] upsertTransactions(List<Transaction> transactions) {
         String sql = """
                 INSERT INTO transactions (
-                    id, reference_id, type, status, metadata, effective_date, version, created_at
-                ) VALUES (?, ?, ?, ?, ?::jsonb, ?, ?, ?)
+                    id, reference_id, type, status, metadata, effective_date, version, created_at, staging_id
+                ) VALUES (?, ?, ?, ?, ?::jsonb, ?, ?, ?, ?)
                 ON CONFLICT (reference_id, type) DO NOTHING
                 """;
 
@@ -65,6 +64,7 @@ public class TransactionBatchRepositoryImp implements TransactionBatchRepository
                 ps.setObject(6, Timestamp.from(tx.getEffectiveDate()));
                 ps.setLong(7, tx.getVersion());
                 ps.setObject(8, Timestamp.from(tx.getCreatedAt()));
+                ps.setString(9, tx.getStagingId());
             }
 
             @Override
@@ -78,7 +78,8 @@ public class TransactionBatchRepositoryImp implements TransactionBatchRepository
     /**
      * Aggregates posting deltas per account and updates balances/version counters in batch.
      *
-     * <p>Credits add to the balance and debits subtract from it.
+     * <p>Credits add to the balance and debits subtract from it. The caller holds the accounts'
+     * settlement guard in an enclosing transaction (see {@link SettlementGuard}).
      *
      * @param filteredPostings postings belonging only to newly inserted transactions
      */
@@ -99,8 +100,10 @@ public class TransactionBatchRepositoryImp implements TransactionBatchRepository
                         )
                 ));
 
-        // 2. Prepare the batch update
-        List<UUID> accountIds = new ArrayList<>(accountChanges.keySet());
+        // 2. Prepare the batch update. Partition workers share rows (system accounts, common credit
+        // accounts), so every batch locks them in the same order to avoid deadlocks
+        List<UUID> accountIds = accountChanges.keySet().stream().sorted().toList();
+
         String sql = """
         UPDATE accounts
         SET balance = balance + ?, 
@@ -0,0 +1,42 @@
+package com.openfashion.ledgerservice.scheduler;
+
+import com.openfashion.ledgerservice.core.redis.RedisKeyspace;
+import com.openfashion.ledgerservice.service.RedisService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drains the per-shard credit follow-up streams of a sharded Redis keyspace.
+ *
+ * <p>Transfers whose accounts live on different shards are staged on the debit shard; this
+ * relay applies the matching credit on the credit shard. It is idle when the keyspace has a
+ * single shard.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class CreditFollowUpRelay {
+
+    private static final int MAX_PER_SHARD = 500;
+
+    private final RedisService redisService;
+    private final RedisKeyspace keyspace;
+
+    @Scheduled(fixedDelayString = "${ledger.redis.credit-relay.interval:100ms}")
+    public void relay() {
+        if (!keyspace.isSharded()) {
+            return;
+        }
+
+        int relayed;
+        do {
+            relayed = redisService.relayCreditFollowUps(MAX_PER_SHARD);
+
+            if (relayed > 0) {
+                log.debug("Relayed {} cross-shard credits", relayed);
+            }
+        } while (relayed >= MAX_PER_SHARD);
+    }
+}
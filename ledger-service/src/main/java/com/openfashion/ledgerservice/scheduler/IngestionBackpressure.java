@@ -0,0 +1,117 @@
+package com.openfashion.ledgerservice.scheduler;
+
+import com.openfashion.ledgerservice.dto.redis.StreamLag;
+import com.openfashion.ledgerservice.service.RedisService;
+import io.confluent.parallelconsumer.ParallelConsumer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Pauses Kafka consumption while Postgres persistence trails Redis staging.
+ *
+ * <p>When the unpersisted backlog of {@code ledger:stream:tx} or the age of its oldest pending
+ * entry crosses the high watermark, every Parallel Consumer (both stages in account ordering
+ * mode) is paused so new work queues in Kafka instead of being staged into batches that would
+ * only hit the done-wait timeout. Consumption
+ * resumes once both signals drop below the low watermark; the gap between the two avoids flapping.
+ */
+@Slf4j
+@Component
+public class IngestionBackpressure {
+
+    private final List<ParallelConsumer<?, ?>> parallelConsumers;
+    private final RedisService redisService;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long highBacklog;
+    private final long lowBacklog;
+    private final Duration highPendingAge;
+    private final Duration lowPendingAge;
+
+    private volatile StreamLag lastLag = new StreamLag(0, 0, 0, Duration.ZERO);
+    private volatile boolean paused;
+
+    public IngestionBackpressure(
+            List<ParallelConsumer<?, ?>> parallelConsumers,
+            RedisService redisService,
+            MeterRegistry meterRegistry,
+            @Value("${ledger.backpressure.enabled:true}") boolean enabled,
+            @Value("${ledger.backpressure.backlog.high:20000}") long highBacklog,
+            @Value("${ledger.backpressure.backlog.low:5000}") long lowBacklog,
+            @Value("${ledger.backpressure.pending-age.high:10s}") Duration highPendingAge,
+            @Value("${ledger.backpressure.pending-age.low:2s}") Duration lowPendingAge
+    ) {
+        this.parallelConsumers = parallelConsumers;
+        this.redisService = redisService;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.highBacklog = highBacklog;
+        this.lowBacklog = lowBacklog;
+        this.highPendingAge = highPendingAge;
+        this.lowPendingAge = lowPendingAge;
+    }
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("ledger.stream.tx.backlog", this, monitor -> monitor.lastLag.backlog())
+                .description("Entries staged in Redis but not yet persisted to Postgres")
+                .register(meterRegistry);
+        Gauge.builder("ledger.stream.tx.pending", this, monitor -> monitor.lastLag.pending())
+                .register(meterRegistry);
+        Gauge.builder("ledger.stream.tx.pending.age", this, monitor -> monitor.lastLag.oldestPendingAge().toMillis())
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("ledger.ingestion.paused", this, monitor -> monitor.paused ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Samples stream lag and applies the watermark hysteresis.
+     *
+     * <p>Lag is always sampled so the staged-but-unpersisted gauges stay live, which matters most
+     * with {@code ack-mode=STAGED} where Kafka offsets no longer reflect persistence.
+     */
+    @Scheduled(fixedDelayString = "${ledger.backpressure.interval:1s}")
+    public void evaluate() {
+        StreamLag lag;
+
+        try {
+            // Only the watermark that can flip the current state matters, so the probe stops there
+            lag = redisService.readStreamLag(paused ? lowBacklog + 1 : highBacklog);
+        } catch (Exception e) {
+            // Keep the current state; a transient Redis error must not flip consumption
+            log.warn("Failed to sample ledger stream lag: {}", e.getMessage());
+            return;
+        }
+
+        lastLag = lag;
+
+        if (!enabled) return;
+
+        boolean overHigh = lag.backlog() >= highBacklog
+                || lag.oldestPendingAge().compareTo(highPendingAge) >= 0;
+        boolean underLow = lag.backlog() <= lowBacklog
+                && lag.oldestPendingAge().compareTo(lowPendingAge) <= 0;
+
+        if (!paused && overHigh) {
+            parallelConsumers.forEach(ParallelConsumer::pauseIfRunning);
+            paused = true;
+            log.warn("Pausing Kafka ingestion: backlog = {}, pending = {}, oldestPendingAge = {}",
+                    lag.backlog(), lag.pending(), lag.oldestPendingAge());
+        } else if (paused && underLow) {
+            parallelConsumers.forEach(ParallelConsumer::resumeIfPaused);
+            paused = false;
+            log.info("Resuming Kafka ingestion: backlog = {}, pending = {}, oldestPendingAge = {}",
+                    lag.backlog(), lag.pending(), lag.oldestPendingAge());
+        }
+    }
+
+}
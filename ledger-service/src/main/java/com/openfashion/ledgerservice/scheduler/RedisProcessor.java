@@ -3,25 +3,42 @@ package com.openfashion.ledgerservice.scheduler;
 import com.openfashion.ledgerservice.dto.TransactionRequest;
 import com.openfashion.ledgerservice.dto.redis.AckResult;
 import com.openfashion.ledgerservice.dto.redis.StreamEnvelope;
+import com.openfashion.ledgerservice.service.IngestionController;
 import com.openfashion.ledgerservice.service.LedgerBatchService;
 import com.openfashion.ledgerservice.service.RedisService;
+import com.openfashion.ledgerservice.service.imp.StreamPartitionAssignor;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
- * Scheduled Redis stream worker that persists staged ledger requests into Postgres.
+ * Redis stream workers that persist staged ledger requests into Postgres.
  *
- * <p>This processor reads fresh and stale pending entries from {@code ledger:stream:tx},
- * performs batch DB persistence, acknowledges successfully persisted stream records,
- * and handles retry cutoff / DLQ routing for repeatedly failing items.
+ * <p>Each staging stream partition owned by this node (see {@link StreamPartitionAssignor}) gets
+ * its own worker thread, which reads fresh and stale pending entries from that partition only,
+ * performs batch DB persistence, acknowledges successfully persisted stream records, and handles
+ * retry cutoff / DLQ routing for repeatedly failing items. A slow batch therefore only holds back
+ * its own partition.
+ *
+ * <p>A worker only reads and commits while this node holds the partition's lease. When the
+ * partition moves, the released worker finishes its batch in hand and gives the lease up as it
+ * exits; the new owner's worker waits for it before reading.
+ *
+ * <p>Partitions follow the debit account, but workers still share rows: credit accounts, and the
+ * system accounts such as {@code PENDING_WITHDRAWAL}. Balance updates lock rows in account id
+ * order, so they wait on each other instead of deadlocking. Every deposit debits
+ * {@code WORLD_LIQUIDITY}, so all deposits land on one partition of one shard and are persisted
+ * by a single worker, however many partitions are configured.
  */
 @Slf4j
 @RequiredArgsConstructor
@@ -30,18 +47,111 @@ public class RedisProcessor {
 
     private final RedisService redisService;
     private final LedgerBatchService ledgerBatchService;
+    private final IngestionController ingestionController;
+    private final StreamPartitionAssignor partitionAssignor;
     private static final int MAX_ATTEMPTS = 3;
+    private static final Duration ERROR_BACKOFF = Duration.ofMillis(500);
+    private static final Duration LEASE_WAIT = Duration.ofMillis(200);
+
+    private final Map<String, Thread> workers = new ConcurrentHashMap<>();
+    // Workers still running, including released ones finishing their batch; they hold the leases
+    private final Map<String, Thread> leaseHolders = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    /**
+     * Heartbeats this node and starts or stops partition workers to match the current assignment.
+     *
+     * <p>If Redis is unreachable, the current workers keep running until the next successful beat.
+     */
+    @Scheduled(fixedDelayString = "${ledger.redis.workers.heartbeat:2s}")
+    public void rebalance() {
+        if (!running) {
+            return;
+        }
+
+        List<String> owned;
+        try {
+            owned = partitionAssignor.heartbeatAndAssign(redisService.stagingStreams());
+        } catch (Exception e) {
+            log.warn("Partition heartbeat failed; keeping {} workers", workers.size(), e);
+            return;
+        }
+
+        // A released worker finishes its current batch and exits; it is not interrupted mid-write
+        for (String streamKey : new HashSet<>(workers.keySet())) {
+            if (!owned.contains(streamKey)) {
+                workers.remove(streamKey);
+                log.info("Released stream partition {}", streamKey);
+            }
+        }
+
+        // A batch may outlast the lease TTL; renewing keeps the partition until its worker lets go
+        for (String streamKey : leaseHolders.keySet()) {
+            try {
+                partitionAssignor.holdLease(streamKey);
+            } catch (Exception e) {
+                log.warn("Could not renew the lease on {}", streamKey, e);
+            }
+        }
+
+        for (String streamKey : owned) {
+            // Reacquired before its released worker has exited; started on a later beat
+            if (workers.containsKey(streamKey) || leaseHolders.containsKey(streamKey)) {
+                continue;
+            }
+
+            Thread worker = Thread.ofVirtual()
+                    .name("ledger-stream-worker-" + streamKey)
+                    .unstarted(() -> runWorker(streamKey));
+
+            workers.put(streamKey, worker);
+            leaseHolders.put(streamKey, worker);
+            log.info("Acquired stream partition {}", streamKey);
+            worker.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.values().forEach(Thread::interrupt);
+        workers.clear();
+    }
+
+    private void runWorker(String streamKey) {
+        try {
+            while (running && workers.get(streamKey) == Thread.currentThread()) {
+                try {
+                    if (partitionAssignor.holdLease(streamKey)) {
+                        processPartition(streamKey);
+                    } else {
+                        // The previous owner is still finishing its batch
+                        sleepQuietly(LEASE_WAIT);
+                    }
+                } catch (Exception e) {
+                    log.error("Stream worker for {} failed; backing off", streamKey, e);
+                    sleepQuietly(ERROR_BACKOFF);
+                }
+
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+        } finally {
+            partitionAssignor.releaseLease(streamKey);
+            leaseHolders.remove(streamKey, Thread.currentThread());
+        }
+    }
 
     /**
-     * Drains claimable stream entries, deduplicates by stream id, persists them, and ACKs success.
+     * Drains claimable entries of one partition, deduplicates by stream id, persists them, and ACKs success.
      *
      * <p>On batch failure, records remain pending and are retried individually to isolate poison messages.
      */
-    @Scheduled(fixedDelay = 500)
-    public void processQueue() {
+    private void processPartition(String streamKey) {
 
-        List<StreamEnvelope<TransactionRequest>> stale = redisService.claimStaleFromStream(50, Duration.ofSeconds(30));
-        List<StreamEnvelope<TransactionRequest>> fresh = redisService.readNewFromStream(100, Duration.ofSeconds(1));
+        List<StreamEnvelope<TransactionRequest>> stale = redisService.claimStaleFromStream(streamKey, 50, Duration.ofSeconds(30));
+        List<StreamEnvelope<TransactionRequest>> fresh = redisService.readNewFromStream(streamKey, 100, Duration.ofSeconds(1));
 
         if (stale.isEmpty() && fresh.isEmpty()) {
             return;
@@ -56,10 +166,19 @@ public class RedisProcessor {
 
         List<StreamEnvelope<TransactionRequest>> messages = deduped.values().stream().toList();
 
-        List<TransactionRequest> dbBatch = messages.stream().map(StreamEnvelope::data).toList();
+        // The lease may have lapsed while reading, e.g. after a pause longer than its TTL
+        if (!partitionAssignor.holdLease(streamKey)) {
+            log.warn("Lost the lease on {}; leaving {} entries pending for its new owner", streamKey, messages.size());
+            return;
+        }
 
         try {
-            ledgerBatchService.saveTransactions(dbBatch);
+            long persistStart = System.nanoTime();
+
+            ledgerBatchService.saveTransactions(messages);
+
+            ingestionController.recordLatency(IngestionController.Stage.DB_PERSIST,
+                    Duration.ofNanos(System.nanoTime() - persistStart));
 
             AckResult ack = redisService.acknowledgePersisted(messages);
 
@@ -97,7 +216,7 @@ public class RedisProcessor {
      */
     private void processOneWithRetryCutoff(StreamEnvelope<TransactionRequest> message, int maxAttempts) {
         try {
-            ledgerBatchService.saveTransactions(List.of(message.data()));
+            ledgerBatchService.saveTransactions(List.of(message));
 
             AckResult singleAck = redisService.acknowledgePersisted(List.of(message));
 
@@ -144,5 +263,11 @@ public class RedisProcessor {
                 redisService.markBatchProgress(batchId, count.intValue()));
     }
 
-
+    private void sleepQuietly(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
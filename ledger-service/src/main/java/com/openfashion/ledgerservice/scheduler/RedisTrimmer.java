@@ -1,20 +1,65 @@
 package com.openfashion.ledgerservice.scheduler;
 
+import com.openfashion.ledgerservice.core.redis.RedisKeyspace;
+import com.openfashion.ledgerservice.dto.redis.TrimResult;
+import com.openfashion.ledgerservice.service.RedisService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
+/**
+ * Keeps the ledger streams bounded.
+ *
+ * <p>The done streams are capped by length, the staging partitions lose their acknowledged
+ * entries, and the DLQ is kept for {@code ledger.redis.dlq.retention} up to
+ * {@code ledger.redis.dlq.max-length} entries.
+ */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class RedisTrimmer {
 
     private final RedisTemplate<String, String> balanceTemplate;
+    private final RedisKeyspace keyspace;
+    private final RedisService redisService;
     private static final String BATCH_DONE_STREAM = "ledger:stream:batch:done";
 
+    @Value("${ledger.redis.dlq.retention:7d}")
+    private Duration dlqRetention;
+
+    @Value("${ledger.redis.dlq.max-length:100000}")
+    private long dlqMaxLength;
+
     @Scheduled(fixedDelay = 60_000)
     public void trimBatchDoneStream() {
-        balanceTemplate.opsForStream().trim(BATCH_DONE_STREAM, 20_000, true);
+        for (String doneStream : keyspace.keys(BATCH_DONE_STREAM)) {
+            balanceTemplate.opsForStream().trim(doneStream, 20_000, true);
+        }
     }
 
+    @Scheduled(fixedDelay = 60_000)
+    public void trimStagingStreams() {
+        report("staging streams", redisService.trimAcknowledged());
+    }
+
+    @Scheduled(fixedDelay = 300_000)
+    public void trimDlq() {
+        try {
+            report("DLQ", redisService.trimDlq(dlqRetention, dlqMaxLength));
+        } catch (Exception e) {
+            log.error("Failed to apply DLQ retention", e);
+        }
+    }
+
+    private void report(String target, TrimResult result) {
+        if (result.entries() > 0) {
+            log.info("Trimmed {} entries from {}, reclaiming ~{} bytes",
+                    result.entries(), target, result.bytesReclaimed());
+        }
+    }
 }
@@ -0,0 +1,39 @@
+package com.openfashion.ledgerservice.service;
+
+import com.openfashion.ledgerservice.dto.consumer.AccountRef;
+import com.openfashion.ledgerservice.dto.consumer.ResolvedAccounts;
+import com.openfashion.ledgerservice.model.CurrencyType;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Bounded in-process directory of user account ids and statuses.
+ *
+ * <p>Sits in front of batch account resolution so hot wallets are resolved without
+ * touching Postgres. Invalidation is cluster-wide: every ledger node evicts the entry,
+ * and entries also expire after a bounded time in case a notification is lost.
+ */
+public interface AccountDirectory {
+
+    /**
+     * Returns cached entries for the requested keys; misses are simply absent.
+     */
+    Map<ResolvedAccounts.UserKey, AccountRef> getAllPresent(Set<ResolvedAccounts.UserKey> keys);
+
+    /**
+     * Caches freshly loaded entries.
+     */
+    void putAll(Map<ResolvedAccounts.UserKey, AccountRef> entries);
+
+    /**
+     * Evicts one account on every ledger node, e.g. after it was frozen or closed.
+     */
+    void invalidate(UUID userId, CurrencyType currency);
+
+    /**
+     * Evicts all entries on every ledger node.
+     */
+    void invalidateAll();
+}
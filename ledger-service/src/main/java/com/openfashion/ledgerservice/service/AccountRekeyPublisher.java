@@ -0,0 +1,26 @@
+package com.openfashion.ledgerservice.service;
+
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Republishes mapped requests keyed by wallet for account ordering mode.
+ *
+ * <p>Only present when {@code ledger.ingestion.ordering=ACCOUNT}. The staging consumer of the
+ * re-keyed topic keeps Parallel Consumer key ordering, so per-wallet order is enforced by Kafka
+ * rather than by locks taken in whatever order poll workers happen to arrive.
+ */
+public interface AccountRekeyPublisher {
+
+    /**
+     * Sends requests in list order, each keyed by its
+     * {@link com.openfashion.ledgerservice.core.kafka.AccountOrderingKey}.
+     *
+     * @param requests validated, mapped requests from one poll context, in offset order
+     * @return future that completes once the broker acknowledged every record
+     */
+    CompletableFuture<Void> republish(List<TransactionRequest> requests);
+
+}
@@ -0,0 +1,26 @@
+package com.openfashion.ledgerservice.service;
+
+import com.openfashion.ledgerservice.dto.consumer.ResolvedAccounts;
+import com.openfashion.ledgerservice.dto.event.TransactionInitiatedEvent;
+
+import java.util.List;
+
+/**
+ * Batch account resolution boundary for the ingestion pipeline.
+ *
+ * <p>Implementations load every user and system account a poll batch can touch
+ * in one round trip, so strategy mapping no longer queries the database per event.
+ */
+public interface AccountResolutionService {
+
+    /**
+     * Resolves all accounts referenced by the given events.
+     *
+     * <p>Missing accounts are simply absent from the returned view; rejection stays
+     * the responsibility of the strategy that needs them.
+     *
+     * @param events business-valid events of a single poll batch
+     * @return resolved account view for strategy mapping
+     */
+    ResolvedAccounts resolveForBatch(List<TransactionInitiatedEvent> events);
+}
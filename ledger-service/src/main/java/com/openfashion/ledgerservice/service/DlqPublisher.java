@@ -14,11 +14,11 @@ public interface DlqPublisher {
     /**
      * Publishes a record with deserialization/parsing errors to the DLQ.
      * <p>Invoked when the Kafka consumer fails to deserialize an inbound message
-     * into a {@code TransactionInitiatedEvent}, typically due to invalid JSON or
-     * schema mismatch.
+     * into a {@code TransactionInitiatedEvent}, or a re-keyed message into a
+     * {@code TransactionRequest}, typically due to invalid JSON or schema mismatch.
      * @param recordContext the raw Kafka record context including headers, offset, and error metadata
      */
-    void publishMalformedToDlq(RecordContext<String, TransactionInitiatedEvent> recordContext);
+    void publishMalformedToDlq(RecordContext<String, ?> recordContext);
 
     /**
      * Publishes a record with an unsupported or unmapped transaction type to the DLQ.
@@ -0,0 +1,46 @@
+package com.openfashion.ledgerservice.service;
+
+import com.openfashion.ledgerservice.dto.consumer.IngestionTuningSnapshot;
+
+import java.time.Duration;
+
+/**
+ * Feedback controller for the ingestion pipeline.
+ *
+ * <p>Observes stage latencies and tunes, at runtime, how many merged staging batches may be
+ * in flight and how many records the coalescer packs into each of them.
+ */
+public interface IngestionController {
+
+    /**
+     * Pipeline stages whose latency drives the control loop.
+     */
+    enum Stage {
+        REDIS_STAGE,
+        DB_PERSIST,
+        DONE_WAIT
+    }
+
+    /**
+     * Current coalescer flush threshold in records.
+     */
+    int batchSize();
+
+    /**
+     * Blocks until an in-flight slot is available under the current limit.
+     */
+    void acquireSlot() throws InterruptedException;
+
+    /**
+     * Returns a slot taken by {@link #acquireSlot()}.
+     */
+    void releaseSlot();
+
+    /**
+     * Records one latency observation for a stage.
+     */
+    void recordLatency(Stage stage, Duration latency);
+
+    IngestionTuningSnapshot snapshot();
+
+}
@@ -1,6 +1,7 @@
 package com.openfashion.ledgerservice.service;
 
 import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.dto.redis.StreamEnvelope;
 import com.openfashion.ledgerservice.model.TransactionStatus;
 
 import java.util.List;
@@ -16,9 +17,13 @@ public interface LedgerBatchService {
     /**
      * Persists a batch of accepted ledger requests.
      *
-     * @param batch accepted requests from Redis staging
+     * <p>Each transaction records the stream entry that carried it. A redelivered entry whose
+     * transaction is already committed changes nothing; a request that Redis staged again after
+     * its idempotency key expired has its pending delta released instead.
+     *
+     * @param batch accepted stream entries from Redis staging
      */
-    void saveTransactions(List<TransactionRequest> batch);
+    void saveTransactions(List<StreamEnvelope<TransactionRequest>> batch);
 
     /**
      * Persists rejected ledger requests as failed transactions with respective status reasons.
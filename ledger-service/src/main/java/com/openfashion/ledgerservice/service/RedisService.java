@@ -1,16 +1,18 @@
 package com.openfashion.ledgerservice.service;
 
 import com.openfashion.ledgerservice.dto.TransactionRequest;
-import com.openfashion.ledgerservice.dto.consumer.BatchToken;
+import com.openfashion.ledgerservice.dto.consumer.StagedBatch;
 import com.openfashion.ledgerservice.dto.redis.AckResult;
+import com.openfashion.ledgerservice.dto.redis.BalanceSnapshot;
+import com.openfashion.ledgerservice.dto.redis.DurabilityRequirement;
+import com.openfashion.ledgerservice.dto.redis.Settlement;
 import com.openfashion.ledgerservice.dto.redis.StreamEnvelope;
-import com.openfashion.ledgerservice.model.Account;
+import com.openfashion.ledgerservice.dto.redis.StreamLag;
+import com.openfashion.ledgerservice.dto.redis.TrimResult;
 
-import java.math.BigDecimal;
 import java.time.Duration;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Redis boundary for ledger ingestion and settlement coordination.
@@ -21,34 +23,97 @@ import java.util.UUID;
 public interface RedisService {
 
     /**
-     * Atomically validates and stages a batch using Redis Lua.
+     * Atomically validates and stages a batch using Redis Lua, in the same script executions
+     * that create and seal its completion metadata.
      *
      * <p>For each request:
      * <ul>
-     *   <li>deduplicates by composite idempotency key,</li>
-     *   <li>optionally performs soft-balance NSF checks,</li>
-     *   <li>writes accepted records to {@code ledger:stream:tx}.</li>
+     *   <li>deduplicates by composite idempotency key within the configured lookback window
+     *       (older replays are caught by the Postgres unique constraint),</li>
+     *   <li>optionally performs soft-balance NSF checks; a debit snapshot missing from Redis is
+     *       loaded from Postgres and the affected requests are re-run,</li>
+     *   <li>writes accepted records to the {@code ledger:stream:tx} partition of the debit account.</li>
      * </ul>
+     * The batch meta hash is initialized with its TTL, its expected count grows with every
+     * accepted record, and the last chunk seals it (emitting DONE immediately when nothing
+     * was accepted).
+     *
+     * <p>With a sharded keyspace, requests are grouped by the shard of their debit account and
+     * each shard stages and seals its own sub-batch. A shard that fails leaves the others staged:
+     * its requests come back as failed and the batch id only covers the sub-batches that sealed.
+     * Only a batch where every shard failed throws.
+     *
+     * <p>{@code WAIT}/{@code WAITAOF} only cover writes made earlier on the same connection, so
+     * when durability is required it is issued on the connection that ran each shard's staging
+     * scripts, right behind them. In cluster mode it goes to the master owning that shard's slot.
      *
      * @param batch normalized requests from strategy mapping
-     * @param batchId correlation id for completion tracking
-     * @return map with keys {@code "ok"} and {@code "nsf"}
+     * @param durability confirmation to wait for after staging, or {@link DurabilityRequirement#NONE}
+     * @return the generated batch id with accepted, rejected and failed requests, and whether the
+     *         durability was confirmed
+     */
+    StagedBatch stageBatch(List<TransactionRequest> batch, DurabilityRequirement durability);
+
+    /**
+     * Applies cross-shard credits recorded by {@link #stageBatch} on their credit shards.
+     *
+     * <p>A transfer is staged on its debit shard, which checks funds, takes the debit and
+     * records the credit in that shard's follow-up stream. The relay then adds the credit to
+     * the pending delta of the credit shard, guarded by a separate credit idempotency bucket,
+     * and deletes the follow-up entry. A crash in between re-applies nothing. Until the credit
+     * lands, the credit account only looks poorer than it is, which is safe for NSF checks.
+     *
+     * @param maxPerShard follow-up entries taken from each shard per call
+     * @return number of follow-up entries relayed; always {@code 0} when the keyspace is not sharded
      */
-    Map<String, List<TransactionRequest>> processBatchAtomic(List<TransactionRequest> batch, String batchId);
+    int relayCreditFollowUps(int maxPerShard);
 
     /**
-     * Reads newly delivered stream entries for this consumer and deserializes payloads.
+     * Names of every staging stream partition, across all shards.
+     *
+     * <p>Each partition has its own consumer group and is drained by exactly one worker at a time.
+     */
+    List<String> stagingStreams();
+
+    /**
+     * Reads newly delivered entries of one stream partition for this consumer and deserializes payloads.
      *
      * <p>Malformed entries are moved to DLQ and acknowledged to avoid blocking the stream.
      */
-    List<StreamEnvelope<TransactionRequest>> readNewFromStream(int count, Duration block);
+    List<StreamEnvelope<TransactionRequest>> readNewFromStream(String streamKey, int count, Duration block);
+
+    /**
+     * Claims stale pending entries of one stream partition after a minimum idle threshold.
+     *
+     * <p>Each call resumes an {@code XAUTOCLAIM} scan of the pending list where the previous call
+     * on that partition stopped, so its cost stays bounded by {@code count}. Returned envelopes
+     * carry the server-side delivery count, including this claim, for retry-cutoff logic.
+     */
+    List<StreamEnvelope<TransactionRequest>> claimStaleFromStream(String streamKey, int count, Duration minIdle);
 
     /**
-     * Claims stale pending entries from the consumer group after a minimum idle threshold.
+     * Measures how far the persistence consumer groups trail the staging stream partitions, summed.
      *
-     * <p>Delivery count is preserved in returned envelopes for retry-cutoff logic.
+     * @param undeliveredProbeLimit upper bound on undelivered entries counted per partition when
+     *                              the server does not report group lag directly; the count is
+     *                              taken server-side and capped at this value
      */
-    List<StreamEnvelope<TransactionRequest>> claimStaleFromStream(int count, Duration minIdle);
+    StreamLag readStreamLag(long undeliveredProbeLimit);
+
+    /**
+     * Removes acknowledged entries from every staging stream partition.
+     *
+     * <p>Each partition is trimmed with {@code XTRIM MINID} up to its oldest pending entry, or just
+     * past the last delivered entry when nothing is pending, so no undelivered or unacknowledged
+     * entry is ever removed.
+     */
+    TrimResult trimAcknowledged();
+
+    /**
+     * Applies retention to {@code ledger:stream:tx:dlq}: entries older than {@code maxAge} are
+     * removed, then the stream is capped at {@code maxLength} entries.
+     */
+    TrimResult trimDlq(Duration maxAge, long maxLength);
 
     /**
      * Acknowledges persisted stream entries in the consumer group.
@@ -66,16 +131,22 @@ public interface RedisService {
     void moveToDlqAndAck(StreamEnvelope<TransactionRequest> failed, String reason);
 
     /**
-     * Seeds Redis DB snapshot for an account when absent.
+     * Seeds Redis DB snapshots for accounts whose snapshot is absent, in one pipelined round trip.
+     *
+     * @return number of snapshots actually written
      */
-    void initializeSnapshotIfMissing(Account account);
+    int initializeSnapshotsIfMissing(List<BalanceSnapshot> snapshots);
 
     /**
-     * Applies confirmed net balance deltas to Redis snapshot and pending-delta hashes.
+     * Applies the Redis side of a committed batch: committed changes move from the pending delta
+     * into the snapshot, released replay deltas leave the pending delta.
      *
-     * <p>Called only after DB balance updates are successful.
+     * <p>Called while the batch's settlement guard is still held. Accounts without a snapshot only
+     * update their pending delta; their snapshot is hydrated from Postgres on the next miss. Each
+     * shard applies a settlement id at most once within {@code ledger.redis.settlement.marker-ttl},
+     * so a retried settlement that already landed changes nothing.
      */
-    void syncRedisBalances(Map<UUID, BigDecimal> netChanges);
+    void settle(Settlement settlement);
 
     /**
      * Waits until a batch reaches DONE status or timeout expires.
@@ -85,18 +156,16 @@ public interface RedisService {
     boolean awaitBatchCompletion(String batchId, Duration timeout);
 
     /**
-     * Marks persisted progress for a batch and emits a DONE signal when processed >= expected.
-     */
-    void markBatchProgress(String batchId, int ackedCount);
-
-    /**
-     * Creates and initializes Redis metadata for a new batch tracking lifecycle.
+     * Registers a batch with the shared done-stream dispatcher without blocking the caller.
+     *
+     * @return future completed with {@code true} once DONE, or {@code false} on timeout
      */
-    BatchToken createBatchToken();
+    CompletableFuture<Boolean> awaitBatchCompletionAsync(String batchId, Duration timeout);
 
     /**
-     * Sets expected accepted count used to transition batch status to DONE.
+     * Marks persisted progress for a batch and emits a DONE signal once the batch is sealed
+     * and processed >= expected.
      */
-    void setBatchExpectedCount(String batchId, int expectedCount);
+    void markBatchProgress(String batchId, int ackedCount);
 
 }
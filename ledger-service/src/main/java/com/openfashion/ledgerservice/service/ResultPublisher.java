@@ -0,0 +1,22 @@
+package com.openfashion.ledgerservice.service;
+
+import com.openfashion.ledgerservice.model.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Emits ledger result events toward Kafka topic {@code transaction.response}.
+ *
+ * <p>Called inside the ledger persistence transaction. Implementations must only make the
+ * events visible downstream once that transaction commits.
+ */
+public interface ResultPublisher {
+
+    /**
+     * Records result events for publication.
+     *
+     * @param events result events keyed by aggregate id, with serialized payloads
+     */
+    void publish(List<OutboxEvent> events);
+
+}
@@ -0,0 +1,30 @@
+package com.openfashion.ledgerservice.service;
+
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.dto.consumer.StagingTicket;
+
+import java.util.List;
+
+/**
+ * Merges validated requests from several Kafka poll contexts into one Redis staging batch.
+ *
+ * <p>Batch token creation, the Lua staging call and the done-wait are paid once per merged
+ * batch instead of once per poll. The outcome of the merged batch is fanned back out to
+ * every contributing submission.
+ */
+public interface StagingCoalescer {
+
+    /**
+     * Queues requests for the next merged staging batch.
+     *
+     * <p>NSF rejections are persisted by the coalescer as part of the flush.
+     *
+     * @param requests validated, mapped requests from one poll context
+     * @return ticket whose {@code staged} future completes after Redis staging and whose
+     *         {@code persisted} future completes once the accepted requests are persisted, or
+     *         fails with {@link com.openfashion.ledgerservice.core.exceptions.DbTimeoutException}
+     *         when persistence is not confirmed in time
+     */
+    StagingTicket submit(List<TransactionRequest> requests);
+
+}
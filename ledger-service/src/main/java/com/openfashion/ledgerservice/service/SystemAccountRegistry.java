@@ -0,0 +1,37 @@
+package com.openfashion.ledgerservice.service;
+
+import com.openfashion.ledgerservice.model.CurrencyType;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Immutable, preloaded view of named system accounts per currency.
+ *
+ * <p>System accounts such as {@code WORLD_LIQUIDITY} and {@code PENDING_WITHDRAWAL} almost never
+ * change, so they are loaded once at startup instead of being queried per event. A missing
+ * required account fails startup rather than surfacing per event.
+ */
+public interface SystemAccountRegistry {
+
+    /**
+     * Looks up a system account id by logical name and currency.
+     */
+    Optional<UUID> find(String name, CurrencyType currency);
+
+    /**
+     * Returns the current registry contents as {@code currency -> name -> account id}.
+     */
+    Map<CurrencyType, Map<String, UUID>> snapshot();
+
+    /**
+     * Reloads all required system accounts and swaps them in atomically.
+     *
+     * <p>The previous view stays active when a required account is missing.
+     *
+     * @throws com.openfashion.ledgerservice.core.exceptions.MissingSystemAccountException
+     * when a required system account does not exist for a configured currency
+     */
+    void refresh();
+}
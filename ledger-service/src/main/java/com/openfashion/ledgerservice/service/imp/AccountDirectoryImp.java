@@ -0,0 +1,113 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openfashion.ledgerservice.dto.consumer.AccountRef;
+import com.openfashion.ledgerservice.dto.consumer.ResolvedAccounts;
+import com.openfashion.ledgerservice.model.CurrencyType;
+import com.openfashion.ledgerservice.service.AccountDirectory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Caffeine-backed account directory with Redis pub/sub invalidation.
+ *
+ * <p>Caffeine's W-TinyLFU admission keeps the power-law head of active wallets resident
+ * while one-off accounts are evicted first. Invalidations are broadcast on
+ * {@code ledger:account:invalidate}; {@code expireAfterWrite} bounds staleness for
+ * nodes that miss a notification.
+ */
+@Service
+@Slf4j
+public class AccountDirectoryImp implements AccountDirectory {
+
+    private static final String INVALIDATION_CHANNEL = "ledger:account:invalidate";
+    private static final String INVALIDATE_ALL = "*";
+    private static final String KEY_SEPARATOR = ":";
+
+    private final RedisTemplate<String, String> balanceTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MeterRegistry meterRegistry;
+    private final Cache<ResolvedAccounts.UserKey, AccountRef> cache;
+
+    public AccountDirectoryImp(RedisTemplate<String, String> balanceTemplate,
+                               RedisMessageListenerContainer listenerContainer,
+                               MeterRegistry meterRegistry,
+                               @Value("${ledger.account-directory.max-size:100000}") long maxSize,
+                               @Value("${ledger.account-directory.ttl:30s}") Duration ttl) {
+        this.balanceTemplate = balanceTemplate;
+        this.listenerContainer = listenerContainer;
+        this.meterRegistry = meterRegistry;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Registers cache metrics and subscribes to cluster-wide invalidation notifications.
+     */
+    @PostConstruct
+    public void init() {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "ledger.account.directory");
+        listenerContainer.addMessageListener(this::onInvalidation, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    @Override
+    public Map<ResolvedAccounts.UserKey, AccountRef> getAllPresent(Set<ResolvedAccounts.UserKey> keys) {
+        return cache.getAllPresent(keys);
+    }
+
+    @Override
+    public void putAll(Map<ResolvedAccounts.UserKey, AccountRef> entries) {
+        cache.putAll(entries);
+    }
+
+    @Override
+    public void invalidate(UUID userId, CurrencyType currency) {
+        cache.invalidate(new ResolvedAccounts.UserKey(userId, currency));
+        balanceTemplate.convertAndSend(INVALIDATION_CHANNEL, userId + KEY_SEPARATOR + currency.name());
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+        balanceTemplate.convertAndSend(INVALIDATION_CHANNEL, INVALIDATE_ALL);
+    }
+
+    private void onInvalidation(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+
+        if (INVALIDATE_ALL.equals(body)) {
+            cache.invalidateAll();
+            log.info("Account directory cleared by cluster invalidation");
+            return;
+        }
+
+        int separator = body.lastIndexOf(KEY_SEPARATOR);
+
+        try {
+            UUID userId = UUID.fromString(body.substring(0, separator));
+            CurrencyType currency = CurrencyType.valueOf(body.substring(separator + 1));
+            cache.invalidate(new ResolvedAccounts.UserKey(userId, currency));
+            log.debug("Account directory entry invalidated: {}", body);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException _) {
+            log.warn("Ignoring malformed account invalidation message: {}", body);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.core.kafka.AccountOrderingKey;
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.service.AccountRekeyPublisher;
+import com.openfashion.ledgerservice.service.SystemAccountRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "ledger.ingestion.ordering", havingValue = "ACCOUNT")
+public class AccountRekeyPublisherImp implements AccountRekeyPublisher {
+
+    public static final String ACCOUNT_TOPIC = "transaction.request.by-account";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final SystemAccountRegistry systemAccountRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public CompletableFuture<Void> republish(List<TransactionRequest> requests) {
+        if (requests.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Set<UUID> systemAccounts = new HashSet<>();
+        systemAccountRegistry.snapshot().values().forEach(byName -> systemAccounts.addAll(byName.values()));
+
+        // The idempotent producer keeps send order per partition, so one wallet's postings stay in offset order
+        CompletableFuture<?>[] sends = requests.stream()
+                .map(request -> kafkaTemplate.send(
+                        ACCOUNT_TOPIC,
+                        AccountOrderingKey.of(request, systemAccounts),
+                        objectMapper.writeValueAsString(request)))
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(sends);
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.dto.consumer.AccountRef;
+import com.openfashion.ledgerservice.dto.consumer.ResolvedAccounts;
+import com.openfashion.ledgerservice.dto.event.TransactionInitiatedEvent;
+import com.openfashion.ledgerservice.dto.event.TransactionPayload;
+import com.openfashion.ledgerservice.model.Account;
+import com.openfashion.ledgerservice.model.CurrencyType;
+import com.openfashion.ledgerservice.repository.AccountRepository;
+import com.openfashion.ledgerservice.service.AccountDirectory;
+import com.openfashion.ledgerservice.service.AccountResolutionService;
+import com.openfashion.ledgerservice.service.SystemAccountRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Set-based account resolution for a whole poll batch.
+ *
+ * <p>Collects every {@code (userId, currency)} pair the batch may need, serves user accounts
+ * from the {@link AccountDirectory} where possible, and loads the remaining misses with one
+ * repository query. System accounts come from the preloaded {@link SystemAccountRegistry}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AccountResolutionServiceImp implements AccountResolutionService {
+
+    private final AccountRepository accountRepository;
+    private final AccountDirectory accountDirectory;
+    private final SystemAccountRegistry systemAccountRegistry;
+
+    @Override
+    public ResolvedAccounts resolveForBatch(List<TransactionInitiatedEvent> events) {
+
+        Set<ResolvedAccounts.UserKey> userKeys = new HashSet<>();
+        Set<CurrencyType> currencies = EnumSet.noneOf(CurrencyType.class);
+
+        for (TransactionInitiatedEvent event : events) {
+            TransactionPayload payload = event.payload();
+
+            if (payload == null || payload.currency() == null) {
+                continue;
+            }
+
+            currencies.add(payload.currency());
+
+            if (payload.senderId() != null) {
+                userKeys.add(new ResolvedAccounts.UserKey(payload.senderId(), payload.currency()));
+            }
+            if (payload.receiverId() != null) {
+                userKeys.add(new ResolvedAccounts.UserKey(payload.receiverId(), payload.currency()));
+            }
+        }
+
+        if (currencies.isEmpty()) {
+            return new ResolvedAccounts(Map.of(), Map.of());
+        }
+
+        Map<ResolvedAccounts.UserKey, AccountRef> userAccounts = new HashMap<>(accountDirectory.getAllPresent(userKeys));
+
+        Set<UUID> missingUserIds = new HashSet<>();
+        for (ResolvedAccounts.UserKey key : userKeys) {
+            if (!userAccounts.containsKey(key)) {
+                missingUserIds.add(key.userId());
+            }
+        }
+
+        Map<ResolvedAccounts.UserKey, AccountRef> loadedUserAccounts = new HashMap<>();
+
+        if (!missingUserIds.isEmpty()) {
+            for (Account account : accountRepository.findByUserIdInAndCurrencyIn(missingUserIds, currencies)) {
+                loadedUserAccounts.put(
+                        new ResolvedAccounts.UserKey(account.getUserId(), account.getCurrency()),
+                        new AccountRef(account.getId(), account.getStatus())
+                );
+            }
+        }
+
+        Map<ResolvedAccounts.SystemKey, UUID> systemAccounts = new HashMap<>();
+        Map<CurrencyType, Map<String, UUID>> registry = systemAccountRegistry.snapshot();
+
+        for (CurrencyType currency : currencies) {
+            registry.getOrDefault(currency, Map.of()).forEach((name, accountId) ->
+                    systemAccounts.put(new ResolvedAccounts.SystemKey(name, currency), accountId));
+        }
+
+        accountDirectory.putAll(loadedUserAccounts);
+        userAccounts.putAll(loadedUserAccounts);
+
+        log.debug("Resolved {} user accounts ({} from directory) and {} system accounts for {} events",
+                userAccounts.size(), userAccounts.size() - loadedUserAccounts.size(), systemAccounts.size(), events.size());
+
+        return new ResolvedAccounts(userAccounts, systemAccounts);
+    }
+}
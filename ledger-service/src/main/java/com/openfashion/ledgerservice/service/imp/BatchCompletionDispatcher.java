@@ -0,0 +1,202 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.core.redis.RedisKeyspace;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * JVM-wide dispatcher for batch DONE notifications.
+ *
+ * <p>A single daemon thread tails {@code ledger:stream:batch:done} (one per shard when the
+ * keyspace is sharded) and completes the {@link CompletableFuture} registered for each waiting
+ * batch, so the number of blocking Redis connections no longer grows with consumer concurrency.
+ *
+ * <p>Missed notifications are covered by re-checking the batch meta hash on registration,
+ * after a read failure, and once more when a waiter times out.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BatchCompletionDispatcher {
+
+    private static final String BATCH_DONE_STREAM = "ledger:stream:batch:done";
+    private static final String BATCH_META_PREFIX = "ledger:batch:meta:";
+    private static final String BATCH_ID_FIELD = "batchId";
+    private static final String STATUS_FIELD = "status";
+    private static final String DONE_STATUS = "DONE";
+    private static final Duration READ_BLOCK = Duration.ofSeconds(1);
+    private static final Duration ERROR_BACKOFF = Duration.ofSeconds(1);
+    private static final int READ_COUNT = 500;
+
+    private final RedisTemplate<String, String> balanceTemplate;
+    private final RedisKeyspace keyspace;
+
+    private final Map<String, CompletableFuture<Boolean>> waiters = new ConcurrentHashMap<>();
+    private final ExecutorService recheckExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Thread> subscribers = new ArrayList<>();
+    private volatile boolean running;
+
+    /**
+     * Starts one subscriber thread per done stream, each from the current tail of its stream.
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+
+        for (int shard = 0; shard < keyspace.shards(); shard++) {
+            String doneStream = keyspace.key(BATCH_DONE_STREAM, shard);
+            String name = keyspace.isSharded()
+                    ? "ledger-batch-done-dispatcher-" + shard
+                    : "ledger-batch-done-dispatcher";
+
+            subscribers.add(Thread.ofPlatform()
+                    .daemon()
+                    .name(name)
+                    .start(() -> runLoop(doneStream)));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+
+        subscribers.forEach(Thread::interrupt);
+
+        waiters.values().forEach(future -> future.complete(false));
+        recheckExecutor.shutdownNow();
+    }
+
+    /**
+     * Registers interest in a batch and returns a future completed with {@code true} once the
+     * batch is DONE, or with the result of a final meta-hash re-check when the timeout expires.
+     */
+    public CompletableFuture<Boolean> register(String batchId, Duration timeout) {
+        CompletableFuture<Boolean> future = waiters.computeIfAbsent(batchId, _ -> new CompletableFuture<>());
+        future.whenComplete((_, _) -> waiters.remove(batchId, future));
+
+        // The DONE event may have been emitted before we registered
+        if (isBatchDone(batchId)) {
+            future.complete(true);
+            return future;
+        }
+
+        CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS, recheckExecutor)
+                .execute(() -> future.complete(safeIsBatchDone(batchId)));
+
+        return future;
+    }
+
+    private void runLoop(String doneStream) {
+        String lastId = currentTailId(doneStream);
+
+        while (running) {
+            try {
+                List<MapRecord<String, Object, Object>> events = balanceTemplate.opsForStream().read(
+                        StreamReadOptions.empty().count(READ_COUNT).block(READ_BLOCK),
+                        StreamOffset.create(doneStream, ReadOffset.from(lastId))
+                );
+
+                if (events == null || events.isEmpty()) {
+                    continue;
+                }
+
+                for (MapRecord<String, Object, Object> event : events) {
+                    lastId = event.getId().getValue();
+                    dispatch(event);
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+
+                log.error("Batch done dispatcher read failed; re-checking {} waiters", waiters.size(), e);
+                sleepQuietly(ERROR_BACKOFF);
+                recheckAllWaiters();
+            }
+        }
+    }
+
+    private void dispatch(MapRecord<String, Object, Object> event) {
+        String batchId = asString(event.getValue().get(BATCH_ID_FIELD));
+        String status = asString(event.getValue().get(STATUS_FIELD));
+
+        if (batchId == null || !DONE_STATUS.equals(status)) {
+            return;
+        }
+
+        CompletableFuture<Boolean> future = waiters.get(batchId);
+
+        if (future != null) {
+            future.complete(true);
+        }
+    }
+
+    private void recheckAllWaiters() {
+        waiters.forEach((batchId, future) -> {
+            if (safeIsBatchDone(batchId)) {
+                future.complete(true);
+            }
+        });
+    }
+
+    private String currentTailId(String doneStream) {
+        try {
+            List<MapRecord<String, Object, Object>> tail = balanceTemplate.opsForStream().reverseRange(
+                    doneStream, Range.unbounded(), Limit.limit().count(1));
+
+            return tail == null || tail.isEmpty() ? "0-0" : tail.getFirst().getId().getValue();
+        } catch (Exception e) {
+            log.warn("Could not read batch done stream tail, starting from the beginning", e);
+            return "0-0";
+        }
+    }
+
+    private boolean safeIsBatchDone(String batchId) {
+        try {
+            return isBatchDone(batchId);
+        } catch (Exception e) {
+            log.warn("Batch meta re-check failed for batchId={}", batchId, e);
+            return false;
+        }
+    }
+
+    private boolean isBatchDone(String batchId) {
+        String metaKey = keyspace.key(BATCH_META_PREFIX + batchId, keyspace.shardOfBatch(batchId));
+        String currentStatus = asString(balanceTemplate.opsForHash().get(metaKey, STATUS_FIELD));
+        return DONE_STATUS.equals(currentStatus);
+    }
+
+    private String asString(Object value) {
+        return switch (value) {
+            case null -> null;
+            case String s -> s;
+            case byte[] bytes -> new String(bytes, StandardCharsets.UTF_8);
+            default -> String.valueOf(value);
+        };
+    }
+
+    private void sleepQuietly(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
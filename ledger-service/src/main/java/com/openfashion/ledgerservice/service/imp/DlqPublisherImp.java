@@ -1,5 +1,6 @@
 package com.openfashion.ledgerservice.service.imp;
 
+import com.openfashion.ledgerservice.core.kafka.TransactionInitiatedEventDeserializer;
 import com.openfashion.ledgerservice.dto.event.TransactionInitiatedEvent;
 import com.openfashion.ledgerservice.service.DlqPublisher;
 import io.confluent.parallelconsumer.RecordContext;
@@ -10,6 +11,7 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import tools.jackson.databind.ObjectMapper;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.*;
 
@@ -24,31 +26,51 @@ public class DlqPublisherImp implements DlqPublisher {
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Override
-    public void publishMalformedToDlq(RecordContext<String, TransactionInitiatedEvent> recordContext) {
+    public void publishMalformedToDlq(RecordContext<String, ?> recordContext) {
 
         try {
             String key = recordContext.key();
 
-            String deserializerExceptionHeaderBase64 = null;
-
-            Header exHeader = recordContext.headers().lastHeader("springDeserializerExceptionValue");
-            if (exHeader != null && exHeader.value() != null) {
-                deserializerExceptionHeaderBase64 = Base64.getEncoder().encodeToString(exHeader.value());
-            }
-
-            if (deserializerExceptionHeaderBase64 == null) {
-                deserializerExceptionHeaderBase64 = "Failed to deserialize Exception header";
+            Map<String, Object> dlq;
+
+            Header rawHeader = recordContext.headers().lastHeader(TransactionInitiatedEventDeserializer.RAW_VALUE_HEADER);
+
+            if (rawHeader != null && rawHeader.value() != null) {
+                Header errorHeader = recordContext.headers().lastHeader(TransactionInitiatedEventDeserializer.ERROR_HEADER);
+                String reason = errorHeader != null && errorHeader.value() != null
+                        ? new String(errorHeader.value(), StandardCharsets.UTF_8)
+                        : "Unknown deserialization error";
+
+                dlq = createDlqMap(
+                        recordContext,
+                        "DESERIALIZATION_ERROR",
+                        reason,
+                        Map.of(
+                                "rawValueBase64", Base64.getEncoder().encodeToString(rawHeader.value())
+                        )
+                );
+            } else {
+                String deserializerExceptionHeaderBase64 = null;
+
+                Header exHeader = recordContext.headers().lastHeader("springDeserializerExceptionValue");
+                if (exHeader != null && exHeader.value() != null) {
+                    deserializerExceptionHeaderBase64 = Base64.getEncoder().encodeToString(exHeader.value());
+                }
+
+                if (deserializerExceptionHeaderBase64 == null) {
+                    deserializerExceptionHeaderBase64 = "Failed to deserialize Exception header";
+                }
+
+                dlq = createDlqMap(
+                        recordContext,
+                        "DESERIALIZATION_ERROR",
+                        "Unknown deserialization error",
+                        Map.of(
+                                "deserializationExceptionHeaderBase64", deserializerExceptionHeaderBase64
+                        )
+                );
             }
 
-            Map<String, Object> dlq = createDlqMap(
-                    recordContext,
-                    "DESERIALIZATION_ERROR",
-                    "Unknown deserialization error",
-                    Map.of(
-                            "deserializationExceptionHeaderBase64", deserializerExceptionHeaderBase64
-                    )
-            );
-
             kafkaTemplate.send(DLQ_TOPIC, key, objectMapper.writeValueAsString(dlq));
             log.warn("Published malformed record to DLQ. key={}", key);
 
@@ -94,7 +116,7 @@ public class DlqPublisherImp implements DlqPublisher {
 
     }
 
-    private Map<String, Object> createDlqMap(RecordContext<String, TransactionInitiatedEvent> recordContext,
+    private Map<String, Object> createDlqMap(RecordContext<String, ?> recordContext,
                                              String errorType,
                                              String errorMessage,
                                              Map<String, Object> parameters) {
@@ -113,7 +135,7 @@ public class DlqPublisherImp implements DlqPublisher {
         return dlq;
     }
 
-    private Map<String, Object> createDlqMap(RecordContext<String, TransactionInitiatedEvent> recordContext,
+    private Map<String, Object> createDlqMap(RecordContext<String, ?> recordContext,
                                              String errorType,
                                              String errorMessage) {
 
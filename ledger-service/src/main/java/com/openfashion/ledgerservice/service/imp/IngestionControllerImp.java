@@ -0,0 +1,229 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.dto.consumer.IngestionTuningSnapshot;
+import com.openfashion.ledgerservice.service.IngestionController;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD controller for in-flight staging batches and coalescer batch size.
+ *
+ * <p>Every tick the p99 of each stage over the samples recorded since the previous tick is
+ * compared with its target. When any stage is over target both knobs are cut multiplicatively;
+ * when every stage with fresh samples is under target they grow additively. Ticks without fresh
+ * samples hold the current values.
+ *
+ * <p>Decisions read interval histograms rather than the published timers: a timer percentile
+ * decays over its statistic expiry, so one latency spike would keep cutting the limits for
+ * several ticks after latency had recovered.
+ *
+ * <p>The limiter is resizable: lowering the limit never revokes slots already taken, it only
+ * delays new acquisitions until enough batches complete.
+ */
+@Service
+@Slf4j
+public class IngestionControllerImp implements IngestionController {
+
+    private static final double P99 = 0.99;
+    private static final Duration STATISTIC_EXPIRY = Duration.ofSeconds(10);
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int minInFlight;
+    private final int maxInFlight;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final int batchSizeStep;
+    private final double decreaseFactor;
+    private final Map<Stage, Duration> targets = new EnumMap<>(Stage.class);
+
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+    private final Map<Stage, Recorder> intervals = new EnumMap<>(Stage.class);
+    private final Map<Stage, Histogram> recycled = new EnumMap<>(Stage.class);
+    private final Map<Stage, Double> lastP99 = new ConcurrentHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private int inFlightLimit;
+    private int inFlight;
+    private volatile int batchSize;
+    private volatile String lastDecision = "HOLD";
+
+    public IngestionControllerImp(
+            MeterRegistry meterRegistry,
+            @Value("${ledger.ingestion.tuning.enabled:true}") boolean enabled,
+            @Value("${ledger.ingestion.tuning.min-in-flight:1}") int minInFlight,
+            @Value("${ledger.ingestion.tuning.max-in-flight:32}") int maxInFlight,
+            @Value("${ledger.ingestion.tuning.min-batch-size:50}") int minBatchSize,
+            @Value("${ledger.ingestion.coalescer.max-records:500}") int maxBatchSize,
+            @Value("${ledger.ingestion.tuning.batch-size-step:50}") int batchSizeStep,
+            @Value("${ledger.ingestion.tuning.decrease-factor:0.7}") double decreaseFactor,
+            @Value("${ledger.ingestion.tuning.target.redis-stage:50ms}") Duration redisStageTarget,
+            @Value("${ledger.ingestion.tuning.target.db-persist:200ms}") Duration dbPersistTarget,
+            @Value("${ledger.ingestion.tuning.target.done-wait:500ms}") Duration doneWaitTarget
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.minInFlight = minInFlight;
+        this.maxInFlight = maxInFlight;
+        this.minBatchSize = Math.min(minBatchSize, maxBatchSize);
+        this.maxBatchSize = maxBatchSize;
+        this.batchSizeStep = batchSizeStep;
+        this.decreaseFactor = decreaseFactor;
+        this.targets.put(Stage.REDIS_STAGE, redisStageTarget);
+        this.targets.put(Stage.DB_PERSIST, dbPersistTarget);
+        this.targets.put(Stage.DONE_WAIT, doneWaitTarget);
+        this.inFlightLimit = maxInFlight;
+        this.batchSize = maxBatchSize;
+    }
+
+    /**
+     * Registers the published stage timers, the interval recorders the decisions read, and the
+     * decision gauges.
+     */
+    @PostConstruct
+    public void init() {
+        for (Stage stage : Stage.values()) {
+            timers.put(stage, Timer.builder("ledger.ingestion.stage.latency")
+                    .tag("stage", stage.name().toLowerCase())
+                    .publishPercentiles(P99)
+                    .distributionStatisticExpiry(STATISTIC_EXPIRY)
+                    .distributionStatisticBufferLength(2)
+                    .register(meterRegistry));
+            intervals.put(stage, new Recorder(SIGNIFICANT_DIGITS));
+        }
+
+        Gauge.builder("ledger.ingestion.inflight.limit", this, controller -> controller.snapshot().inFlightLimit())
+                .register(meterRegistry);
+        Gauge.builder("ledger.ingestion.inflight", this, controller -> controller.snapshot().inFlight())
+                .register(meterRegistry);
+        Gauge.builder("ledger.ingestion.batch.size", this, IngestionControllerImp::batchSize)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public int batchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public void acquireSlot() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= inFlightLimit) {
+                slotFreed.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void releaseSlot() {
+        lock.lock();
+        try {
+            inFlight = Math.max(0, inFlight - 1);
+            slotFreed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void recordLatency(Stage stage, Duration latency) {
+        Timer timer = timers.get(stage);
+
+        if (timer != null) {
+            timer.record(latency);
+            intervals.get(stage).recordValue(Math.max(0, latency.toNanos()));
+        }
+    }
+
+    /**
+     * One AIMD step driven by the stage p99s observed since the previous tick.
+     */
+    @Scheduled(fixedDelayString = "${ledger.ingestion.tuning.interval:1s}")
+    public void adjust() {
+        boolean sampled = false;
+        boolean overTarget = false;
+
+        for (Stage stage : Stage.values()) {
+            Histogram interval = intervals.get(stage).getIntervalHistogram(recycled.get(stage));
+            recycled.put(stage, interval);
+
+            if (interval.getTotalCount() == 0) continue;
+
+            double p99 = interval.getValueAtPercentile(P99 * 100) / NANOS_PER_MILLI;
+            lastP99.put(stage, p99);
+
+            sampled = true;
+            if (p99 > targets.get(stage).toMillis()) {
+                overTarget = true;
+            }
+        }
+
+        if (!enabled || !sampled) {
+            lastDecision = "HOLD";
+            return;
+        }
+
+        lock.lock();
+        try {
+            int previousLimit = inFlightLimit;
+            int previousBatchSize = batchSize;
+
+            if (overTarget) {
+                inFlightLimit = Math.max(minInFlight, (int) (inFlightLimit * decreaseFactor));
+                batchSize = Math.max(minBatchSize, (int) (batchSize * decreaseFactor));
+                lastDecision = "DECREASE";
+            } else {
+                inFlightLimit = Math.min(maxInFlight, inFlightLimit + 1);
+                batchSize = Math.min(maxBatchSize, batchSize + batchSizeStep);
+                lastDecision = "INCREASE";
+                slotFreed.signalAll();
+            }
+
+            if (previousLimit != inFlightLimit || previousBatchSize != batchSize) {
+                log.debug("Ingestion tuning {}: inFlightLimit {} -> {}, batchSize {} -> {}, p99={}",
+                        lastDecision, previousLimit, inFlightLimit, previousBatchSize, batchSize, lastP99);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public IngestionTuningSnapshot snapshot() {
+        Map<String, Double> p99 = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            p99.put(stage.name(), lastP99.getOrDefault(stage, 0.0));
+        }
+
+        lock.lock();
+        try {
+            return new IngestionTuningSnapshot(inFlightLimit, inFlight, batchSize, p99, lastDecision);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
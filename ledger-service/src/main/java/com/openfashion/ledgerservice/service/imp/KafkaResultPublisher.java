@@ -0,0 +1,203 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.model.OutboxEvent;
+import com.openfashion.ledgerservice.model.ResultEvent;
+import com.openfashion.ledgerservice.repository.ResultEventRepository;
+import com.openfashion.ledgerservice.service.ResultPublisher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Publishes result events straight to {@code transaction.response}, bypassing Debezium.
+ *
+ * <p>Events are stored in {@code result_events} inside the ledger transaction and sent with the
+ * idempotent {@link KafkaTemplate} once that transaction commits; acknowledged rows are stamped
+ * with {@code published_at}. A periodic sweep re-sends rows that were committed but never
+ * acknowledged (crash or broker error between commit and send), so delivery is at-least-once,
+ * like the outbox path. The sweep claims rows for {@code ledger.results.sweep.lease} before
+ * sending them, so with several nodes each straggler is re-sent once per lease, not once per
+ * node. Acknowledged rows are purged after {@code ledger.results.retention}. Records mirror the
+ * Debezium EventRouter output: JSON-string key of the aggregate id, expanded JSON payload and an
+ * {@code id} header.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "ledger.results.publisher", havingValue = "KAFKA")
+public class KafkaResultPublisher implements ResultPublisher {
+
+    private static final String RESULT_TOPIC = "transaction.response";
+    private static final String ID_HEADER = "id";
+    private static final int SWEEP_BATCH_SIZE = 500;
+    private static final int PURGE_BATCH_SIZE = 5_000;
+
+    private final ResultEventRepository resultEventRepository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration sweepGrace;
+    private final Duration sweepLease;
+    private final Duration retention;
+    private final Timer publishLatency;
+    private final ExecutorService markExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public KafkaResultPublisher(
+            ResultEventRepository resultEventRepository,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            MeterRegistry meterRegistry,
+            PlatformTransactionManager transactionManager,
+            @Value("${ledger.results.sweep.grace:10s}") Duration sweepGrace,
+            @Value("${ledger.results.sweep.lease:30s}") Duration sweepLease,
+            @Value("${ledger.results.retention:1h}") Duration retention
+    ) {
+        this.resultEventRepository = resultEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sweepGrace = sweepGrace;
+        this.sweepLease = sweepLease;
+        this.retention = retention;
+        this.publishLatency = Timer.builder("ledger.results.publish.latency")
+                .description("Time from result creation to broker acknowledgement")
+                .tag("mode", "kafka")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        markExecutor.shutdown();
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        List<ResultEvent> rows = events.stream()
+                .map(event -> ResultEvent.builder()
+                        .aggregateId(event.getAggregateId())
+                        .eventType(event.getEventType())
+                        .payload(event.getPayload())
+                        .createdAt(event.getCreatedAt())
+                        .build())
+                .toList();
+
+        resultEventRepository.saveAll(rows);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(rows);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                send(rows);
+            }
+        });
+    }
+
+    /**
+     * Re-sends committed rows that were never acknowledged and that no other node has claimed.
+     */
+    @Scheduled(fixedDelayString = "${ledger.results.sweep.interval:5s}")
+    public void sweepUnpublished() {
+        List<ResultEvent> stale = transactionTemplate.execute(_ -> {
+            Instant now = Instant.now();
+            List<ResultEvent> locked = resultEventRepository.lockUnclaimed(now.minus(sweepGrace), now, SWEEP_BATCH_SIZE);
+
+            if (!locked.isEmpty()) {
+                resultEventRepository.claim(locked.stream().map(ResultEvent::getId).toList(), now.plus(sweepLease));
+            }
+            return locked;
+        });
+
+        if (stale == null || stale.isEmpty()) {
+            return;
+        }
+
+        log.warn("Re-sending {} unpublished result events", stale.size());
+        send(stale);
+    }
+
+    /**
+     * Deletes acknowledged rows older than the retention, in bounded batches.
+     */
+    @Scheduled(fixedDelayString = "${ledger.results.purge.interval:1m}")
+    public void purgePublished() {
+        Instant publishedBefore = Instant.now().minus(retention);
+        long purged = 0;
+        int deleted;
+
+        do {
+            deleted = resultEventRepository.purgePublished(publishedBefore, PURGE_BATCH_SIZE);
+            purged += deleted;
+        } while (deleted == PURGE_BATCH_SIZE);
+
+        if (purged > 0) {
+            log.info("Purged {} published result events", purged);
+        }
+    }
+
+    private void send(List<ResultEvent> rows) {
+        List<CompletableFuture<UUID>> sends = new ArrayList<>(rows.size());
+
+        for (ResultEvent row : rows) {
+            ProducerRecord<String, Object> producerRecord = new ProducerRecord<>(
+                    RESULT_TOPIC, "\"" + row.getAggregateId() + "\"", row.getPayload());
+            producerRecord.headers().add(ID_HEADER, row.getId().toString().getBytes(StandardCharsets.UTF_8));
+
+            sends.add(kafkaTemplate.send(producerRecord).thenApply(_ -> {
+                publishLatency.record(Duration.between(row.getCreatedAt(), Instant.now()));
+                return row.getId();
+            }));
+        }
+
+        // Stamp acknowledged rows off the producer I/O thread; failed ones stay for the sweep
+        CompletableFuture.allOf(sends.stream().map(f -> f.exceptionally(_ -> null)).toArray(CompletableFuture[]::new))
+                .thenRunAsync(() -> markAcknowledged(sends), markExecutor);
+    }
+
+    private void markAcknowledged(List<CompletableFuture<UUID>> sends) {
+        List<UUID> acknowledged = sends.stream()
+                .filter(future -> !future.isCompletedExceptionally())
+                .map(CompletableFuture::join)
+                .toList();
+
+        if (acknowledged.size() < sends.size()) {
+            log.warn("{} result events were not acknowledged; left for the sweep", sends.size() - acknowledged.size());
+        }
+
+        if (acknowledged.isEmpty()) {
+            return;
+        }
+
+        try {
+            resultEventRepository.markPublished(acknowledged, Instant.now());
+        } catch (Exception e) {
+            log.error("Failed to mark {} result events as published; they will be re-sent", acknowledged.size(), e);
+        }
+    }
+
+}
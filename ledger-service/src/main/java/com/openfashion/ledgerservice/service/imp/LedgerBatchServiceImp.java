@@ -3,20 +3,34 @@ package com.openfashion.ledgerservice.service.imp;
 import com.openfashion.ledgerservice.core.util.MoneyUtil;
 import com.openfashion.ledgerservice.dto.TransactionRequest;
 import com.openfashion.ledgerservice.dto.event.TransactionResultEvent;
+import com.openfashion.ledgerservice.dto.redis.Settlement;
+import com.openfashion.ledgerservice.dto.redis.StreamEnvelope;
 import com.openfashion.ledgerservice.model.*;
 import com.openfashion.ledgerservice.repository.*;
 import com.openfashion.ledgerservice.service.LedgerBatchService;
 import com.openfashion.ledgerservice.service.RedisService;
+import com.openfashion.ledgerservice.service.ResultPublisher;
 import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import tools.jackson.databind.ObjectMapper;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -27,13 +41,16 @@ import java.util.stream.IntStream;
  * <p>This service:
  * <ul>
  *   <li>warms Redis snapshots from Postgres on startup,</li>
- *   <li>persists transactions/postings/outbox events in batch,</li>
+ *   <li>persists transactions/postings in batch and hands result events to the configured publisher,</li>
  *   <li>updates account balances in Postgres,</li>
- *   <li>reconciles confirmed balance deltas back into Redis.</li>
+ *   <li>reconciles confirmed balance deltas back into Redis, retrying the ones that failed.</li>
  * </ul>
+ *
+ * <p>A batch holds the settlement guard of its accounts in an outer transaction that stays open
+ * until Redis has settled the batch, while the batch itself commits in an inner one. Each
+ * persistence worker therefore holds two pooled connections at a time.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class LedgerBatchServiceImp implements LedgerBatchService {
 
@@ -41,35 +58,192 @@ public class LedgerBatchServiceImp implements LedgerBatchService {
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
     private final PostingRepository postingRepository;
-    private final OutboxRepository outboxRepository;
+    private final ResultPublisher resultPublisher;
     private final TransactionBatchRepository transactionBatchRepository;
+    private final AccountSnapshotRepository accountSnapshotRepository;
+    private final SettlementRepository settlementRepository;
+    private final TransactionTemplate guardTemplate;
+    private final TransactionTemplate writeTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private static final long WARMUP_PROGRESS_EVERY = 100_000;
+    private static final int SETTLEMENT_SWEEP_BATCH_SIZE = 100;
+
+    @Value("${ledger.redis.warmup.enabled:true}")
+    private boolean warmupEnabled;
+
+    @Value("${ledger.redis.warmup.fetch-size:5000}")
+    private int warmupFetchSize;
+
+    @Value("${ledger.redis.warmup.chunk-size:1000}")
+    private int warmupChunkSize;
+
+    @Value("${ledger.redis.warmup.writers:4}")
+    private int warmupWriters;
+
+    @Value("${ledger.settlement.sweep.grace:30s}")
+    private Duration settlementSweepGrace;
+
+    public LedgerBatchServiceImp(
+            RedisService redisService,
+            AccountRepository accountRepository,
+            TransactionRepository transactionRepository,
+            PostingRepository postingRepository,
+            ResultPublisher resultPublisher,
+            TransactionBatchRepository transactionBatchRepository,
+            AccountSnapshotRepository accountSnapshotRepository,
+            SettlementRepository settlementRepository,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.redisService = redisService;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.postingRepository = postingRepository;
+        this.resultPublisher = resultPublisher;
+        this.transactionBatchRepository = transactionBatchRepository;
+        this.accountSnapshotRepository = accountSnapshotRepository;
+        this.settlementRepository = settlementRepository;
+        this.guardTemplate = new TransactionTemplate(transactionManager);
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.writeTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
 
     /**
      * Warms Redis account snapshot cache from current Postgres accounts.
+     *
+     * <p>Balances are streamed through a JDBC cursor and written as pipelined {@code HSETNX}
+     * chunks by {@code ledger.redis.warmup.writers} parallel writers; at most two chunks per writer
+     * are held in memory. This runs during bean initialization, before the ingestion listener
+     * starts and before the application reports readiness, so no request is checked against a
+     * missing snapshot. A failed write aborts startup, as before.
+     *
+     * <p>Staging hydrates missing snapshots on demand, so with {@code ledger.redis.warmup.enabled=false}
+     * the service starts cold and only loads the accounts it actually sees.
      */
     @PostConstruct
     public void warmRedisCache() {
+        if (!warmupEnabled) {
+            log.info("Redis snapshot warm-up disabled; snapshots are hydrated on first use");
+            return;
+        }
+
         log.info("Warming Redis DB Snapshot cache from Postgres");
 
-        List<Account> allAccounts = accountRepository.findAll();
-        for (Account acc : allAccounts) {
-            redisService.initializeSnapshotIfMissing(acc);
+        long start = System.nanoTime();
+        LongAdder written = new LongAdder();
+        AtomicLong warmed = new AtomicLong();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Semaphore inFlight = new Semaphore(warmupWriters * 2);
+        long read;
+
+        try (ExecutorService writers = Executors.newFixedThreadPool(warmupWriters, Thread.ofPlatform().name("ledger-warmup-", 0).factory())) {
+            read = accountSnapshotRepository.streamBalances(warmupFetchSize, warmupChunkSize, chunk -> {
+                // Stops the cursor early; the writers still drain before the executor closes
+                if (failure.get() != null) {
+                    throw new IllegalStateException("Redis snapshot warm-up failed", failure.get());
+                }
+
+                inFlight.acquireUninterruptibly();
+                writers.execute(() -> {
+                    try {
+                        written.add(redisService.initializeSnapshotsIfMissing(chunk));
+                        reportWarmupProgress(warmed.addAndGet(chunk.size()), chunk.size(), start);
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            });
         }
 
-        log.info("Warmed {} accounts into Redis", allAccounts.size());
+        if (failure.get() != null) {
+            throw new IllegalStateException("Redis snapshot warm-up failed", failure.get());
+        }
+
+        log.info("Warmed {} accounts into Redis ({} new snapshots) in {} ms",
+                read, written.sum(), Duration.ofNanos(System.nanoTime() - start).toMillis());
     }
 
+    /**
+     * Logs roughly every {@code WARMUP_PROGRESS_EVERY} accounts.
+     */
+    private void reportWarmupProgress(long warmed, int chunkSize, long start) {
+        if (warmed / WARMUP_PROGRESS_EVERY != (warmed - chunkSize) / WARMUP_PROGRESS_EVERY) {
+            long elapsedMillis = Math.max(1, Duration.ofNanos(System.nanoTime() - start).toMillis());
+            log.info("Redis warm-up progress: {} accounts ({} accounts/s)", warmed, warmed * 1000 / elapsedMillis);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The guard is taken before the inner transaction writes and released when the outer one
+     * ends, after the Redis settle, however either of them ends. Settling before the commit would
+     * let a hydration read Postgres without a change whose pending delta is already gone.
+     */
     @Override
-    @Transactional
-    public void saveTransactions(List<TransactionRequest> batch) {
+    public void saveTransactions(List<StreamEnvelope<TransactionRequest>> batch) {
         Set<UUID> accountIds = new HashSet<>();
-        for (TransactionRequest req : batch) {
-            accountIds.add(req.getDebitAccountId());
-            accountIds.add(req.getCreditAccountId());
+        for (StreamEnvelope<TransactionRequest> envelope : batch) {
+            accountIds.add(envelope.data().getDebitAccountId());
+            accountIds.add(envelope.data().getCreditAccountId());
+        }
+
+        guardTemplate.executeWithoutResult(_ -> {
+            settlementRepository.holdSettlementGuard(accountIds);
+
+            Settlement settlement = writeTemplate.execute(_ -> persist(batch, accountIds));
+            if (settlement != null) {
+                settle(settlement);
+            }
+        });
+
+        log.info("Persisted batch of {} transactions to Postgres.", batch.size());
+    }
+
+    /**
+     * Retries the Redis settle of committed batches whose settle failed, under their settlement guard.
+     *
+     * <p>Settlements stay locked while they are applied, so with several nodes each one is retried
+     * by a single node. A settlement that did land before its record was deleted changes nothing.
+     */
+    @Scheduled(fixedDelayString = "${ledger.settlement.sweep.interval:5s}")
+    public void retryPendingSettlements() {
+        List<UUID> settled = guardTemplate.execute(_ -> {
+            List<Settlement> stale = settlementRepository.lockStale(
+                    Instant.now().minus(settlementSweepGrace), SETTLEMENT_SWEEP_BATCH_SIZE);
+
+            if (stale.isEmpty()) {
+                return List.of();
+            }
+
+            settlementRepository.holdSettlementGuard(stale.stream()
+                    .flatMap(settlement -> settlement.accountIds().stream())
+                    .collect(Collectors.toSet()));
+
+            List<UUID> applied = new ArrayList<>();
+            for (Settlement settlement : stale) {
+                try {
+                    redisService.settle(settlement);
+                    applied.add(settlement.id());
+                } catch (Exception e) {
+                    log.warn("Redis settle of {} committed batches still failing; retrying later",
+                            stale.size() - applied.size(), e);
+                    break;
+                }
+            }
+
+            settlementRepository.delete(applied);
+            return applied;
+        });
+
+        if (settled != null && !settled.isEmpty()) {
+            log.warn("Settled {} committed batches whose Redis settle had failed", settled.size());
         }
+    }
 
+    private Settlement persist(List<StreamEnvelope<TransactionRequest>> batch, Set<UUID> accountIds) {
         Map<UUID, Account> accountMap = accountRepository.findAllById(accountIds).stream()
                 .collect(Collectors.toMap(Account::getId, acc -> acc));
 
@@ -77,7 +251,8 @@ public class LedgerBatchServiceImp implements LedgerBatchService {
         List<Posting> postings = new ArrayList<>();
         List<OutboxEvent> outboxEvents = new ArrayList<>();
 
-        for (TransactionRequest req : batch) {
+        for (StreamEnvelope<TransactionRequest> envelope : batch) {
+            TransactionRequest req = envelope.data();
             Account debitAcc = accountMap.get(req.getDebitAccountId());
             Account creditAcc = accountMap.get(req.getCreditAccountId());
 
@@ -87,6 +262,7 @@ public class LedgerBatchServiceImp implements LedgerBatchService {
             }
 
             Transaction tx = createTransaction(req, TransactionStatus.POSTED);
+            tx.setStagingId(envelope.streamKey() + "/" + envelope.streamId());
 
             transactions.add(tx);
 
@@ -105,10 +281,7 @@ public class LedgerBatchServiceImp implements LedgerBatchService {
             outboxEvents.add(createOutboxEvent(req, debitAcc.getId(), resultEvent));
         }
 
-        processBatch(transactions, postings, outboxEvents);
-
-
-        log.info("Persisted batch of {} transactions to Postgres.", batch.size());
+        return processBatch(transactions, postings, outboxEvents);
     }
 
     @Override
@@ -180,10 +353,15 @@ public class LedgerBatchServiceImp implements LedgerBatchService {
                 .map(outboxEvents::get)
                 .toList();
 
-        outboxRepository.saveAll(insertedOutboxEvents);
+        resultPublisher.publish(insertedOutboxEvents);
     }
 
-    public void processBatch(List<Transaction> transactions, List<Posting> postings, List<OutboxEvent> outboxEvents) {
+    /**
+     * Writes the batch and records its Redis settlement in the same transaction.
+     *
+     * @return the recorded settlement, or {@code null} when the batch changes nothing in Redis
+     */
+    public Settlement processBatch(List<Transaction> transactions, List<Posting> postings, List<OutboxEvent> outboxEvents) {
 
         int[] upsertResult = transactionBatchRepository.upsertTransactions(transactions);
 
@@ -194,15 +372,24 @@ public class LedgerBatchServiceImp implements LedgerBatchService {
                 .toList();
 
 
-        if (successfulIndices.isEmpty()) {
-            log.info("Entire batch was already processed. Skipping downstream updates.");
-            return;
-        }
-
         Set<UUID> successfulReferenceIds = successfulIndices.stream()
                 .map(i -> transactions.get(i).getReferenceId())
                 .collect(Collectors.toSet());
 
+        // Replays older than the Redis idempotency window were staged; undo their pending deltas
+        Set<Transaction> replays = replays(IntStream.range(0, upsertResult.length)
+                .filter(i -> upsertResult[i] <= 0)
+                .mapToObj(transactions::get)
+                .toList());
+        Map<UUID, BigDecimal> replayed = netChanges(postings.stream()
+                .filter(p -> replays.contains(p.getTransaction()))
+                .toList());
+
+        if (successfulIndices.isEmpty()) {
+            log.info("Entire batch was already processed. Skipping downstream updates.");
+            return recordSettlement(Map.of(), replayed);
+        }
+
         List<Posting> filteredPostings = postings.stream()
                 .filter(p -> successfulReferenceIds.contains(p.getTransaction().getReferenceId()))
                 .toList();
@@ -213,12 +400,81 @@ public class LedgerBatchServiceImp implements LedgerBatchService {
                 .map(outboxEvents::get)
                 .toList();
 
-        log.info("Saving {} outbox events for {} successful transactions", filteredEvents.size(), successfulIndices.size());
-        outboxRepository.saveAll(filteredEvents);
+        log.info("Publishing {} result events for {} successful transactions", filteredEvents.size(), successfulIndices.size());
+        resultPublisher.publish(filteredEvents);
 
         transactionBatchRepository.updateAccountBalances(filteredPostings);
 
-        Map<UUID, BigDecimal> confirmedChanges = filteredPostings.stream()
+        return recordSettlement(netChanges(filteredPostings), replayed);
+    }
+
+    private Settlement recordSettlement(Map<UUID, BigDecimal> committed, Map<UUID, BigDecimal> released) {
+        Settlement settlement = new Settlement(UUID.randomUUID(), committed, released);
+        if (settlement.isEmpty()) {
+            return null;
+        }
+
+        settlementRepository.save(settlement);
+        return settlement;
+    }
+
+    /**
+     * Picks the transactions that hit an existing row because Redis staged them again after their
+     * idempotency key expired.
+     *
+     * <p>A stream entry redelivered after its commit (a lost ack, a reclaim, a partition handoff)
+     * finds its own staging id on that row. Its pending delta was settled with the commit, so
+     * releasing it again would inflate the debit account's available balance.
+     */
+    private Set<Transaction> replays(List<Transaction> conflicting) {
+        if (conflicting.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<UUID> referenceIds = conflicting.stream()
+                .map(Transaction::getReferenceId)
+                .collect(Collectors.toSet());
+
+        // Rejections and rows older than the staging id carry none, and always count as replays
+        Map<String, String> committedStagingIds = new HashMap<>();
+        for (Transaction committed : transactionRepository.findAllByReferenceIdIn(referenceIds)) {
+            committedStagingIds.put(signature(committed), committed.getStagingId());
+        }
+
+        // By identity: entity equality compares every field
+        Set<Transaction> replays = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Transaction tx : conflicting) {
+            if (!Objects.equals(committedStagingIds.get(signature(tx)), tx.getStagingId())) {
+                replays.add(tx);
+            }
+        }
+        return replays;
+    }
+
+    private static String signature(Transaction tx) {
+        return tx.getReferenceId().toString() + "_" + tx.getType().name();
+    }
+
+    /**
+     * Settles a committed batch in Redis and drops its settlement record.
+     *
+     * <p>A failed settle leaves the record for {@link #retryPendingSettlements}: the batch is
+     * committed, and redelivering it would not settle it again.
+     */
+    private void settle(Settlement settlement) {
+        try {
+            redisService.settle(settlement);
+        } catch (Exception e) {
+            log.error("Failed to settle committed batch {} in Redis ({} accounts); left for the settlement sweep",
+                    settlement.id(), settlement.accountIds().size(), e);
+            return;
+        }
+
+        settlementRepository.delete(List.of(settlement.id()));
+    }
+
+    private Map<UUID, BigDecimal> netChanges(List<Posting> postings) {
+        return postings.stream()
                 .collect(Collectors.groupingBy(
                         p -> p.getAccount().getId(),
                         Collectors.reducing(
@@ -227,8 +483,6 @@ public class LedgerBatchServiceImp implements LedgerBatchService {
                                 BigDecimal::add
                         )
                 ));
-
-        redisService.syncRedisBalances(confirmedChanges);
     }
 
     private OutboxEvent createOutboxEvent(TransactionRequest req, UUID aggregateKey, TransactionResultEvent resultEvent) {
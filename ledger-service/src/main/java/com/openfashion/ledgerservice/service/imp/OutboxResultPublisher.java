@@ -0,0 +1,31 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.model.OutboxEvent;
+import com.openfashion.ledgerservice.repository.OutboxRepository;
+import com.openfashion.ledgerservice.service.ResultPublisher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Default publisher: writes {@code outbox_events} rows that Debezium routes to
+ * {@code transaction.response} after commit.
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "ledger.results.publisher", havingValue = "OUTBOX", matchIfMissing = true)
+public class OutboxResultPublisher implements ResultPublisher {
+
+    private final OutboxRepository outboxRepository;
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        outboxRepository.saveAll(events);
+    }
+}
@@ -1,28 +1,55 @@
 package com.openfashion.ledgerservice.service.imp;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openfashion.ledgerservice.core.redis.RedisFieldCodec;
+import com.openfashion.ledgerservice.core.redis.RedisKeyspace;
+import com.openfashion.ledgerservice.core.redis.TransactionRequestCodec;
 import com.openfashion.ledgerservice.core.util.MoneyUtil;
 import com.openfashion.ledgerservice.dto.TransactionRequest;
-import com.openfashion.ledgerservice.dto.consumer.BatchToken;
+import com.openfashion.ledgerservice.dto.consumer.StagedBatch;
 import com.openfashion.ledgerservice.dto.redis.AckResult;
+import com.openfashion.ledgerservice.dto.redis.BalanceSnapshot;
+import com.openfashion.ledgerservice.dto.redis.DurabilityRequirement;
+import com.openfashion.ledgerservice.dto.redis.Settlement;
 import com.openfashion.ledgerservice.dto.redis.StreamEnvelope;
-import com.openfashion.ledgerservice.model.Account;
+import com.openfashion.ledgerservice.dto.redis.StreamLag;
+import com.openfashion.ledgerservice.dto.redis.TrimResult;
+import com.openfashion.ledgerservice.repository.AccountSnapshotRepository;
 import com.openfashion.ledgerservice.service.RedisService;
 import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.output.ArrayOutput;
+import io.lettuce.core.output.IntegerOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.protocol.ProtocolKeyword;
 import jakarta.annotation.PostConstruct;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.serializer.support.SerializationFailedException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -32,14 +59,19 @@ import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 /**
  * Redis-backed implementation of ledger staging and stream orchestration.
  *
  * <p>Responsibilities:
  * <ul>
- *   <li>execute Lua scripts for atomic idempotency and NSF checks,</li>
- *   <li>append accepted requests to {@code ledger:stream:tx},</li>
+ *   <li>execute chunked Lua scripts for atomic idempotency and NSF checks,</li>
+ *   <li>append accepted requests to the {@code ledger:stream:tx} partition of their debit account,</li>
  *   <li>manage consumer-group read/claim/ack and DLQ handoff,</li>
  *   <li>track batch completion metadata and done notifications,</li>
  *   <li>sync Redis balance snapshots after confirmed DB persistence.</li>
@@ -51,37 +83,95 @@ import java.util.*;
 public class RedisServiceImp implements RedisService {
 
     private final RedisTemplate<String, String> balanceTemplate;
-    private final ObjectMapper objectMapper = new ObjectMapper();
-
-    private static final String IDEMPOTENCY_KEY = "ledger:idempotency:set";
-    private static final String DB_SNAPSHOT_KEY = "ledger:db:snapshot";
-    private static final String PENDING_DELTA_KEY = "ledger:pending:delta";
+    private final RedisTemplate<String, byte[]> streamTemplate;
+    private final BatchCompletionDispatcher batchCompletionDispatcher;
+    private final TransactionRequestCodec codec;
+    private final RedisFieldCodec fieldCodec;
+    private final RedisKeyspace keyspace;
+    private final AccountSnapshotRepository accountSnapshotRepository;
+
+    // Idempotency keys live in time-bucketed sets that expire after the lookback window
+    private static final String IDEMPOTENCY_BUCKET_PREFIX = "ledger:idempotency:";
+    private static final String CREDIT_IDEMPOTENCY_BUCKET_PREFIX = "ledger:idempotency:credit:";
+    private static final String LEGACY_IDEMPOTENCY_KEY = "ledger:idempotency:set";
+    // Balances are integer minor units (scale 4); the legacy decimal hashes are migrated on startup
+    private static final String DB_SNAPSHOT_KEY = "ledger:db:snapshot:minor";
+    private static final String PENDING_DELTA_KEY = "ledger:pending:delta:minor";
+    private static final String LEGACY_DB_SNAPSHOT_KEY = "ledger:db:snapshot";
+    private static final String LEGACY_PENDING_DELTA_KEY = "ledger:pending:delta";
+    private static final int MAX_HYDRATION_ATTEMPTS = 3;
+    private static final int MIGRATION_CHUNK = 500;
+    // Records which field encoding the balance hashes and idempotency sets use
+    private static final String KEY_ENCODING_KEY = "ledger:keys:encoding";
+    private static final String BINARY_ENCODING = "binary";
 
     private static final String STREAM_KEY = "ledger:stream:tx";
     private static final String STREAM_GROUP = "ledger-stream-group";
     private static final String DLQ_STREAM_KEY = "ledger:stream:tx:dlq";
+    // Cross-shard credits waiting to be applied on their credit shard
+    private static final String CREDIT_FOLLOW_UP_STREAM = "ledger:stream:credit";
     private static final String BATCH_META_PREFIX = "ledger:batch:meta:";
+    // Settlement ids already applied, per shard
+    private static final String SETTLEMENT_MARKER_PREFIX = "ledger:settlement:";
     private static final String BATCH_DONE_STREAM = "ledger:stream:batch:done";
     private static final Duration BATCH_META_TTL = Duration.ofMinutes(10);
+    // Client-side grace on top of the WAIT timeout Redis itself enforces
+    private static final Duration DURABILITY_REPLY_SLACK = Duration.ofSeconds(1);
+
+    // Staging script chunk modes: plain chunk, last chunk (seals), re-run of requests that missed a snapshot
+    private static final String CHUNK_PLAIN = "0";
+    private static final String CHUNK_LAST = "1";
+    private static final String CHUNK_RETRY = "2";
 
     private static final String BATCH_ID_FIELD = "batchId";
-    private static final String STATUS_FIELD = "status";
-    private static final String DONE_STATUS = "DONE";
-    private static final Duration MAX_AWAIT_BLOCK_SLICE = Duration.ofSeconds(1);
+    // XAUTOCLAIM scan position of each stream partition, in the partition's hash slot
+    private static final String CLAIM_CURSOR_SUFFIX = ":claim-cursor";
+    private static final Duration CLAIM_CURSOR_TTL = Duration.ofHours(1);
 
     private String consumerName;
     private static final String PAYLOAD = "payload";
 
+    @Value("${ledger.redis.staging.chunk-size:100}")
+    private int stagingChunkSize;
+
+    @Value("${ledger.redis.idempotency.bucket:1h}")
+    private Duration idempotencyBucket;
+
+    @Value("${ledger.redis.idempotency.lookback:24h}")
+    private Duration idempotencyLookback;
+
+    @Value("${ledger.redis.keys.encoding-check-interval:1s}")
+    private Duration encodingCheckInterval;
+
+    @Value("${ledger.redis.settlement.marker-ttl:24h}")
+    private Duration settlementMarkerTtl;
+
+    // Cached result of the last read of the recorded key encoding
+    private volatile boolean encodingMatches;
+    private volatile long nextEncodingCheckNanos = System.nanoTime();
+
     private static final String MARK_PROGRESS_SCRIPT = """
             -- KEYS[1]=batchMetaKey, KEYS[2]=batchDoneStream
-            -- ARGV[1]=batchId, ARGV[2]=ackedCount
+            -- ARGV[1]=batchId, ARGV[2]=ackedCount, ARGV[3]=metaTtlSeconds
             local processed = tonumber(redis.call('HINCRBY', KEYS[1], 'processed', ARGV[2]))
+            redis.call('EXPIRE', KEYS[1], ARGV[3])
+            
+            -- Expected is only final once the last staging chunk has sealed the batch
+            if redis.call('HGET', KEYS[1], 'sealed') ~= '1' then
+                return 0
+            end
+            
+            -- Requests waiting for a snapshot hydration will still add to expected
+            if tonumber(redis.call('HGET', KEYS[1], 'misses') or '0') > 0 then
+                return 0
+            end
+            
             local expected = tonumber(redis.call('HGET', KEYS[1], 'expected') or '0')
             local status = redis.call('HGET', KEYS[1], 'status') or 'PENDING'
             
-            if expected > 0 and processed >= expected and status ~= 'DONE' then
+            if processed >= expected and status ~= 'DONE' then
                 redis.call('HSET', KEYS[1], 'status', 'DONE')
-                redis.call('XADD', KEYS[2], '*', 'MAXLEN', '~', '20000', '*',
+                redis.call('XADD', KEYS[2], 'MAXLEN', '~', '20000', '*',
                     'batchId', ARGV[1],
                     'status', 'DONE',
                     'processed', tostring(processed),
@@ -92,16 +182,349 @@ public class RedisServiceImp implements RedisService {
             return 0
             """;
 
-    private static final String SET_EXPECTED_SCRIPT = """
+    /**
+     * Stages one chunk of packed requests in order and maintains the batch meta hash.
+     *
+     * <p>KEYS: DB snapshot, pending delta, batch meta hash, batch done stream, credit follow-up
+     * stream, the shard's tx stream partitions, the current idempotency bucket, then the next and
+     * the older buckets of the lookback window, all on the debit shard. ARGV[1] is the batch id, ARGV[2] the
+     * meta TTL in seconds, ARGV[3] the chunk mode ({@code 0} plain, {@code 1} last chunk, which
+     * seals the batch, {@code 2} re-run of missed requests), ARGV[4] the idempotency bucket TTL
+     * in seconds, ARGV[5] the number of stream partitions, followed by eight fields per request:
+     * idempotency key, debit account, amount, credit account, payload, NSF-check flag, {@code 1}
+     * when the credit account lives on the same shard, and the stream partition. A credit on
+     * another shard is not applied here; it is appended to the credit follow-up stream, from which
+     * {@link #relayCreditFollowUps(int)} applies it on the credit shard.
+     *
+     * <p>Amounts and balances are integer minor units, updated with {@code HINCRBY}; Lua compares
+     * them as doubles, so every value is kept within 2^53. Returns one character per request:
+     * {@code O} (accepted), {@code D} (duplicate), {@code N} (insufficient funds), {@code V}
+     * (would leave the exact range) or {@code M} (NSF check needed a debit snapshot that is not
+     * in Redis). Missed requests are counted in the meta hash's {@code misses} field, which keeps
+     * the batch from completing until a re-run chunk has taken them back out.
+     */
+    private static final String LEDGER_BATCH_SCRIPT = """
+            local batch_id = ARGV[1]
+            local mode = ARGV[3]
+            local max_safe = 9007199254740991
+            local first_bucket = 6 + tonumber(ARGV[5])
+            local result = {}
+            local accepted = 0
+            local misses = 0
+            
+            local function seen(idem_key)
+                for k = first_bucket, #KEYS do
+                    if redis.call('SISMEMBER', KEYS[k], idem_key) == 1 then
+                        return true
+                    end
+                end
+                return false
+            end
+            
+            redis.call('HSETNX', KEYS[3], 'processed', '0')
+            redis.call('HSETNX', KEYS[3], 'expected', '0')
+            redis.call('HSETNX', KEYS[3], 'status', 'PENDING')
+            
+            if mode == '2' then
+                redis.call('HINCRBY', KEYS[3], 'misses', -((#ARGV - 5) / 8))
+            end
+            
+            for i = 6, #ARGV, 8 do
+                local idem_key = ARGV[i]
+                local debit = ARGV[i + 1]
+                local amount = tonumber(ARGV[i + 2])
+                local credit = ARGV[i + 3]
+                local credit_local = ARGV[i + 6] == '1'
+            
+                if seen(idem_key) then
+                    result[#result + 1] = 'D'
+                else
+                    local debit_delta = tonumber(redis.call('HGET', KEYS[2], debit) or '0')
+                    local credit_delta = 0
+                    if credit_local then
+                        credit_delta = tonumber(redis.call('HGET', KEYS[2], credit) or '0')
+                    end
+                    local overflow = amount > max_safe
+                        or (debit_delta - amount) < -max_safe
+                        or (credit_delta + amount) > max_safe
+                    local nsf = false
+                    local missing = false
+            
+                    if not overflow and ARGV[i + 5] == '1' then
+                        local db_bal = redis.call('HGET', KEYS[1], debit)
+                        if db_bal then
+                            nsf = (tonumber(db_bal) + debit_delta - amount) < 0
+                        else
+                            missing = true
+                        end
+                    end
+            
+                    if overflow then
+                        result[#result + 1] = 'V'
+                    elseif missing then
+                        result[#result + 1] = 'M'
+                        misses = misses + 1
+                    elseif nsf then
+                        result[#result + 1] = 'N'
+                    else
+                        -- Pass the original integer strings; Lua would format large numbers as floats
+                        redis.call('HINCRBY', KEYS[2], debit, '-' .. ARGV[i + 2])
+                        if credit_local then
+                            redis.call('HINCRBY', KEYS[2], credit, ARGV[i + 2])
+                        else
+                            redis.call('XADD', KEYS[5], '*', 'idempotencyKey', idem_key, 'credit', credit, 'amount', ARGV[i + 2])
+                        end
+                        redis.call('SADD', KEYS[first_bucket], idem_key)
+                        redis.call('XADD', KEYS[6 + tonumber(ARGV[i + 7])], '*',
+                            'payload', ARGV[i + 4], 'idempotencyKey', idem_key, 'batchId', batch_id)
+                        result[#result + 1] = 'O'
+                        accepted = accepted + 1
+                    end
+                end
+            end
+            
+            if accepted > 0 then
+                redis.call('EXPIRE', KEYS[first_bucket], ARGV[4])
+            end
+            
+            local outstanding = tonumber(redis.call('HINCRBY', KEYS[3], 'misses', misses))
+            local expected = tonumber(redis.call('HINCRBY', KEYS[3], 'expected', accepted))
+            redis.call('EXPIRE', KEYS[3], ARGV[2])
+            
+            if mode ~= '0' then
+                redis.call('HSET', KEYS[3], 'sealed', '1')
+            
+                -- Entries of earlier chunks may already be persisted before the seal
+                local processed = tonumber(redis.call('HGET', KEYS[3], 'processed') or '0')
+                if outstanding == 0 and processed >= expected and redis.call('HGET', KEYS[3], 'status') ~= 'DONE' then
+                    redis.call('HSET', KEYS[3], 'status', 'DONE')
+                    redis.call('XADD', KEYS[4], 'MAXLEN', '~', '20000', '*',
+                        'batchId', batch_id,
+                        'status', 'DONE',
+                        'processed', tostring(processed),
+                        'expected', tostring(expected))
+                end
+            end
+            
+            return table.concat(result)
+            """;
+
+    /**
+     * Applies relayed cross-shard credits on the credit shard, at most once per idempotency key.
+     *
+     * <p>KEYS: pending delta, the current credit idempotency bucket, then the next and the older
+     * buckets of the lookback window. ARGV[1] is the bucket TTL in seconds, followed by triples of idempotency key,
+     * credit account and amount. Returns the number of credits applied.
+     */
+    private static final String CREDIT_FOLLOW_UP_SCRIPT = """
+            local applied = 0
+            
+            for i = 2, #ARGV, 3 do
+                local seen = false
+                for k = 2, #KEYS do
+                    if redis.call('SISMEMBER', KEYS[k], ARGV[i]) == 1 then
+                        seen = true
+                        break
+                    end
+                end
+            
+                if not seen then
+                    redis.call('HINCRBY', KEYS[1], ARGV[i + 1], ARGV[i + 2])
+                    redis.call('SADD', KEYS[2], ARGV[i])
+                    applied = applied + 1
+                end
+            end
+            
+            if applied > 0 then
+                redis.call('EXPIRE', KEYS[2], ARGV[1])
+            end
+            
+            return applied
+            """;
+
+    /**
+     * Claims idle pending entries with {@code XAUTOCLAIM}, resuming from the partition's cursor.
+     *
+     * <p>KEYS: stream partition, its claim cursor. ARGV: group, consumer, min idle millis, count,
+     * cursor TTL seconds. Each call scans at most a bounded slice of the pending list and stores
+     * where it stopped, so reclaim cost does not grow with the size of the list. Returns the next
+     * cursor, the claimed entries as {id, delivery count, fields} (the count already includes this
+     * claim), and the ids of entries that were deleted from the stream while pending. Redis 7
+     * drops those from the pending list itself; older servers return them with nil fields, and
+     * they are acknowledged here.
+     */
+    private static final String CLAIM_STALE_SCRIPT = """
+            local cursor = redis.call('GET', KEYS[2]) or '0-0'
+            local reply = redis.call('XAUTOCLAIM', KEYS[1], ARGV[1], ARGV[2], ARGV[3], cursor, 'COUNT', ARGV[4])
+            redis.call('SET', KEYS[2], reply[1], 'EX', ARGV[5])
+            
+            local claimed = {}
+            local deleted = reply[3] or {}
+            
+            for _, entry in ipairs(reply[2]) do
+                local id = entry[1]
+                local fields = entry[2]
+            
+                if not fields then
+                    redis.call('XACK', KEYS[1], ARGV[1], id)
+                    deleted[#deleted + 1] = id
+                else
+                    local pending = redis.call('XPENDING', KEYS[1], ARGV[1], id, id, 1)
+                    local deliveries = 1
+                    if pending[1] then
+                        deliveries = pending[1][4]
+                    end
+                    claimed[#claimed + 1] = {id, deliveries, fields}
+                end
+            end
+            
+            return {reply[1], claimed, deleted}
+            """;
+
+    /**
+     * Trims a stream below the oldest entry any consumer group still needs.
+     *
+     * <p>KEYS[1] is the stream. For every group the bound is its oldest pending id, or the id right
+     * after its last delivered one when nothing is pending; the stream is trimmed with
+     * {@code XTRIM MINID} to the lowest bound. A stream without groups is left alone. Returns the
+     * number of entries removed and {@code MEMORY USAGE} before and after.
+     */
+    private static final String TRIM_ACKNOWLEDGED_SCRIPT = """
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return {0, 0, 0}
+            end
+            
+            local function parse(id)
+                local dash = string.find(id, '-', 1, true)
+                return tonumber(string.sub(id, 1, dash - 1)), tonumber(string.sub(id, dash + 1))
+            end
+            
+            local function lower(a, b)
+                local a_ms, a_seq = parse(a)
+                local b_ms, b_seq = parse(b)
+                return a_ms < b_ms or (a_ms == b_ms and a_seq < b_seq)
+            end
+            
+            local min_id = nil
+            
+            for _, group in ipairs(redis.call('XINFO', 'GROUPS', KEYS[1])) do
+                local info = {}
+                for f = 1, #group, 2 do
+                    info[group[f]] = group[f + 1]
+                end
+            
+                local bound
+                if tonumber(info['pending']) > 0 then
+                    bound = redis.call('XPENDING', KEYS[1], info['name'])[2]
+                else
+                    local last = info['last-delivered-id']
+                    local dash = string.find(last, '-', 1, true)
+                    local _, seq = parse(last)
+                    bound = string.sub(last, 1, dash) .. tostring(seq + 1)
+                end
+            
+                if min_id == nil or lower(bound, min_id) then
+                    min_id = bound
+                end
+            end
+            
+            if min_id == nil then
+                return {0, 0, 0}
+            end
+            
+            local before = redis.call('MEMORY', 'USAGE', KEYS[1]) or 0
+            local trimmed = redis.call('XTRIM', KEYS[1], 'MINID', min_id)
+            local after = redis.call('MEMORY', 'USAGE', KEYS[1]) or 0
+            return {trimmed, before, after}
+            """;
+
+    /**
+     * Applies age and length retention to a stream.
+     *
+     * <p>KEYS[1] is the stream. ARGV[1] is the lowest id to keep, ARGV[2] the maximum length.
+     * Returns the number of entries removed and {@code MEMORY USAGE} before and after.
+     */
+    private static final String TRIM_RETENTION_SCRIPT = """
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return {0, 0, 0}
+            end
+            
+            local before = redis.call('MEMORY', 'USAGE', KEYS[1]) or 0
+            local trimmed = redis.call('XTRIM', KEYS[1], 'MINID', ARGV[1])
+                + redis.call('XTRIM', KEYS[1], 'MAXLEN', ARGV[2])
+            local after = redis.call('MEMORY', 'USAGE', KEYS[1]) or 0
+            return {trimmed, before, after}
+            """;
+
+    /**
+     * Counts entries after a consumer group's last delivered id, for servers without group lag.
+     *
+     * <p>KEYS[1] is the stream. ARGV[1] is the last delivered id, ARGV[2] the most entries to count.
+     * Pages through {@code XRANGE} server-side and only returns the count, so no payload leaves
+     * Redis and the scan stops at the limit the caller actually needs to decide on.
+     */
+    private static final String UNDELIVERED_PROBE_SCRIPT = """
+            local limit = tonumber(ARGV[2])
+            local dash = string.find(ARGV[1], '-', 1, true)
+            local start = string.sub(ARGV[1], 1, dash) .. string.format('%d', tonumber(string.sub(ARGV[1], dash + 1)) + 1)
+            local counted = 0
+            
+            while counted < limit do
+                local page = redis.call('XRANGE', KEYS[1], start, '+', 'COUNT', math.min(100, limit - counted))
+                if #page == 0 then
+                    break
+                end
+                counted = counted + #page
+            
+                local last = page[#page][1]
+                local last_dash = string.find(last, '-', 1, true)
+                start = string.sub(last, 1, last_dash) .. string.format('%d', tonumber(string.sub(last, last_dash + 1)) + 1)
+            end
+            
+            return counted
+            """;
+
+    /**
+     * Applies one settlement on one shard, once.
+     *
+     * <p>KEYS: DB snapshot, pending delta, settlement marker. ARGV[1] is the marker TTL in seconds,
+     * followed by triples of account field, minor units committed to Postgres and the change of the
+     * pending delta (committed plus released, negated). Returns 0 when the marker shows the
+     * settlement was already applied.
+     */
+    private static final String SETTLE_SCRIPT = """
+            if not redis.call('SET', KEYS[3], '1', 'NX', 'EX', ARGV[1]) then
+                return 0
+            end
+            
+            for i = 2, #ARGV, 3 do
+                -- Without a snapshot, the next hydration reads the committed change from Postgres
+                if ARGV[i + 1] ~= '0' and redis.call('HEXISTS', KEYS[1], ARGV[i]) == 1 then
+                    redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1])
+                end
+                redis.call('HINCRBY', KEYS[2], ARGV[i], ARGV[i + 2])
+            end
+            
+            return 1
+            """;
+
+    /**
+     * Gives up on the missed requests of a sealed sub-batch whose hydration failed.
+     *
+     * <p>Clears the outstanding misses, which are only ever re-run by the thread that staged the
+     * sub-batch, and completes the sub-batch if everything it accepted is already persisted.
+     */
+    private static final String ABANDON_MISSES_SCRIPT = """
             -- KEYS[1]=batchMetaKey, KEYS[2]=batchDoneStream
-            -- ARGV[1]=batchId, ARGV[2]=expectedCount
-            local expected = tonumber(ARGV[2])
-            redis.call('HSET', KEYS[1], 'expected', ARGV[2])
+            -- ARGV[1]=batchId, ARGV[2]=metaTtlSeconds
+            redis.call('HSET', KEYS[1], 'misses', '0')
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
             
             local processed = tonumber(redis.call('HGET', KEYS[1], 'processed') or '0')
+            local expected = tonumber(redis.call('HGET', KEYS[1], 'expected') or '0')
             local status = redis.call('HGET', KEYS[1], 'status') or 'PENDING'
             
-            if status ~= 'DONE' and (expected == 0 or (expected > 0 and processed >= expected)) then
+            if processed >= expected and status ~= 'DONE' then
                 redis.call('HSET', KEYS[1], 'status', 'DONE')
                 redis.call('XADD', KEYS[2], 'MAXLEN', '~', '20000', '*',
                     'batchId', ARGV[1],
@@ -114,47 +537,88 @@ public class RedisServiceImp implements RedisService {
             return 0
             """;
 
-    private static final String LEDGER_SCRIPT = """
-            if redis.call('SISMEMBER', KEYS[1], ARGV[1]) == 1 then
-                return 'DUPLICATE'
+    /**
+     * Seeds missing snapshot fields with balances read from Postgres.
+     *
+     * <p>KEYS[1] is the DB snapshot. ARGV holds pairs of account field and balance; fields that
+     * are already present are kept. Returns the number of fields seeded.
+     */
+    private static final String HYDRATE_SNAPSHOT_SCRIPT = """
+            local seeded = 0
+            
+            for i = 1, #ARGV, 2 do
+                seeded = seeded + redis.call('HSETNX', KEYS[1], ARGV[i], ARGV[i + 1])
             end
             
-            if ARGV[6] == '1' then
-                local db_bal = tonumber(redis.call('HGET', KEYS[2], ARGV[2]) or '0')
-                local pending_delta = tonumber(redis.call('HGET', KEYS[3], ARGV[2]) or '0')
-                local soft_bal = db_bal + pending_delta
-                local amount = tonumber(ARGV[3])
+            return seeded
+            """;
+
+    /**
+     * Moves balance fields from one hash into another (or to a new field name in the same hash).
+     *
+     * <p>KEYS: source hash, target hash. ARGV[1] is {@code SET} (snapshot, keep an existing
+     * value) or {@code ADD} (pending delta, accumulate), followed by quadruples of source field,
+     * source value as read, target field and target value. A field is only moved, and deleted from
+     * the source, while it still holds the value that was read.
+     */
+    private static final String MIGRATE_BALANCES_SCRIPT = """
+            local moved = 0
             
-                if (soft_bal - amount) < 0 then
-                    return 'NSF'
+            for i = 2, #ARGV, 4 do
+                if redis.call('HGET', KEYS[1], ARGV[i]) == ARGV[i + 1] then
+                    if ARGV[1] == 'SET' then
+                        redis.call('HSETNX', KEYS[2], ARGV[i + 2], ARGV[i + 3])
+                    else
+                        redis.call('HINCRBY', KEYS[2], ARGV[i + 2], ARGV[i + 3])
+                    end
+                    redis.call('HDEL', KEYS[1], ARGV[i])
+                    moved = moved + 1
                 end
             end
             
-            local amount = tonumber(ARGV[3])
-            redis.call('HINCRBYFLOAT', KEYS[3], ARGV[2], -amount)
-            redis.call('HINCRBYFLOAT', KEYS[3], ARGV[4], amount)
-            redis.call('SADD', KEYS[1], ARGV[1])
-            redis.call('XADD', KEYS[4], '*', 'payload', ARGV[5], 'idempotencyKey', ARGV[1], 'batchId', ARGV[7])
-            
-            return 'OK'
+            return moved
             """;
 
-    private static final String SETTLE_SCRIPT = """
-            -- KEYS[1]: DB_SNAPSHOT_KEY, KEYS[2]: PENDING_DELTA_KEY
-            -- ARGV[1]: Account ID, ARGV[2]: Amount to settle
-            redis.call('HINCRBYFLOAT', KEYS[1], ARGV[1], ARGV[2])
-            redis.call('HINCRBYFLOAT', KEYS[2], ARGV[1], -ARGV[2])
-            return 'OK'
-            """;
+    /**
+     * Script arguments are mostly strings, but stream payloads and binary keys are passed as raw bytes.
+     */
+    private static final RedisSerializer<Object> SCRIPT_ARGS_SERIALIZER = new RedisSerializer<>() {
+        @Override
+        public byte[] serialize(Object value) {
+            return value instanceof byte[] bytes ? bytes : String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Object deserialize(byte[] bytes) {
+            return bytes;
+        }
+    };
 
-    private static final RedisScript<String> LEDGER_SPRING_SCRIPT =
-            new DefaultRedisScript<>(LEDGER_SCRIPT, String.class);
-    private static final RedisScript<String> SETTLE_SPRING_SCRIPT =
-            new DefaultRedisScript<>(SETTLE_SCRIPT, String.class);
+    private static final RedisScript<String> LEDGER_BATCH_SPRING_SCRIPT =
+            new DefaultRedisScript<>(LEDGER_BATCH_SCRIPT, String.class);
+    private static final RedisScript<Long> SETTLE_SPRING_SCRIPT =
+            new DefaultRedisScript<>(SETTLE_SCRIPT, Long.class);
     private static final RedisScript<Long> MARK_PROGRESS_SPRING_SCRIPT =
             new DefaultRedisScript<>(MARK_PROGRESS_SCRIPT, Long.class);
-    private static final RedisScript<Long> SET_EXPECTED_SPRING_SCRIPT =
-            new DefaultRedisScript<>(SET_EXPECTED_SCRIPT, Long.class);
+    private static final RedisScript<Long> CREDIT_FOLLOW_UP_SPRING_SCRIPT =
+            new DefaultRedisScript<>(CREDIT_FOLLOW_UP_SCRIPT, Long.class);
+    private static final RedisScript<Long> ABANDON_MISSES_SPRING_SCRIPT =
+            new DefaultRedisScript<>(ABANDON_MISSES_SCRIPT, Long.class);
+    private static final RedisScript<Long> HYDRATE_SNAPSHOT_SPRING_SCRIPT =
+            new DefaultRedisScript<>(HYDRATE_SNAPSHOT_SCRIPT, Long.class);
+    private static final RedisScript<Long> MIGRATE_BALANCES_SPRING_SCRIPT =
+            new DefaultRedisScript<>(MIGRATE_BALANCES_SCRIPT, Long.class);
+    private static final RedisScript<Long> UNDELIVERED_PROBE_SPRING_SCRIPT =
+            new DefaultRedisScript<>(UNDELIVERED_PROBE_SCRIPT, Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_STALE_SPRING_SCRIPT =
+            new DefaultRedisScript<>(CLAIM_STALE_SCRIPT, List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TRIM_ACKNOWLEDGED_SPRING_SCRIPT =
+            new DefaultRedisScript<>(TRIM_ACKNOWLEDGED_SCRIPT, List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TRIM_RETENTION_SPRING_SCRIPT =
+            new DefaultRedisScript<>(TRIM_RETENTION_SCRIPT, List.class);
 
     /**
      * Initializes consumer identity, preloads Lua scripts, and ensures stream consumer group exists.
@@ -172,7 +636,7 @@ public class RedisServiceImp implements RedisService {
         log.info("Consumer name initialized: {}", consumerName);
 
         balanceTemplate.execute((RedisCallback<String>) connection ->
-                connection.scriptingCommands().scriptLoad(LEDGER_SCRIPT.getBytes(StandardCharsets.UTF_8))
+                connection.scriptingCommands().scriptLoad(LEDGER_BATCH_SCRIPT.getBytes(StandardCharsets.UTF_8))
         );
         balanceTemplate.execute((RedisCallback<String>) connection ->
                 connection.scriptingCommands().scriptLoad(SETTLE_SCRIPT.getBytes(StandardCharsets.UTF_8))
@@ -180,19 +644,68 @@ public class RedisServiceImp implements RedisService {
         balanceTemplate.execute((RedisCallback<String>) connection ->
                 connection.scriptingCommands().scriptLoad(MARK_PROGRESS_SCRIPT.getBytes(StandardCharsets.UTF_8))
         );
-        balanceTemplate.execute((RedisCallback<String>) connection ->
-                connection.scriptingCommands().scriptLoad(SET_EXPECTED_SCRIPT.getBytes(StandardCharsets.UTF_8))
-        );
 
+        for (String streamKey : stagingStreams()) {
+            createConsumerGroup(streamKey);
+        }
+
+        log.info("Ledger Lua scripts loaded with SHA");
+
+        if (keyspace.isSharded()) {
+            // Legacy hashes are unsharded; sharded snapshots are re-warmed from Postgres instead
+            log.info("Sharded keyspace: skipping legacy balance migration");
+        } else {
+            migrateLegacyBalances(LEGACY_DB_SNAPSHOT_KEY, DB_SNAPSHOT_KEY, "SET");
+            migrateLegacyBalances(LEGACY_PENDING_DELTA_KEY, PENDING_DELTA_KEY, "ADD");
+        }
+        retireLegacyIdempotencySet();
+        ensureKeyEncoding();
+        reportShardPlacement();
+    }
+
+    /**
+     * Logs which cluster master serves each shard and warns when the shards pile up on fewer
+     * masters than they could be spread over.
+     */
+    private void reportShardPlacement() {
+        if (!keyspace.isSharded()
+                || !(balanceTemplate.getConnectionFactory() instanceof LettuceConnectionFactory factory)
+                || !factory.isClusterAware()) {
+            return;
+        }
+
+        try (RedisClusterConnection cluster = factory.getClusterConnection()) {
+            Map<String, List<Integer>> shardsByMaster = new TreeMap<>();
+
+            for (int shard = 0; shard < keyspace.shards(); shard++) {
+                var master = cluster.clusterGetNodeForSlot(keyspace.slotOf(shard));
+                shardsByMaster.computeIfAbsent(master.asString(), _ -> new ArrayList<>()).add(shard);
+            }
+
+            long masters = cluster.clusterGetNodes().stream().filter(node -> node.isMaster()).count();
+            long fairShare = Math.ceilDiv(keyspace.shards(), Math.max(1, masters));
+
+            shardsByMaster.forEach((master, shards) -> log.info("Redis master {} serves ledger shard(s) {}", master, shards));
+
+            if (shardsByMaster.values().stream().anyMatch(shards -> shards.size() > fairShare)) {
+                log.warn("Ledger shards are unevenly spread over {} Redis masters; rebalance the slots of {}",
+                        masters, shardsByMaster.keySet());
+            }
+        } catch (Exception e) {
+            log.warn("Could not determine the Redis masters of the ledger shards: {}", e.getMessage());
+        }
+    }
+
+    private void createConsumerGroup(String streamKey) {
         try {
             balanceTemplate.execute((RedisCallback<String>) connection -> {
-                connection.streamCommands().xGroupCreate(STREAM_KEY.getBytes(StandardCharsets.UTF_8),
+                connection.streamCommands().xGroupCreate(streamKey.getBytes(StandardCharsets.UTF_8),
                         STREAM_GROUP,
                         ReadOffset.from("0"),
                         true);
                 return "OK";
             });
-            log.info("Stream consumer group created: {}", STREAM_GROUP);
+            log.info("Stream consumer group created: {} on {}", STREAM_GROUP, streamKey);
         } catch (Exception e) {
             String message = e.getMessage();
 
@@ -203,75 +716,671 @@ public class RedisServiceImp implements RedisService {
                 log.info("Consumer group already exists: {}", STREAM_GROUP);
             }
         }
+    }
+
+    /**
+     * Checks the recorded field encoding and runs the one-shot text-to-binary key migration.
+     *
+     * <p>Switching back to text keys after the migration is refused: the binary fields would be
+     * invisible to text lookups and every balance would read as zero.
+     *
+     * <p>Binary keys can be enabled with a rolling restart. Nodes still on text keys notice the
+     * recorded encoding within {@code ledger.redis.keys.encoding-check-interval} and from then on
+     * refuse to write (see {@link #requireKeyEncoding()}), so a second migration pass after twice
+     * that interval converts the text fields they wrote in the meantime.
+     */
+    private void ensureKeyEncoding() {
+        String recorded = balanceTemplate.opsForValue().get(KEY_ENCODING_KEY);
+
+        if (!fieldCodec.isBinary()) {
+            if (BINARY_ENCODING.equals(recorded)) {
+                throw new IllegalStateException("Redis ledger keys were migrated to binary; set ledger.redis.keys.binary=true");
+            }
+            return;
+        }
 
+        if (BINARY_ENCODING.equals(recorded)) {
+            return;
+        }
 
-        log.info("Ledger Lua scripts loaded with SHA");
+        log.info("Migrating Redis balance and idempotency keys to binary encoding");
+        migrateKeysToBinary();
+
+        balanceTemplate.opsForValue().set(KEY_ENCODING_KEY, BINARY_ENCODING);
+        log.info("Redis key migration to binary encoding complete");
+
+        CompletableFuture.runAsync(() -> {
+            try {
+                migrateKeysToBinary();
+                log.info("Converted text keys written by nodes that had not yet seen the binary encoding");
+            } catch (Exception e) {
+                log.error("Straggler pass of the binary key migration failed", e);
+            }
+        }, CompletableFuture.delayedExecutor(encodingCheckInterval.multipliedBy(2).toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    private void migrateKeysToBinary() {
+        for (int shard = 0; shard < keyspace.shards(); shard++) {
+            migrateBalanceFieldsToBinary(keyspace.key(DB_SNAPSHOT_KEY, shard), "SET");
+            migrateBalanceFieldsToBinary(keyspace.key(PENDING_DELTA_KEY, shard), "ADD");
+            idempotencyBuckets(IDEMPOTENCY_BUCKET_PREFIX, shard).forEach(this::migrateIdempotencyMembersToBinary);
+            idempotencyBuckets(CREDIT_IDEMPOTENCY_BUCKET_PREFIX, shard).forEach(this::migrateIdempotencyMembersToBinary);
+        }
+    }
+
+    /**
+     * Refuses to write balance or idempotency fields in an encoding other than the recorded one.
+     *
+     * <p>The recorded encoding is re-read at most once per {@code ledger.redis.keys.encoding-check-interval}.
+     *
+     * @throws IllegalStateException when this node's {@code ledger.redis.keys.binary} does not match
+     */
+    private void requireKeyEncoding() {
+        long now = System.nanoTime();
+
+        if (now - nextEncodingCheckNanos >= 0) {
+            String recorded = balanceTemplate.opsForValue().get(KEY_ENCODING_KEY);
+            encodingMatches = fieldCodec.isBinary() == BINARY_ENCODING.equals(recorded);
+            nextEncodingCheckNanos = now + encodingCheckInterval.toNanos();
+        }
+
+        if (!encodingMatches) {
+            throw new IllegalStateException("Redis ledger key encoding changed; restart with ledger.redis.keys.binary="
+                    + !fieldCodec.isBinary());
+        }
+    }
+
+    private void migrateBalanceFieldsToBinary(String key, String mode) {
+        long moved = 0;
+        List<Object> args = new ArrayList<>(List.of(mode));
+
+        try (Cursor<Map.Entry<Object, Object>> cursor = balanceTemplate.opsForHash()
+                .scan(key, ScanOptions.scanOptions().count(MIGRATION_CHUNK).build())) {
+
+            while (cursor.hasNext()) {
+                Map.Entry<Object, Object> entry = cursor.next();
+                String field = asString(entry.getKey());
+                byte[] binaryField = fieldCodec.binaryAccountFromText(field);
+
+                // Already binary (or foreign) fields are left alone
+                if (binaryField == null) {
+                    continue;
+                }
+
+                String value = asString(entry.getValue());
+                args.addAll(List.of(field, value, binaryField, value));
+
+                if (args.size() > MIGRATION_CHUNK * 4) {
+                    moved += runMigrationChunk(key, key, args);
+                    args = new ArrayList<>(List.of(mode));
+                }
+            }
+        }
+
+        if (args.size() > 1) {
+            moved += runMigrationChunk(key, key, args);
+        }
+
+        log.info("Migrated {} text account fields of {} to binary", moved, key);
+    }
+
+    private void migrateIdempotencyMembersToBinary(String key) {
+        List<byte[][]> pairs = new ArrayList<>();
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        long moved = 0;
+
+        try (Cursor<String> cursor = balanceTemplate.opsForSet()
+                .scan(key, ScanOptions.scanOptions().count(MIGRATION_CHUNK).build())) {
+
+            while (cursor.hasNext()) {
+                String member = cursor.next();
+                byte[] binaryMember = fieldCodec.binaryIdempotencyFromText(member);
+
+                if (binaryMember != null) {
+                    pairs.add(new byte[][]{member.getBytes(StandardCharsets.UTF_8), binaryMember});
+                }
+
+                if (pairs.size() >= MIGRATION_CHUNK) {
+                    moved += moveSetMembers(rawKey, pairs);
+                    pairs.clear();
+                }
+            }
+        }
+
+        moved += moveSetMembers(rawKey, pairs);
+
+        if (moved > 0) {
+            log.info("Migrated {} idempotency members of {} to binary", moved, key);
+        }
+    }
+
+    /**
+     * Adds the binary member before removing the text one, so a crash in between only leaves both.
+     */
+    private int moveSetMembers(byte[] rawKey, List<byte[][]> pairs) {
+        if (pairs.isEmpty()) {
+            return 0;
+        }
+
+        balanceTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (byte[][] pair : pairs) {
+                connection.setCommands().sAdd(rawKey, pair[1]);
+                connection.setCommands().sRem(rawKey, pair[0]);
+            }
+            return null;
+        });
+
+        return pairs.size();
+    }
+
+    /**
+     * Lets the unbounded legacy idempotency set age out with the lookback window.
+     *
+     * <p>It is still checked as the oldest bucket until it expires; after that, replays fall back to
+     * the {@code uc_transactions_reference_id_type} constraint like any key older than the window.
+     */
+    private void retireLegacyIdempotencySet() {
+        Long ttl = balanceTemplate.getExpire(LEGACY_IDEMPOTENCY_KEY);
+
+        if (ttl != null && ttl == -1) {
+            balanceTemplate.expire(LEGACY_IDEMPOTENCY_KEY, idempotencyLookback);
+            log.info("Legacy idempotency set {} will expire in {}", LEGACY_IDEMPOTENCY_KEY, idempotencyLookback);
+        }
+    }
+
+    /**
+     * Idempotency buckets of one shard covering the lookback window; the first one is this node's
+     * current bucket and receives new keys. The next bucket follows it, because a node whose clock
+     * is slightly ahead may already write there around a bucket boundary. The unsharded legacy set
+     * can only be checked when the keyspace is not sharded.
+     */
+    private List<String> idempotencyBuckets(String prefix, int shard) {
+        long bucketMillis = idempotencyBucket.toMillis();
+        long current = System.currentTimeMillis() / bucketMillis;
+        long older = Math.ceilDiv(idempotencyLookback.toMillis(), bucketMillis);
+
+        List<String> buckets = new ArrayList<>((int) older + 3);
+        buckets.add(keyspace.key(prefix + current, shard));
+        buckets.add(keyspace.key(prefix + (current + 1), shard));
+        for (long bucket = current - 1; bucket >= current - older; bucket--) {
+            buckets.add(keyspace.key(prefix + bucket, shard));
+        }
+        if (IDEMPOTENCY_BUCKET_PREFIX.equals(prefix) && !keyspace.isSharded()) {
+            buckets.add(LEGACY_IDEMPOTENCY_KEY);
+        }
+        return buckets;
+    }
+
+    /**
+     * Converts a legacy decimal balance hash into integer minor units, chunk by chunk.
+     *
+     * <p>Conversion rounds HALF_EVEN at scale 4, which also removes the drift accumulated by
+     * {@code HINCRBYFLOAT}. Fields that changed while being converted are picked up by the next pass.
+     */
+    private void migrateLegacyBalances(String legacyKey, String minorKey, String mode) {
+        long moved = 0;
+
+        for (int pass = 0; pass < 3 && Boolean.TRUE.equals(balanceTemplate.hasKey(legacyKey)); pass++) {
+            List<Object> args = new ArrayList<>();
+            args.add(mode);
+
+            try (Cursor<Map.Entry<Object, Object>> cursor = balanceTemplate.opsForHash()
+                    .scan(legacyKey, ScanOptions.scanOptions().count(MIGRATION_CHUNK).build())) {
+
+                while (cursor.hasNext()) {
+                    Map.Entry<Object, Object> entry = cursor.next();
+                    String field = asString(entry.getKey());
+                    String legacyValue = asString(entry.getValue());
+
+                    try {
+                        long minorUnits = MoneyUtil.toMinorUnits(new BigDecimal(legacyValue));
+                        byte[] binaryField = fieldCodec.isBinary() ? fieldCodec.binaryAccountFromText(field) : null;
+                        args.addAll(List.of(field, legacyValue, binaryField != null ? binaryField : field,
+                                String.valueOf(minorUnits)));
+                    } catch (ArithmeticException | NumberFormatException e) {
+                        log.error("Cannot migrate {} field {} with value {}: {}", legacyKey, field, legacyValue, e.getMessage());
+                    }
+
+                    if (args.size() > MIGRATION_CHUNK * 4) {
+                        moved += runMigrationChunk(legacyKey, minorKey, args);
+                        args = new ArrayList<>(List.of(mode));
+                    }
+                }
+            }
+
+            if (args.size() > 1) {
+                moved += runMigrationChunk(legacyKey, minorKey, args);
+            }
+        }
+
+        if (moved > 0) {
+            log.info("Migrated {} balance fields from {} to minor units in {}", moved, legacyKey, minorKey);
+        }
+
+        Long remaining = balanceTemplate.opsForHash().size(legacyKey);
+        if (remaining != null && remaining > 0) {
+            log.warn("{} still holds {} unmigrated balance fields", legacyKey, remaining);
+        }
+    }
+
+    private long runMigrationChunk(String sourceKey, String targetKey, List<Object> args) {
+        Long moved = balanceTemplate.execute(
+                MIGRATE_BALANCES_SPRING_SCRIPT,
+                SCRIPT_ARGS_SERIALIZER,
+                new GenericToStringSerializer<>(Long.class),
+                List.of(sourceKey, targetKey),
+                args.toArray()
+        );
+        return moved == null ? 0 : moved;
     }
 
 
     @Override
-    public Map<String, List<TransactionRequest>> processBatchAtomic(List<TransactionRequest> batch, String batchId) {
+    public StagedBatch stageBatch(List<TransactionRequest> batch, DurabilityRequirement durability) {
+        requireKeyEncoding();
+
+        String correlationId = UUID.randomUUID().toString();
 
         List<TransactionRequest> okList = new ArrayList<>();
         List<TransactionRequest> nsfList = new ArrayList<>();
+        List<TransactionRequest> overflowList = new ArrayList<>();
+
+        // Amounts outside the exact minor-unit range never reach Redis; the rest is split by debit shard
+        Map<Integer, List<TransactionRequest>> byShard = new TreeMap<>();
+        for (TransactionRequest request : batch) {
+            if (MoneyUtil.isSafeMinorUnits(request.getAmount())) {
+                byShard.computeIfAbsent(keyspace.shardOf(request.getDebitAccountId()), _ -> new ArrayList<>())
+                        .add(request);
+            } else {
+                log.warn("Amount out of minor-unit range for transaction {}", request.getReferenceId());
+                overflowList.add(request);
+            }
+        }
 
-        List<Object> results = balanceTemplate.executePipelined(new SessionCallback<>() {
-            @Override
-            public Object execute(@NonNull RedisOperations operations) throws DataAccessException {
-                for (TransactionRequest request : batch) {
+        List<TransactionRequest> failedList = new ArrayList<>();
+        Set<Integer> sealedShards = new TreeSet<>();
+        RuntimeException firstFailure = null;
+        boolean durable = true;
+
+        // Each shard is its own sealed sub-batch, so a failure on one leaves the verdicts of the others standing
+        for (Map.Entry<Integer, List<TransactionRequest>> entry : byShard.entrySet()) {
+            int shard = entry.getKey();
+            try {
+                durable &= stageOnShard(shard, keyspace.shardBatchId(correlationId, shard), entry.getValue(),
+                        durability, okList, nsfList, overflowList, failedList);
+                sealedShards.add(shard);
+            } catch (RuntimeException e) {
+                log.error("Staging failed on shard {} for {} requests of batch {}",
+                        shard, entry.getValue().size(), correlationId, e);
+                failedList.addAll(entry.getValue());
+                if (firstFailure == null) {
+                    firstFailure = e;
+                }
+            }
+        }
+
+        if (sealedShards.isEmpty() && firstFailure != null) {
+            throw firstFailure;
+        }
+
+        return new StagedBatch(keyspace.batchId(correlationId, sealedShards),
+                okList, nsfList, overflowList, failedList, durable);
+    }
+
+    /**
+     * Runs the staging script for the requests whose debit account lives on one shard, as one
+     * sealed sub-batch.
+     *
+     * <p>Verdicts are only handed back once the sub-batch is sealed and complete-able; a failure
+     * before that throws and leaves the sub-batch out of the batch. Requests whose snapshot could
+     * not be hydrated go to {@code failedList}, while the rest of the sub-batch stays staged.
+     *
+     * @return whether every round of script calls on this shard confirmed the durability
+     */
+    private boolean stageOnShard(int shard, String batchId, List<TransactionRequest> requests,
+                                 DurabilityRequirement durability,
+                                 List<TransactionRequest> okList, List<TransactionRequest> nsfList,
+                                 List<TransactionRequest> overflowList, List<TransactionRequest> failedList) {
+        List<String> keys = new ArrayList<>(List.of(
+                keyspace.key(DB_SNAPSHOT_KEY, shard),
+                keyspace.key(PENDING_DELTA_KEY, shard),
+                keyspace.key(batchMetaKey(batchId), shard),
+                keyspace.key(BATCH_DONE_STREAM, shard),
+                keyspace.key(CREDIT_FOLLOW_UP_STREAM, shard)));
+        keys.addAll(keyspace.partitionKeys(STREAM_KEY, shard));
+        keys.addAll(idempotencyBuckets(IDEMPOTENCY_BUCKET_PREFIX, shard));
+
+        List<List<TransactionRequest>> chunks = new ArrayList<>();
+        for (int from = 0; from < requests.size(); from += stagingChunkSize) {
+            chunks.add(requests.subList(from, Math.min(requests.size(), from + stagingChunkSize)));
+        }
+
+        List<Object[]> calls = new ArrayList<>(chunks.size());
+        for (int c = 0; c < chunks.size(); c++) {
+            calls.add(packChunk(chunks.get(c), batchId, shard, c == chunks.size() - 1 ? CHUNK_LAST : CHUNK_PLAIN));
+        }
+
+        ShardRound round = runStagingRound(keys, calls, durability);
+        boolean durable = round.durable();
+
+        // Verdicts are collected locally and only handed back once the sub-batch can complete
+        List<TransactionRequest> ok = new ArrayList<>();
+        List<TransactionRequest> nsf = new ArrayList<>();
+        List<TransactionRequest> overflow = new ArrayList<>();
+        List<TransactionRequest> missed = new ArrayList<>();
+
+        for (int c = 0; c < chunks.size(); c++) {
+            collectResults(chunks.get(c), round.codes().get(c), missed, ok, nsf, overflow);
+        }
+
+        // Requests whose debit snapshot is not in Redis are re-run once it has been loaded from Postgres.
+        // Hydration always seeds, so another miss means Redis lost the field in between
+        try {
+            for (int attempt = 1; !missed.isEmpty(); attempt++) {
+                if (attempt > MAX_HYDRATION_ATTEMPTS) {
+                    throw new RedisException("Debit snapshots still missing after " + MAX_HYDRATION_ATTEMPTS
+                            + " hydrations for " + missed.size() + " requests of batch " + batchId);
+                }
+
+                hydrateSnapshots(shard, missed);
+
+                List<List<TransactionRequest>> retryChunks = new ArrayList<>();
+                List<Object[]> retryCalls = new ArrayList<>();
+                for (int from = 0; from < missed.size(); from += stagingChunkSize) {
+                    List<TransactionRequest> chunk = missed.subList(from, Math.min(missed.size(), from + stagingChunkSize));
+                    retryChunks.add(chunk);
+                    retryCalls.add(packChunk(chunk, batchId, shard, CHUNK_RETRY));
+                }
 
-                    boolean checkNsf = switch (request.getType()) {
-                        case DEPOSIT, WITHDRAWAL_SETTLE, WITHDRAWAL_RELEASE -> false;
-                        default -> true;
-                    };
+                ShardRound retryRound = runStagingRound(keys, retryCalls, durability);
+                durable &= retryRound.durable();
 
-                    String checkNsfStr = checkNsf ? "1" : "0";
-                    String compositeIdempotencyKey = request.getReferenceId().toString() + "-" + request.getType().name();
+                List<TransactionRequest> stillMissed = new ArrayList<>();
+                for (int c = 0; c < retryChunks.size(); c++) {
+                    collectResults(retryChunks.get(c), retryRound.codes().get(c), stillMissed, ok, nsf, overflow);
+                }
+                missed = stillMissed;
+            }
+        } catch (RuntimeException e) {
+            // A re-run that failed part-way may have staged some of these; their retries come back as duplicates
+            log.error("Hydration failed on shard {} for {} requests of batch {}", shard, missed.size(), batchId, e);
+            abandonMisses(shard, batchId);
+            failedList.addAll(missed);
+        }
+
+        okList.addAll(ok);
+        nsfList.addAll(nsf);
+        overflowList.addAll(overflow);
+        return durable;
+    }
+
+    /**
+     * Lets a sealed sub-batch complete without the missed requests it gave up on.
+     */
+    private void abandonMisses(int shard, String batchId) {
+        balanceTemplate.execute(
+                ABANDON_MISSES_SPRING_SCRIPT,
+                List.of(keyspace.key(batchMetaKey(batchId), shard), keyspace.key(BATCH_DONE_STREAM, shard)),
+                batchId,
+                String.valueOf(BATCH_META_TTL.toSeconds())
+        );
+    }
+
+    /**
+     * Pipelines staging script calls on one shard and, when required, the durability wait behind
+     * them on the same connection.
+     *
+     * <p>One script call per chunk keeps each Redis-blocking execution short. Pipelining runs on
+     * a dedicated connection, so {@code WAIT} neither confirms unrelated writes nor parks the
+     * shared connection every other command multiplexes over.
+     */
+    private ShardRound runStagingRound(List<String> keys, List<Object[]> calls, DurabilityRequirement durability) {
+        List<RedisFuture<?>> durabilityWait = new ArrayList<>(1);
 
+        List<Object> results = balanceTemplate.executePipelined(new SessionCallback<>() {
+            @Override
+            public Object execute(@NonNull RedisOperations operations) throws DataAccessException {
+                for (Object[] call : calls) {
                     operations.execute(
-                            LEDGER_SPRING_SCRIPT,
-                            List.of(IDEMPOTENCY_KEY, DB_SNAPSHOT_KEY, PENDING_DELTA_KEY, STREAM_KEY),
-                            compositeIdempotencyKey,
-                            request.getDebitAccountId().toString(),
-                            request.getAmount().toPlainString(),
-                            request.getCreditAccountId().toString(),
-                            serialize(request),
-                            checkNsfStr,
-                            batchId
+                            LEDGER_BATCH_SPRING_SCRIPT,
+                            SCRIPT_ARGS_SERIALIZER,
+                            StringRedisSerializer.UTF_8,
+                            keys,
+                            call
                     );
                 }
+
+                if (durability.isRequired()) {
+                    operations.execute((RedisCallback<Object>) connection -> {
+                        durabilityWait.add(dispatchDurabilityWait(connection, keys.getFirst(), durability));
+                        return null;
+                    });
+                }
                 return null;
             }
         });
 
-        for (int i = 0; i < batch.size(); i++) {
-            String resultStr = (String) results.get(i);
-            handleScriptResult(resultStr, batch.get(i), okList, nsfList);
+        List<String> codes = new ArrayList<>(calls.size());
+        for (int c = 0; c < calls.size(); c++) {
+            codes.add((String) results.get(c));
         }
 
-        return Map.of(
-                "ok", okList,
-                "nsf", nsfList
-        );
+        return new ShardRound(codes, durabilityWait.isEmpty() || awaitDurability(durabilityWait.getFirst(), durability));
     }
 
-    public void initializeSnapshotIfMissing(Account account) {
-        balanceTemplate.opsForHash().putIfAbsent(
-                DB_SNAPSHOT_KEY,
-                account.getId().toString(),
-                account.getBalance().toPlainString()
-        );
+    /**
+     * Sends {@code WAIT}/{@code WAITAOF} on the native connection the pipeline is using.
+     *
+     * <p>A keyless command on a cluster connection goes to an arbitrary node, so in cluster mode
+     * it is sent to the master owning the shard's slot, through the host/port node connection
+     * that slot routing used for the staging scripts.
+     */
+    @SuppressWarnings("unchecked")
+    private static RedisFuture<?> dispatchDurabilityWait(RedisConnection connection, String shardKey,
+                                                         DurabilityRequirement durability) {
+        Object nativeConnection = connection.getNativeConnection();
+        RedisClusterAsyncCommands<byte[], byte[]> target;
+
+        if (nativeConnection instanceof RedisAdvancedClusterAsyncCommands<?, ?> cluster) {
+            RedisClusterNode master = cluster.getStatefulConnection().getPartitions()
+                    .getMasterBySlot(SlotHash.getSlot(utf8(shardKey)));
+            target = (RedisClusterAsyncCommands<byte[], byte[]>) cluster.getConnection(
+                    master.getUri().getHost(), master.getUri().getPort());
+        } else {
+            target = (RedisClusterAsyncCommands<byte[], byte[]>) nativeConnection;
+        }
+
+        CommandArgs<byte[], byte[]> args = new CommandArgs<>(ByteArrayCodec.INSTANCE);
+
+        if (durability.waitAof()) {
+            // Reply: [local fsynced, replicas fsynced]
+            args.add(1).add(durability.replicas()).add(durability.timeout().toMillis());
+            return target.dispatch(DurabilityCommand.WAITAOF, new ArrayOutput<>(ByteArrayCodec.INSTANCE), args);
+        }
+
+        args.add(durability.replicas()).add(durability.timeout().toMillis());
+        return target.dispatch(CommandType.WAIT, new IntegerOutput<>(ByteArrayCodec.INSTANCE), args);
+    }
+
+    private static boolean awaitDurability(RedisFuture<?> wait, DurabilityRequirement durability) {
+        try {
+            Object reply = wait.get(durability.timeout().toMillis() + DURABILITY_REPLY_SLACK.toMillis(), TimeUnit.MILLISECONDS);
+
+            if (durability.waitAof()) {
+                List<?> counts = reply instanceof List<?> list ? list : List.of();
+                return counts.size() == 2
+                        && toLong(counts.get(0)) >= 1
+                        && toLong(counts.get(1)) >= durability.replicas();
+            }
+
+            return toLong(reply) >= durability.replicas();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Durability confirmation failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void collectResults(List<TransactionRequest> chunk, String codes, List<TransactionRequest> missed,
+                                List<TransactionRequest> okList, List<TransactionRequest> nsfList,
+                                List<TransactionRequest> overflowList) {
+        if (codes == null || codes.length() != chunk.size()) {
+            throw new RedisException("Unexpected Redis response for chunk of " + chunk.size() + ": " + codes);
+        }
+
+        for (int i = 0; i < chunk.size(); i++) {
+            if (codes.charAt(i) == 'M') {
+                missed.add(chunk.get(i));
+            } else {
+                handleScriptResult(codes.charAt(i), chunk.get(i), okList, nsfList, overflowList);
+            }
+        }
+    }
+
+    /**
+     * Loads the debit balances of missed requests from Postgres into the shard's snapshot.
+     *
+     * <p>Postgres is read and Redis seeded under the accounts' settlement guard, so no balance
+     * update of these accounts sits between its commit and its Redis settle meanwhile: the seed
+     * never misses a change whose pending delta is already gone, and never includes one that a
+     * settle is still about to add. Accounts unknown to Postgres are seeded with zero, which is
+     * what a missing snapshot used to mean.
+     */
+    private void hydrateSnapshots(int shard, List<TransactionRequest> missed) {
+        List<UUID> accountIds = missed.stream().map(TransactionRequest::getDebitAccountId).distinct().toList();
+
+        accountSnapshotRepository.seedGuardedBalances(accountIds, snapshots -> {
+            Map<UUID, BigDecimal> balances = snapshots.stream()
+                    .collect(Collectors.toMap(BalanceSnapshot::accountId, BalanceSnapshot::balance));
+
+            List<Object> args = new ArrayList<>(accountIds.size() * 2);
+            for (UUID accountId : accountIds) {
+                BigDecimal balance = balances.get(accountId);
+
+                if (balance == null) {
+                    log.warn("Account {} not found while hydrating its Redis snapshot; seeding zero", accountId);
+                    balance = BigDecimal.ZERO;
+                }
+
+                args.add(fieldCodec.account(accountId));
+                args.add(String.valueOf(MoneyUtil.toMinorUnits(balance)));
+            }
+
+            Long seeded = balanceTemplate.execute(
+                    HYDRATE_SNAPSHOT_SPRING_SCRIPT,
+                    SCRIPT_ARGS_SERIALIZER,
+                    new GenericToStringSerializer<>(Long.class),
+                    List.of(keyspace.key(DB_SNAPSHOT_KEY, shard)),
+                    args.toArray()
+            );
+
+            log.debug("Hydrated {} of {} missing debit snapshots on shard {}", seeded, accountIds.size(), shard);
+        });
+    }
+
+    @Override
+    public int relayCreditFollowUps(int maxPerShard) {
+        if (!keyspace.isSharded()) {
+            return 0;
+        }
+        requireKeyEncoding();
+
+        int relayed = 0;
+
+        for (int shard = 0; shard < keyspace.shards(); shard++) {
+            String followUpStream = keyspace.key(CREDIT_FOLLOW_UP_STREAM, shard);
+
+            try {
+                relayed += relayCreditFollowUps(followUpStream, maxPerShard);
+            } catch (Exception e) {
+                // Entries stay in the stream and are retried; the credit script is idempotent
+                log.error("Credit follow-up relay failed for {}", followUpStream, e);
+            }
+        }
+
+        return relayed;
+    }
+
+    private int relayCreditFollowUps(String followUpStream, int max) {
+        List<MapRecord<String, Object, Object>> intents = streamTemplate.opsForStream().range(
+                followUpStream, Range.unbounded(), Limit.limit().count(max));
+
+        if (intents == null || intents.isEmpty()) {
+            return 0;
+        }
+
+        Map<Integer, List<Object>> argsByCreditShard = new TreeMap<>();
+
+        for (MapRecord<String, Object, Object> intent : intents) {
+            byte[] credit = (byte[]) intent.getValue().get("credit");
+            List<Object> args = argsByCreditShard.computeIfAbsent(keyspace.shardOf(fieldCodec.accountOf(credit)), _ -> {
+                List<Object> initial = new ArrayList<>();
+                initial.add(String.valueOf(idempotencyLookback.plus(idempotencyBucket).toSeconds()));
+                return initial;
+            });
+            args.add(intent.getValue().get("idempotencyKey"));
+            args.add(credit);
+            args.add(intent.getValue().get("amount"));
+        }
+
+        argsByCreditShard.forEach((creditShard, args) -> {
+            List<String> keys = new ArrayList<>();
+            keys.add(keyspace.key(PENDING_DELTA_KEY, creditShard));
+            keys.addAll(idempotencyBuckets(CREDIT_IDEMPOTENCY_BUCKET_PREFIX, creditShard));
+
+            balanceTemplate.execute(
+                    CREDIT_FOLLOW_UP_SPRING_SCRIPT,
+                    SCRIPT_ARGS_SERIALIZER,
+                    new GenericToStringSerializer<>(Long.class),
+                    keys,
+                    args.toArray()
+            );
+        });
+
+        // Only deleted once every credit shard applied its part; a retry re-applies nothing
+        streamTemplate.opsForStream().delete(followUpStream,
+                intents.stream().map(MapRecord::getId).toArray(RecordId[]::new));
+
+        return intents.size();
     }
 
     @Override
-    public List<StreamEnvelope<TransactionRequest>> readNewFromStream(int count, Duration block) {
+    public int initializeSnapshotsIfMissing(List<BalanceSnapshot> snapshots) {
+        if (snapshots.isEmpty()) return 0;
+        requireKeyEncoding();
+
+        List<Object> results = balanceTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (BalanceSnapshot snapshot : snapshots) {
+                connection.hashCommands().hSetNX(
+                        utf8(keyspace.key(DB_SNAPSHOT_KEY, keyspace.shardOf(snapshot.accountId()))),
+                        fieldCodec.account(snapshot.accountId()),
+                        utf8(String.valueOf(MoneyUtil.toMinorUnits(snapshot.balance())))
+                );
+            }
+            return null;
+        });
+
+        return (int) results.stream().filter(Boolean.TRUE::equals).count();
+    }
+
+    @Override
+    public List<String> stagingStreams() {
+        return keyspace.partitionKeys(STREAM_KEY);
+    }
+
+    @Override
+    public List<StreamEnvelope<TransactionRequest>> readNewFromStream(String streamKey, int count, Duration block) {
         List<StreamEnvelope<TransactionRequest>> envelopes = new ArrayList<>();
 
         try {
-            List<MapRecord<String, Object, Object>> messages = balanceTemplate.opsForStream().read(
+            StreamReadOptions options = StreamReadOptions.empty().count(count);
+
+            List<MapRecord<String, Object, Object>> messages = streamTemplate.opsForStream().read(
                     Consumer.from(STREAM_GROUP, consumerName),
-                    StreamReadOptions.empty().count(count).block(block),
-                    StreamOffset.create(STREAM_KEY, ReadOffset.lastConsumed())
+                    block == null ? options : options.block(block),
+                    StreamOffset.create(streamKey, ReadOffset.lastConsumed())
             );
 
             if (messages == null || messages.isEmpty()) {
@@ -286,73 +1395,78 @@ public class RedisServiceImp implements RedisService {
                 try {
 
                     TransactionRequest request = parsePayload(entry);
-                    envelopes.add(new StreamEnvelope<>(streamId, batchId, asString(entry.getValue().get(PAYLOAD)), request, 1));
+                    envelopes.add(new StreamEnvelope<>(streamKey, streamId, batchId, payloadBytes(entry), request, 1));
 
                     log.debug("Parsed stream record {}: referenceId={}", streamId, request.getReferenceId());
 
                 } catch (Exception e) {
                     log.error("Failed to parse stream record: {}", entry.getId().getValue(), e);
                     moveToDlqAndAck(
-                            new StreamEnvelope<>(streamId, batchId, asString(entry.getValue().get(PAYLOAD)), null, 1),
+                            new StreamEnvelope<>(streamKey, streamId, batchId, payloadBytes(entry), null, 1),
                             "PARSE_ERROR: " + e.getMessage()
                     );
                 }
             }
         } catch (Exception e) {
-            log.error("Error reading from stream: {}", e.getMessage(), e);
+            log.error("Error reading from stream {}: {}", streamKey, e.getMessage(), e);
         }
 
         return envelopes;
     }
 
     @Override
-    public List<StreamEnvelope<TransactionRequest>> claimStaleFromStream(int count, Duration minIdle) {
+    public List<StreamEnvelope<TransactionRequest>> claimStaleFromStream(String streamKey, int count, Duration minIdle) {
         List<StreamEnvelope<TransactionRequest>> envelopes = new ArrayList<>();
 
-        PendingMessages pendingMessages = balanceTemplate.opsForStream().pending(
-                STREAM_KEY,
+        List<?> reply = balanceTemplate.execute(
+                CLAIM_STALE_SPRING_SCRIPT,
+                SCRIPT_ARGS_SERIALIZER,
+                SCRIPT_ARGS_SERIALIZER,
+                List.of(streamKey, streamKey + CLAIM_CURSOR_SUFFIX),
                 STREAM_GROUP,
-                Range.unbounded(),
-                count
+                consumerName,
+                String.valueOf(minIdle.toMillis()),
+                String.valueOf(count),
+                String.valueOf(CLAIM_CURSOR_TTL.toSeconds())
         );
 
-        if (pendingMessages == null || pendingMessages.isEmpty()) {
+        if (reply == null || reply.size() < 3) {
             return envelopes;
         }
 
+        List<?> deleted = (List<?>) reply.get(2);
+        if (!deleted.isEmpty()) {
+            // Their batch id went with the entry, so those batches can only finish by timeout
+            log.warn("{} pending entries of {} were deleted before being persisted: {}",
+                    deleted.size(), streamKey, deleted.stream().map(this::asString).toList());
+        }
+
         Map<String, Long> deliveryCountById = new HashMap<>();
-        List<RecordId> staleIds = new ArrayList<>();
+        List<MapRecord<String, Object, Object>> claimed = new ArrayList<>();
 
-        for (PendingMessage msg : pendingMessages) {
-            if (msg.getElapsedTimeSinceLastDelivery().compareTo(minIdle) >= 0) {
-                staleIds.add(msg.getId());
+        for (Object item : (List<?>) reply.get(1)) {
+            List<?> entry = (List<?>) item;
+            String streamId = asString(entry.get(0));
+            List<?> flatFields = (List<?>) entry.get(2);
 
-                long deliveries = Math.max(1L, msg.getTotalDeliveryCount());
-                deliveryCountById.put(msg.getId().getValue(), deliveries);
+            Map<Object, Object> fields = new HashMap<>();
+            for (int f = 0; f + 1 < flatFields.size(); f += 2) {
+                fields.put(asString(flatFields.get(f)), flatFields.get(f + 1));
             }
-        }
 
-        if (staleIds.isEmpty()) {
-            return envelopes;
+            deliveryCountById.put(streamId, Math.max(1L, toLong(entry.get(1))));
+            claimed.add(MapRecord.create(streamKey, fields).withId(RecordId.of(streamId)));
         }
 
-        List<MapRecord<String, Object, Object>> claimed = balanceTemplate.opsForStream().claim(
-                STREAM_KEY,
-                STREAM_GROUP,
-                consumerName,
-                minIdle,
-                staleIds.toArray(RecordId[]::new)
-        );
-
         for (MapRecord<String, Object, Object> entry : claimed) {
             String streamId = entry.getId().getValue();
-            String payloadJson = asString(entry.getValue().get(PAYLOAD));
+            byte[] payload = payloadBytes(entry);
             String batchId = asString(entry.getValue().get(BATCH_ID_FIELD));
             long deliveryCount = deliveryCountById.getOrDefault(streamId, 1L);
 
-            if (payloadJson == null) {
+            if (payload == null) {
                 moveToDlqAndAck(
-                        new StreamEnvelope<>(streamId, batchId, null, null, 1),
+                        new StreamEnvelope<>(streamKey, streamId, batchId, null, null, 1),
                         "MISSING_PAYLOAD_STALE"
                 );
 
@@ -360,12 +1474,12 @@ public class RedisServiceImp implements RedisService {
             }
 
             try {
-                TransactionRequest request = objectMapper.readValue(payloadJson, TransactionRequest.class);
-                envelopes.add(new StreamEnvelope<>(streamId, batchId, payloadJson, request, deliveryCount));
+                TransactionRequest request = codec.decode(payload);
+                envelopes.add(new StreamEnvelope<>(streamKey, streamId, batchId, payload, request, deliveryCount));
                 log.debug("Claimed stale stream record {}: referenceId = {}, deliveries = {}", streamId, request, deliveryCount);
             } catch (Exception e) {
                 moveToDlqAndAck(
-                        new StreamEnvelope<>(streamId, batchId, payloadJson, null, deliveryCount),
+                        new StreamEnvelope<>(streamKey, streamId, batchId, payload, null, deliveryCount),
                         "PARSE_ERROR_STALE: " + e.getMessage()
                 );
                 log.error("Failed to parse claimed stale stream record: {}", streamId, e);
@@ -376,21 +1490,143 @@ public class RedisServiceImp implements RedisService {
         return envelopes;
     }
 
+    @Override
+    public StreamLag readStreamLag(long undeliveredProbeLimit) {
+        long length = 0;
+        long undelivered = 0;
+        long pending = 0;
+        Duration oldestPendingAge = Duration.ZERO;
+
+        // Partitions drain independently, so the backlog adds up and the oldest entry anywhere counts
+        for (String streamKey : stagingStreams()) {
+            StreamLag lag = readStreamLag(streamKey, undeliveredProbeLimit);
+            length += lag.length();
+            undelivered += lag.undelivered();
+            pending += lag.pending();
+            if (lag.oldestPendingAge().compareTo(oldestPendingAge) > 0) {
+                oldestPendingAge = lag.oldestPendingAge();
+            }
+        }
+
+        return new StreamLag(length, undelivered, pending, oldestPendingAge);
+    }
+
+    private StreamLag readStreamLag(String streamKey, long undeliveredProbeLimit) {
+        Long length = balanceTemplate.opsForStream().size(streamKey);
+
+        StreamInfo.XInfoGroup group = balanceTemplate.opsForStream().groups(streamKey).stream()
+                .filter(candidate -> STREAM_GROUP.equals(candidate.groupName()))
+                .findFirst()
+                .orElse(null);
+
+        if (group == null) {
+            return new StreamLag(length == null ? 0 : length, 0, 0, Duration.ZERO);
+        }
+
+        long pending = group.pendingCount();
+        long undelivered = undeliveredCount(streamKey, group, undeliveredProbeLimit);
+
+        Duration oldestPendingAge = Duration.ZERO;
+
+        if (pending > 0) {
+            PendingMessagesSummary summary = balanceTemplate.opsForStream().pending(streamKey, STREAM_GROUP);
+
+            if (summary != null && summary.minMessageId() != null) {
+                long createdAt = RecordId.of(summary.minMessageId()).getTimestamp();
+                oldestPendingAge = Duration.ofMillis(Math.max(0, System.currentTimeMillis() - createdAt));
+            }
+        }
+
+        return new StreamLag(length == null ? 0 : length, undelivered, pending, oldestPendingAge);
+    }
+
+    /**
+     * Uses the group {@code lag} reported by Redis 7+, falling back to a server-side count after
+     * the last delivered id that stops at the probe limit.
+     */
+    private long undeliveredCount(String streamKey, StreamInfo.XInfoGroup group, long probeLimit) {
+        Object lag = group.getRaw().get("lag");
+
+        if (lag instanceof Number number) {
+            return number.longValue();
+        }
+
+        Long undelivered = balanceTemplate.execute(
+                UNDELIVERED_PROBE_SPRING_SCRIPT,
+                SCRIPT_ARGS_SERIALIZER,
+                SCRIPT_ARGS_SERIALIZER,
+                List.of(streamKey),
+                group.lastDeliveredId(),
+                String.valueOf(probeLimit)
+        );
+
+        return undelivered == null ? 0 : undelivered;
+    }
+
+    @Override
+    public TrimResult trimAcknowledged() {
+        TrimResult total = TrimResult.NONE;
+
+        for (String streamKey : stagingStreams()) {
+            try {
+                total = total.plus(runTrim(TRIM_ACKNOWLEDGED_SPRING_SCRIPT, streamKey));
+            } catch (Exception e) {
+                log.error("Failed to trim acknowledged entries of {}", streamKey, e);
+            }
+        }
+
+        return total;
+    }
+
+    @Override
+    public TrimResult trimDlq(Duration maxAge, long maxLength) {
+        long oldestKept = Math.max(0, System.currentTimeMillis() - maxAge.toMillis());
+        return runTrim(TRIM_RETENTION_SPRING_SCRIPT, DLQ_STREAM_KEY, oldestKept + "-0", String.valueOf(maxLength));
+    }
+
+    @SuppressWarnings("rawtypes")
+    private TrimResult runTrim(RedisScript<List> script, String streamKey, Object... args) {
+        List<?> reply = balanceTemplate.execute(
+                script,
+                SCRIPT_ARGS_SERIALIZER,
+                SCRIPT_ARGS_SERIALIZER,
+                List.of(streamKey),
+                args
+        );
+
+        if (reply == null || reply.size() < 3) {
+            return TrimResult.NONE;
+        }
+
+        long trimmed = toLong(reply.get(0));
+        // Sampled estimates can grow slightly even when entries were removed
+        long reclaimed = Math.max(0, toLong(reply.get(1)) - toLong(reply.get(2)));
+        return new TrimResult(trimmed, reclaimed);
+    }
+
     @Override
     public AckResult acknowledgePersisted(List<StreamEnvelope<TransactionRequest>> batch) {
         if (batch.isEmpty()) return new AckResult(0, 0, List.of(), true, null);
 
-        List<RecordId> recordIds = batch.stream()
-                .map(env -> RecordId.of(env.streamId()))
-                .toList();
+        Map<String, List<RecordId>> recordIdsByStream = batch.stream()
+                .collect(Collectors.groupingBy(
+                        StreamEnvelope::streamKey,
+                        Collectors.mapping(env -> RecordId.of(env.streamId()), Collectors.toList())
+                ));
+
+        int requested = batch.size();
 
         try {
 
-            Long ackCountObj = balanceTemplate.opsForStream().acknowledge(STREAM_KEY, STREAM_GROUP, recordIds.toArray(RecordId[]::new));
-            log.debug("Acknowledged {} stream entries", ackCountObj);
+            int acked = 0;
 
-            int requested = recordIds.size();
-            int acked = ackCountObj == null ? 0 : ackCountObj.intValue();
+            for (Map.Entry<String, List<RecordId>> entry : recordIdsByStream.entrySet()) {
+                Long ackCountObj = balanceTemplate.opsForStream().acknowledge(
+                        entry.getKey(), STREAM_GROUP, entry.getValue().toArray(RecordId[]::new));
+                acked += ackCountObj == null ? 0 : ackCountObj.intValue();
+            }
+
+            log.debug("Acknowledged {} stream entries", acked);
 
             if (acked != requested) {
                 List<String> attemptedIds = batch.stream().map(StreamEnvelope::streamId).toList();
@@ -401,7 +1637,7 @@ public class RedisServiceImp implements RedisService {
         } catch (Exception e) {
             log.error("Error acknowledging stream entries", e);
 
-            return new AckResult(recordIds.size(), 0,
+            return new AckResult(requested, 0,
                     batch.stream().map(StreamEnvelope::streamId).toList(),
                     false, e.getMessage());
         }
@@ -410,24 +1646,35 @@ public class RedisServiceImp implements RedisService {
     @Override
     public void moveToDlqAndAck(StreamEnvelope<TransactionRequest> failed, String reason) {
         try {
-            balanceTemplate.opsForStream().add(
+            // The payload is copied byte for byte, whatever format it was staged in
+            streamTemplate.opsForStream().add(
                     DLQ_STREAM_KEY,
                     Map.of(
-                            "streamId", failed.streamId(),
-                            PAYLOAD, failed.rawJson() != null ? failed.rawJson() : "null",
-                            "reason", reason,
-                            "timestamp", System.currentTimeMillis() + ""
+                            "streamId", utf8(failed.streamId()),
+                            PAYLOAD, failed.rawPayload() != null ? failed.rawPayload() : utf8("null"),
+                            "reason", utf8(reason),
+                            "timestamp", utf8(System.currentTimeMillis() + "")
                     )
             );
             log.warn("Moved stream record {} to DLQ: {}", failed.streamId(), reason);
 
-            balanceTemplate.opsForStream().acknowledge(STREAM_KEY, STREAM_GROUP, RecordId.of(failed.streamId()));
+            balanceTemplate.opsForStream().acknowledge(failed.streamKey(), STREAM_GROUP, RecordId.of(failed.streamId()));
             log.debug("Acknowledged failed entry {}", failed.streamId());
         } catch (Exception e) {
             log.error("Error moving record to DLQ: {}", failed.streamId(), e);
         }
     }
 
+    private static long toLong(Object value) {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof byte[] bytes) {
+            return Long.parseLong(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return value == null ? 0 : Long.parseLong(value.toString());
+    }
+
     @Override
     public void markBatchProgress(String batchId, int ackedCount) {
 
@@ -435,116 +1682,73 @@ public class RedisServiceImp implements RedisService {
             return;
         }
 
-        String key = BATCH_META_PREFIX + batchId;
+        int shard = keyspace.shardOfBatch(batchId);
 
         balanceTemplate.execute(
                 MARK_PROGRESS_SPRING_SCRIPT,
-                List.of(key, BATCH_DONE_STREAM),
+                List.of(keyspace.key(batchMetaKey(batchId), shard), keyspace.key(BATCH_DONE_STREAM, shard)),
                 batchId,
-                String.valueOf(ackedCount)
+                String.valueOf(ackedCount),
+                String.valueOf(BATCH_META_TTL.toSeconds())
         );
 
-        balanceTemplate.expire(key, BATCH_META_TTL);
-
     }
 
     @Override
     public boolean awaitBatchCompletion(String batchId, Duration timeout) {
-
-        String metaKey = batchMetaKey(batchId);
-        long deadlineNanos = System.nanoTime() + timeout.toNanos();
-
-        if (isBatchDone(metaKey)) {
-            return true;
-        }
-
-        while (System.nanoTime() < deadlineNanos) {
-            long remainingNanos = deadlineNanos - System.nanoTime();
-
-            if (remainingNanos <= 0) {
-                return false;
-            }
-
-            Duration remaining = Duration.ofNanos(remainingNanos);
-            Duration block = remaining.compareTo(MAX_AWAIT_BLOCK_SLICE) > 0 ? MAX_AWAIT_BLOCK_SLICE : remaining;
-
-            List<MapRecord<String, Object, Object>> events = balanceTemplate.opsForStream().read(
-                    StreamReadOptions.empty().count(100).block(block),
-                    StreamOffset.create(BATCH_DONE_STREAM, ReadOffset.latest())
-            );
-
-            // Re-check hash status every loop. This prevents missed event-edge cases
-            if (isBatchDone(metaKey)) {
-                return true;
-            }
-
-            if (events == null || events.isEmpty()) {
-                continue;
-            }
-
-            for (MapRecord<String, Object, Object> event : events) {
-                String eventBatchId = asString(event.getValue().get(BATCH_ID_FIELD));
-                String eventStatus = asString(event.getValue().get(STATUS_FIELD));
-
-                if (batchId.equals(eventBatchId) && DONE_STATUS.equals(eventStatus)) {
-                    return true;
-                }
-            }
-        }
-
-        return false;
+        return awaitBatchCompletionAsync(batchId, timeout).join();
     }
 
     @Override
-    public BatchToken createBatchToken() {
-        String batchId = UUID.randomUUID().toString();
-        String key = batchMetaKey(batchId);
-
-        balanceTemplate.opsForHash().putAll(key, Map.of(
-                "expected", "0",
-                "processed", "0",
-                STATUS_FIELD, "PENDING"
-        ));
-
-        balanceTemplate.expire(key, BATCH_META_TTL);
-
-        return new BatchToken(batchId, 0);
-    }
+    public CompletableFuture<Boolean> awaitBatchCompletionAsync(String batchId, Duration timeout) {
+        List<String> shardBatchIds = keyspace.shardBatchIds(batchId);
 
-    @Override
-    public void setBatchExpectedCount(String batchId, int expectedCount) {
-
-        if (expectedCount < 0) {
-            throw new IllegalArgumentException("expectedCount must be >= 0");
+        if (shardBatchIds.size() == 1) {
+            return batchCompletionDispatcher.register(shardBatchIds.getFirst(), timeout);
         }
 
-        String key = batchMetaKey(batchId);
-
-        balanceTemplate.execute(
-                SET_EXPECTED_SPRING_SCRIPT,
-                List.of(key, BATCH_DONE_STREAM),
-                batchId,
-                String.valueOf(expectedCount)
-        );
+        // A sharded batch is done once every shard it touched has persisted its part
+        List<CompletableFuture<Boolean>> parts = shardBatchIds.stream()
+                .map(id -> batchCompletionDispatcher.register(id, timeout))
+                .toList();
 
-        balanceTemplate.expire(key, BATCH_META_TTL);
+        return CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new))
+                .thenApply(_ -> parts.stream().allMatch(CompletableFuture::join));
     }
 
     @Override
-    public void syncRedisBalances(Map<UUID, BigDecimal> netChanges) {
-        if (netChanges.isEmpty()) return;
+    public void settle(Settlement settlement) {
+        if (settlement.isEmpty()) return;
+        requireKeyEncoding();
+
+        Map<Integer, List<UUID>> accountsByShard = settlement.accountIds().stream()
+                .collect(Collectors.groupingBy(keyspace::shardOf));
+        String markerTtl = String.valueOf(settlementMarkerTtl.toSeconds());
 
         balanceTemplate.executePipelined(new SessionCallback<>() {
             @Override
             public Object execute(@NonNull RedisOperations operations) {
-                netChanges.forEach((accountId, delta) -> {
-                    BigDecimal normalizedDelta = MoneyUtil.format(delta);
+                accountsByShard.forEach((shard, accountIds) -> {
+                    List<Object> args = new ArrayList<>(1 + accountIds.size() * 3);
+                    args.add(markerTtl);
+
+                    for (UUID accountId : accountIds) {
+                        long committed = MoneyUtil.toMinorUnits(settlement.committed().getOrDefault(accountId, BigDecimal.ZERO));
+                        long released = MoneyUtil.toMinorUnits(settlement.released().getOrDefault(accountId, BigDecimal.ZERO));
+
+                        args.add(fieldCodec.account(accountId));
+                        args.add(String.valueOf(committed));
+                        args.add(String.valueOf(-(committed + released)));
+                    }
 
                     operations.execute(
                             SETTLE_SPRING_SCRIPT,
-                            List.of(DB_SNAPSHOT_KEY, PENDING_DELTA_KEY),
-                            accountId.toString(),
-                            normalizedDelta.toPlainString()
+                            SCRIPT_ARGS_SERIALIZER,
+                            StringRedisSerializer.UTF_8,
+                            List.of(keyspace.key(DB_SNAPSHOT_KEY, shard),
+                                    keyspace.key(PENDING_DELTA_KEY, shard),
+                                    keyspace.key(SETTLEMENT_MARKER_PREFIX + settlement.id(), shard)),
+                            args.toArray()
                     );
                 });
 
@@ -563,45 +1767,98 @@ public class RedisServiceImp implements RedisService {
     }
 
     private TransactionRequest parsePayload(MapRecord<String, Object, Object> entry) throws IOException {
-        String payloadJson = asString(entry.getValue().get(PAYLOAD));
-        if (payloadJson == null || payloadJson.isBlank()) {
+        byte[] payload = payloadBytes(entry);
+        if (payload == null || payload.length == 0) {
             throw new IllegalArgumentException("Missing payload for stream entry " + entry.getId().getValue());
         }
-        return objectMapper.readValue(payloadJson, TransactionRequest.class);
+        return codec.decode(payload);
     }
 
+    private byte[] payloadBytes(MapRecord<String, Object, Object> entry) {
+        Object payload = entry.getValue().get(PAYLOAD);
+        return switch (payload) {
+            case null -> null;
+            case byte[] bytes -> bytes;
+            default -> utf8(String.valueOf(payload));
+        };
+    }
 
-    private boolean isBatchDone(String metaKey) {
-        String currentStatus = asString(balanceTemplate.opsForHash().get(metaKey, STATUS_FIELD));
-        return DONE_STATUS.equals(currentStatus);
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
     }
 
     private String batchMetaKey(String batchId) {
         return BATCH_META_PREFIX + batchId;
     }
 
-    private void handleScriptResult(String result, TransactionRequest
-            request, List<TransactionRequest> okList, List<TransactionRequest> nsfList) {
+    /**
+     * Packs a chunk into the flat argument layout expected by {@code LEDGER_BATCH_SCRIPT}.
+     */
+    private Object[] packChunk(List<TransactionRequest> chunk, String batchId, int shard, String mode) {
+        Object[] args = new Object[5 + chunk.size() * 8];
+        args[0] = batchId;
+        args[1] = String.valueOf(BATCH_META_TTL.toSeconds());
+        args[2] = mode;
+        // A bucket must outlive the window that still reads it
+        args[3] = String.valueOf(idempotencyLookback.plus(idempotencyBucket).toSeconds());
+        args[4] = String.valueOf(keyspace.partitions());
+
+        int i = 5;
+        for (TransactionRequest request : chunk) {
+            boolean checkNsf = switch (request.getType()) {
+                case DEPOSIT, WITHDRAWAL_SETTLE, WITHDRAWAL_RELEASE -> false;
+                default -> true;
+            };
+
+            args[i++] = fieldCodec.idempotency(request.getReferenceId(), request.getType());
+            args[i++] = fieldCodec.account(request.getDebitAccountId());
+            args[i++] = String.valueOf(MoneyUtil.toMinorUnits(request.getAmount()));
+            args[i++] = fieldCodec.account(request.getCreditAccountId());
+            args[i++] = codec.encode(request);
+            args[i++] = checkNsf ? "1" : "0";
+            args[i++] = keyspace.shardOf(request.getCreditAccountId()) == shard ? "1" : "0";
+            args[i++] = String.valueOf(keyspace.partitionOf(request.getDebitAccountId()));
+        }
+
+        return args;
+    }
+
+    private void handleScriptResult(char result, TransactionRequest request, List<TransactionRequest> okList,
+                                    List<TransactionRequest> nsfList, List<TransactionRequest> overflowList) {
         switch (result) {
-            case "OK":
+            case 'O':
                 okList.add(request);
                 break;
-            case "DUPLICATE":
+            case 'D':
                 break;
-            case "NSF":
+            case 'N':
                 log.warn("Insufficient funds for transaction {}", request.getReferenceId());
                 nsfList.add(request);
                 break;
+            case 'V':
+                log.warn("Balance would leave minor-unit range for transaction {}", request.getReferenceId());
+                overflowList.add(request);
+                break;
             default:
                 throw new RedisException("Unexpected Redis response: " + result);
         }
     }
 
-    private String serialize(TransactionRequest transaction) {
-        try {
-            return objectMapper.writeValueAsString(transaction);
-        } catch (Exception e) {
-            throw new SerializationFailedException("Serialization failed", e);
+    /**
+     * Result codes of one round of staging script calls on a shard, one string per call.
+     */
+    private record ShardRound(List<String> codes, boolean durable) {
+    }
+
+    /**
+     * Commands the Lettuce version in use may not define yet.
+     */
+    private enum DurabilityCommand implements ProtocolKeyword {
+        WAITAOF;
+
+        @Override
+        public byte[] getBytes() {
+            return name().getBytes(StandardCharsets.US_ASCII);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,282 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.core.config.IngestionAckMode;
+import com.openfashion.ledgerservice.core.exceptions.DbTimeoutException;
+import com.openfashion.ledgerservice.core.exceptions.StagingDurabilityException;
+import com.openfashion.ledgerservice.core.exceptions.StagingFailedException;
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.dto.consumer.StagedBatch;
+import com.openfashion.ledgerservice.dto.consumer.StagingTicket;
+import com.openfashion.ledgerservice.dto.redis.DurabilityRequirement;
+import com.openfashion.ledgerservice.model.TransactionStatus;
+import com.openfashion.ledgerservice.service.IngestionController;
+import com.openfashion.ledgerservice.service.LedgerBatchService;
+import com.openfashion.ledgerservice.service.RedisService;
+import com.openfashion.ledgerservice.service.StagingCoalescer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Single-flusher coalescer in front of Redis staging.
+ *
+ * <p>The flusher thread waits for the first submission, then keeps collecting until either
+ * the controller's current batch size is buffered or {@code linger} has elapsed. The merged
+ * batch is staged on a virtual thread once an in-flight slot is free, so the next window can
+ * start filling immediately while the number of unpersisted batches stays bounded.
+ *
+ * <p>With {@code ack-mode=STAGED} the persisted signal of a ticket fires once Redis has accepted
+ * (and, if configured, durably stored) the batch, not once Postgres has it.
+ *
+ * <p>Key ordering is preserved: Parallel Consumer never has two records of one key in flight,
+ * so concurrently staged batches cannot reorder them.
+ */
+@Service
+@Slf4j
+public class StagingCoalescerImp implements StagingCoalescer {
+
+    private static final Duration PERSIST_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration IDLE_POLL = Duration.ofSeconds(1);
+
+    private final RedisService redisService;
+    private final LedgerBatchService ledgerBatchService;
+    private final IngestionController ingestionController;
+    private final Duration linger;
+    private final IngestionAckMode ackMode;
+    private final DurabilityRequirement durability;
+
+    private final BlockingQueue<Submission> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService stagingExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile boolean running;
+    private Thread flusher;
+
+    public StagingCoalescerImp(
+            RedisService redisService,
+            LedgerBatchService ledgerBatchService,
+            IngestionController ingestionController,
+            @Value("${ledger.ingestion.coalescer.linger:5ms}") Duration linger,
+            @Value("${ledger.ingestion.ack-mode:PERSISTED}") IngestionAckMode ackMode,
+            @Value("${ledger.ingestion.durability.replicas:0}") int durabilityReplicas,
+            @Value("${ledger.ingestion.durability.wait-aof:false}") boolean durabilityWaitAof,
+            @Value("${ledger.ingestion.durability.timeout:1s}") Duration durabilityTimeout
+    ) {
+        this.redisService = redisService;
+        this.ledgerBatchService = ledgerBatchService;
+        this.ingestionController = ingestionController;
+        this.linger = linger;
+        this.ackMode = ackMode;
+        // Only a staged ack relies on Redis alone; a persisted ack waits for Postgres anyway
+        this.durability = ackMode == IngestionAckMode.STAGED
+                ? new DurabilityRequirement(durabilityReplicas, durabilityWaitAof, durabilityTimeout)
+                : DurabilityRequirement.NONE;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = Thread.ofPlatform()
+                .daemon()
+                .name("ledger-staging-coalescer")
+                .start(this::runLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+
+        if (flusher != null) {
+            flusher.interrupt();
+        }
+
+        List<Submission> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(submission -> submission.fail(new DbTimeoutException()));
+        stagingExecutor.shutdown();
+    }
+
+    @Override
+    public StagingTicket submit(List<TransactionRequest> requests) {
+        if (requests.isEmpty()) {
+            return StagingTicket.completed();
+        }
+
+        if (!running) {
+            CompletableFuture<Void> failed = CompletableFuture.failedFuture(new DbTimeoutException());
+            return new StagingTicket(failed, failed);
+        }
+
+        StagingTicket ticket = new StagingTicket(new CompletableFuture<>(), new CompletableFuture<>());
+        queue.add(new Submission(requests, ticket));
+        return ticket;
+    }
+
+    private void runLoop() {
+        Submission carryOver = null;
+
+        while (running) {
+            List<Submission> window = new ArrayList<>();
+
+            try {
+                Submission first = carryOver != null
+                        ? carryOver
+                        : queue.poll(IDLE_POLL.toMillis(), TimeUnit.MILLISECONDS);
+                carryOver = null;
+
+                if (first == null) continue;
+
+                int maxRecords = ingestionController.batchSize();
+                window.add(first);
+                int size = first.requests().size();
+                long deadline = System.nanoTime() + linger.toNanos();
+
+                while (size < maxRecords) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+
+                    Submission next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+
+                    // Keep the merged batch within the tuned size; the overflow opens the next window
+                    if (size + next.requests().size() > maxRecords) {
+                        carryOver = next;
+                        break;
+                    }
+
+                    window.add(next);
+                    size += next.requests().size();
+                }
+
+                ingestionController.acquireSlot();
+                try {
+                    stagingExecutor.execute(() -> flush(window));
+                } catch (RejectedExecutionException e) {
+                    ingestionController.releaseSlot();
+                    throw e;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                window.forEach(submission -> submission.fail(new DbTimeoutException()));
+                if (carryOver != null) {
+                    carryOver.fail(new DbTimeoutException());
+                }
+                return;
+            } catch (RejectedExecutionException e) {
+                log.warn("Staging executor rejected a coalesced batch during shutdown");
+                window.forEach(submission -> submission.fail(new DbTimeoutException()));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stages one merged batch and fans the outcome back out to every contributing submission.
+     */
+    private void flush(List<Submission> window) {
+        List<TransactionRequest> merged = new ArrayList<>();
+        window.forEach(submission -> merged.addAll(submission.requests()));
+
+        boolean slotHandedOff = false;
+
+        try {
+            log.info("Staging coalesced batch of {} records from {} polls", merged.size(), window.size());
+
+            long stageStart = System.nanoTime();
+
+            // Meta hash init, staging and expected-count sealing happen in the same script calls,
+            // followed by the durability wait on the same per-shard connections
+            StagedBatch staged = redisService.stageBatch(merged, durability);
+
+            int okCount = staged.accepted().size();
+
+            ingestionController.recordLatency(IngestionController.Stage.REDIS_STAGE,
+                    Duration.ofNanos(System.nanoTime() - stageStart));
+
+            // A submission with a request from a shard that failed to stage is retried as a whole
+            Set<TransactionRequest> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+            failed.addAll(staged.failed());
+
+            List<Submission> stagedWindow = new ArrayList<>(window.size());
+            for (Submission submission : window) {
+                if (submission.requests().stream().anyMatch(failed::contains)) {
+                    submission.fail(new StagingFailedException());
+                } else {
+                    stagedWindow.add(submission);
+                }
+            }
+
+            stagedWindow.forEach(submission -> submission.ticket().staged().complete(null));
+
+            // Rejections are written to Postgres while the accepted records are being persisted
+            CompletableFuture<Void> nsfPersisted = CompletableFuture.runAsync(() -> {
+                ledgerBatchService.persistRejected(staged.nsf(), TransactionStatus.REJECTED_NSF);
+                ledgerBatchService.persistRejected(staged.overflow(), TransactionStatus.REJECTED_VALIDATION);
+            }, stagingExecutor);
+
+            long waitStart = System.nanoTime();
+
+            boolean awaitsPersistence = okCount > 0 && ackMode == IngestionAckMode.PERSISTED;
+
+            CompletableFuture<Boolean> persisted;
+
+            if (okCount == 0) {
+                persisted = CompletableFuture.completedFuture(true);
+            } else if (awaitsPersistence) {
+                persisted = redisService.awaitBatchCompletionAsync(staged.batchId(), PERSIST_TIMEOUT);
+            } else {
+                // Staged ack: the batch is done once Redis has it durably; RedisProcessor drains it later
+                persisted = staged.durable()
+                        ? CompletableFuture.completedFuture(true)
+                        : CompletableFuture.failedFuture(new StagingDurabilityException());
+            }
+            slotHandedOff = true;
+
+            persisted.thenCombine(nsfPersisted, (success, ignored) -> success)
+                    .whenComplete((success, error) -> {
+                        ingestionController.releaseSlot();
+
+                        if (awaitsPersistence) {
+                            ingestionController.recordLatency(IngestionController.Stage.DONE_WAIT,
+                                    Duration.ofNanos(System.nanoTime() - waitStart));
+                        }
+
+                        stagedWindow.forEach(submission -> {
+                            if (error == null && Boolean.TRUE.equals(success)) {
+                                submission.ticket().persisted().complete(null);
+                            } else {
+                                submission.ticket().persisted().completeExceptionally(
+                                        error != null ? error : new DbTimeoutException());
+                            }
+                        });
+                    });
+        } catch (Exception e) {
+            log.error("Failed to stage coalesced batch of {} records", merged.size(), e);
+            window.forEach(submission -> submission.fail(e));
+        } finally {
+            if (!slotHandedOff) {
+                ingestionController.releaseSlot();
+            }
+        }
+    }
+
+    /**
+     * Validated requests of one poll context and the ticket its caller waits on.
+     */
+    private record Submission(List<TransactionRequest> requests, StagingTicket ticket) {
+
+        void fail(Throwable error) {
+            ticket.staged().completeExceptionally(error);
+            ticket.persisted().completeExceptionally(error);
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Spreads the staging stream partitions over the live ledger nodes.
+ *
+ * <p>Every node heartbeats into the {@code ledger:stream:workers} sorted set (score = last beat)
+ * and drops members whose beat is older than {@code ledger.redis.workers.ttl}. Each partition is
+ * owned by the live node with the highest rendezvous hash for it, so all nodes agree on the
+ * assignment without coordinating, and a node joining or leaving only moves the partitions it
+ * wins or loses.
+ *
+ * <p>While nodes disagree about membership (for up to one TTL), two nodes may both think they own
+ * a partition. Only the holder of its lease ({@code ledger:stream:lease:<stream>}, also kept for
+ * one TTL) reads or commits its entries, so a partition changes hands only once the previous
+ * owner has finished its batch in hand and let go, or has died and let the lease lapse; entries
+ * pending on a node that died are claimed by the new owner.
+ */
+@Component
+@Slf4j
+public class StreamPartitionAssignor {
+
+    private static final String WORKERS_KEY = "ledger:stream:workers";
+    private static final String LEASE_PREFIX = "ledger:stream:lease:";
+
+    // KEYS[1]=lease, ARGV[1]=nodeId, ARGV[2]=ttlMillis
+    private static final RedisScript<Long> HOLD_LEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                redis.call('PEXPIRE', KEYS[1], ARGV[2])
+                return 1
+            end
+            if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    // KEYS[1]=lease, ARGV[1]=nodeId
+    private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final RedisTemplate<String, String> balanceTemplate;
+    private final Duration ttl;
+    private final String nodeId;
+
+    public StreamPartitionAssignor(
+            RedisTemplate<String, String> balanceTemplate,
+            @Value("${ledger.redis.workers.ttl:10s}") Duration ttl,
+            @Value("${ledger.redis.workers.node-id:}") String nodeId) {
+        this.balanceTemplate = balanceTemplate;
+        this.ttl = ttl;
+        this.nodeId = nodeId.isBlank() ? resolveNodeId() : nodeId;
+
+        log.info("Stream partition assignor node id: {}", nodeId);
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Records this node as alive and returns the partitions it owns.
+     *
+     * @param streams every staging stream partition
+     * @return the subset this node should drain
+     */
+    public List<String> heartbeatAndAssign(List<String> streams) {
+        long now = System.currentTimeMillis();
+
+        balanceTemplate.opsForZSet().add(WORKERS_KEY, nodeId, now);
+        balanceTemplate.opsForZSet().removeRangeByScore(WORKERS_KEY, Double.NEGATIVE_INFINITY, now - ttl.toMillis());
+
+        Set<String> live = balanceTemplate.opsForZSet().rangeByScore(WORKERS_KEY, now - ttl.toMillis(), Double.POSITIVE_INFINITY);
+        List<String> nodes = new ArrayList<>(live == null ? Set.of() : live);
+
+        if (!nodes.contains(nodeId)) {
+            nodes.add(nodeId);
+        }
+
+        return streams.stream()
+                .filter(stream -> nodeId.equals(owner(stream, nodes)))
+                .toList();
+    }
+
+    /**
+     * Takes the lease of a partition, or renews it when this node already holds it.
+     *
+     * @return whether this node holds the lease for another TTL
+     */
+    public boolean holdLease(String streamKey) {
+        Long held = balanceTemplate.execute(
+                HOLD_LEASE_SCRIPT,
+                List.of(LEASE_PREFIX + streamKey),
+                nodeId,
+                String.valueOf(ttl.toMillis()));
+        return held != null && held == 1;
+    }
+
+    /**
+     * Gives up the lease of a partition if this node still holds it, so the new owner can start
+     * without waiting for it to lapse.
+     */
+    public void releaseLease(String streamKey) {
+        try {
+            balanceTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(LEASE_PREFIX + streamKey), nodeId);
+        } catch (Exception e) {
+            log.warn("Could not release the lease on {}; it lapses after {}", streamKey, ttl, e);
+        }
+    }
+
+    /**
+     * Leaves the membership so the remaining nodes take over without waiting for the TTL.
+     */
+    @PreDestroy
+    public void leave() {
+        try {
+            balanceTemplate.opsForZSet().remove(WORKERS_KEY, nodeId);
+        } catch (Exception e) {
+            log.warn("Could not remove {} from {}", nodeId, WORKERS_KEY, e);
+        }
+    }
+
+    private static String owner(String stream, List<String> nodes) {
+        String owner = null;
+        long best = Long.MIN_VALUE;
+
+        for (String node : nodes) {
+            long weight = mix(node.hashCode() * 31L + stream.hashCode());
+
+            // Ties are broken by node id so every node picks the same owner
+            if (owner == null || weight > best || (weight == best && node.compareTo(owner) < 0)) {
+                owner = node;
+                best = weight;
+            }
+        }
+        return owner;
+    }
+
+    /**
+     * SplitMix64 finalizer; {@code String.hashCode} is stable across JVMs, so the weights are too.
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static String resolveNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName() + "-" + ProcessHandle.current().pid();
+        } catch (UnknownHostException _) {
+            return "ledger-node-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+    }
+}
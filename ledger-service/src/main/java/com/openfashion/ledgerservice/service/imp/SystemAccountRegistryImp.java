@@ -0,0 +1,90 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.core.exceptions.MissingSystemAccountException;
+import com.openfashion.ledgerservice.model.Account;
+import com.openfashion.ledgerservice.model.CurrencyType;
+import com.openfashion.ledgerservice.repository.AccountRepository;
+import com.openfashion.ledgerservice.service.SystemAccountRegistry;
+import com.openfashion.ledgerservice.service.strategy.LedgerStrategy;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Startup-loaded system account registry backed by an {@link EnumMap} per currency.
+ *
+ * <p>The whole map is rebuilt on refresh and published through a single reference swap,
+ * so readers never observe a partially loaded registry.
+ */
+@Service
+@Slf4j
+public class SystemAccountRegistryImp implements SystemAccountRegistry {
+
+    private static final Set<String> REQUIRED_NAMES =
+            Set.of(LedgerStrategy.WORLD_LIQUIDITY_ACC, LedgerStrategy.PENDING_WITHDRAWAL_ACC);
+
+    private final AccountRepository accountRepository;
+    private final Set<CurrencyType> currencies;
+    private final AtomicReference<Map<CurrencyType, Map<String, UUID>>> registry =
+            new AtomicReference<>(Collections.unmodifiableMap(new EnumMap<>(CurrencyType.class)));
+
+    public SystemAccountRegistryImp(AccountRepository accountRepository,
+                                    @Value("${ledger.system-accounts.currencies:USD,EUR,RON}") Set<CurrencyType> currencies) {
+        this.accountRepository = accountRepository;
+        this.currencies = currencies.isEmpty() ? EnumSet.noneOf(CurrencyType.class) : EnumSet.copyOf(currencies);
+    }
+
+    /**
+     * Loads the registry at boot; a missing required account fails application startup.
+     */
+    @PostConstruct
+    public void init() {
+        refresh();
+    }
+
+    @Override
+    public Optional<UUID> find(String name, CurrencyType currency) {
+        Map<String, UUID> byName = registry.get().get(currency);
+        return byName == null ? Optional.empty() : Optional.ofNullable(byName.get(name));
+    }
+
+    @Override
+    public Map<CurrencyType, Map<String, UUID>> snapshot() {
+        return registry.get();
+    }
+
+    @Override
+    public void refresh() {
+        if (currencies.isEmpty()) {
+            log.warn("No currencies configured for system account registry");
+            return;
+        }
+
+        Map<CurrencyType, Map<String, UUID>> loaded = new EnumMap<>(CurrencyType.class);
+
+        for (Account account : accountRepository.findByNameInAndCurrencyIn(REQUIRED_NAMES, currencies)) {
+            loaded.computeIfAbsent(account.getCurrency(), _ -> new HashMap<>())
+                    .put(account.getName(), account.getId());
+        }
+
+        for (CurrencyType currency : currencies) {
+            Map<String, UUID> byName = loaded.getOrDefault(currency, Map.of());
+
+            for (String name : REQUIRED_NAMES) {
+                if (!byName.containsKey(name)) {
+                    throw new MissingSystemAccountException(name + " (" + currency + ")");
+                }
+            }
+
+            loaded.put(currency, Map.copyOf(byName));
+        }
+
+        registry.set(Collections.unmodifiableMap(loaded));
+
+        log.info("System account registry loaded for currencies {}", currencies);
+    }
+}
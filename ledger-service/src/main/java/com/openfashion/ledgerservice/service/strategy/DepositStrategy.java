@@ -2,10 +2,10 @@ package com.openfashion.ledgerservice.service.strategy;
 
 import com.openfashion.ledgerservice.core.util.MoneyUtil;
 import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.dto.consumer.ResolvedAccounts;
 import com.openfashion.ledgerservice.dto.event.TransactionInitiatedEvent;
 import com.openfashion.ledgerservice.dto.event.TransactionPayload;
 import com.openfashion.ledgerservice.model.TransactionType;
-import com.openfashion.ledgerservice.repository.AccountRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -18,11 +18,6 @@ import java.math.BigDecimal;
 @Slf4j
 public class DepositStrategy extends LedgerStrategy {
 
-    public DepositStrategy(AccountRepository accountRepository) {
-        super(accountRepository);
-    }
-
-
     /**
      * Supports {@code DEPOSIT} transaction type.
      */
@@ -45,7 +40,7 @@ public class DepositStrategy extends LedgerStrategy {
      * debit = {@code WORLD_LIQUIDITY}, credit = receiver user account.
      */
     @Override
-    public TransactionRequest mapToRequest(TransactionInitiatedEvent event) {
+    public TransactionRequest mapToRequest(TransactionInitiatedEvent event, ResolvedAccounts accounts) {
 
         TransactionPayload payload = event.payload();
 
@@ -56,8 +51,8 @@ public class DepositStrategy extends LedgerStrategy {
         request.setReceiverId(payload.receiverId());
         request.setAmount(MoneyUtil.format(payload.amount()));
         request.setCurrency(payload.currency());
-        request.setDebitAccountId(resolveSystemAccount(WORLD_LIQUIDITY_ACC, payload.currency()));
-        request.setCreditAccountId(resolveUserAccount(payload.receiverId(), payload.currency()));
+        request.setDebitAccountId(resolveSystemAccount(accounts, WORLD_LIQUIDITY_ACC, payload.currency()));
+        request.setCreditAccountId(resolveUserAccount(accounts, payload.receiverId(), payload.currency()));
 
         log.info("Mapped Deposit for reference: {}: {} {}",
                 event.referenceId(), payload.amount(), payload.currency());
@@ -5,13 +5,12 @@ import com.openfashion.ledgerservice.core.exceptions.AccountNotFoundException;
 import com.openfashion.ledgerservice.core.exceptions.MissingSystemAccountException;
 import com.openfashion.ledgerservice.core.util.MoneyUtil;
 import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.dto.consumer.AccountRef;
+import com.openfashion.ledgerservice.dto.consumer.ResolvedAccounts;
 import com.openfashion.ledgerservice.dto.event.TransactionInitiatedEvent;
-import com.openfashion.ledgerservice.model.Account;
 import com.openfashion.ledgerservice.model.AccountStatus;
 import com.openfashion.ledgerservice.model.CurrencyType;
 import com.openfashion.ledgerservice.model.TransactionType;
-import com.openfashion.ledgerservice.repository.AccountRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.UUID;
@@ -21,14 +20,13 @@ import java.util.UUID;
  *
  * <p>Each implementation owns mapping rules for a specific {@code TransactionType}
  * (or set of related types) and resolves concrete account ids before persistence.
+ * Account ids come from a {@link ResolvedAccounts} view loaded once per poll batch.
  */
-@RequiredArgsConstructor
 @Slf4j
 public abstract class LedgerStrategy {
 
-    protected final AccountRepository accountRepository;
-    protected static final String PENDING_WITHDRAWAL_ACC = "PENDING_WITHDRAWAL";
-    protected static final String WORLD_LIQUIDITY_ACC = "WORLD_LIQUIDITY";
+    public static final String PENDING_WITHDRAWAL_ACC = "PENDING_WITHDRAWAL";
+    public static final String WORLD_LIQUIDITY_ACC = "WORLD_LIQUIDITY";
 
     /**
      * Returns whether this strategy handles the given transaction type.
@@ -43,36 +41,36 @@ public abstract class LedgerStrategy {
     /**
      * Maps an inbound event into a normalized request with resolved debit/credit account ids.
      *
+     * @param accounts batch-scoped account view used instead of per-event lookups
      * @throws com.openfashion.ledgerservice.core.exceptions.AccountNotFoundException
      * when a user account cannot be resolved
      * @throws com.openfashion.ledgerservice.core.exceptions.MissingSystemAccountException
      * when a required system account is missing
      */
-    public abstract TransactionRequest mapToRequest(TransactionInitiatedEvent event);
+    public abstract TransactionRequest mapToRequest(TransactionInitiatedEvent event, ResolvedAccounts accounts);
 
     /**
      * Resolves user account id for a currency.
      */
-    protected UUID resolveUserAccount(UUID userId, CurrencyType currencyType) {
+    protected UUID resolveUserAccount(ResolvedAccounts accounts, UUID userId, CurrencyType currencyType) {
 
-        Account account = accountRepository.findByUserIdAndCurrency(userId, currencyType)
+        AccountRef account = accounts.userAccount(userId, currencyType)
                 .orElseThrow(() -> new AccountNotFoundException(userId));
 
-        if (account.getStatus() != AccountStatus.ACTIVE) {
-            throw new AccountInactiveException(account.getId());
+        if (account.status() != AccountStatus.ACTIVE) {
+            throw new AccountInactiveException(account.id());
         }
 
-        return account.getId();
+        return account.id();
 
     }
 
     /**
      * Resolves system account id by logical name and currency.
      */
-    protected UUID resolveSystemAccount(String systemAccountName, CurrencyType currencyType) {
-        return accountRepository.findByNameAndCurrency(systemAccountName, currencyType)
-                .orElseThrow(() -> new MissingSystemAccountException(systemAccountName))
-                .getId();
+    protected UUID resolveSystemAccount(ResolvedAccounts accounts, String systemAccountName, CurrencyType currencyType) {
+        return accounts.systemAccount(systemAccountName, currencyType)
+                .orElseThrow(() -> new MissingSystemAccountException(systemAccountName));
     }
 
     protected TransactionType resolveTransactonType(TransactionInitiatedEvent event) {
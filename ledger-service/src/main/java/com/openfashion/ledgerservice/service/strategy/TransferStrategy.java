@@ -1,10 +1,10 @@
 package com.openfashion.ledgerservice.service.strategy;
 
 import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.dto.consumer.ResolvedAccounts;
 import com.openfashion.ledgerservice.dto.event.TransactionInitiatedEvent;
 import com.openfashion.ledgerservice.dto.event.TransactionPayload;
 import com.openfashion.ledgerservice.model.TransactionType;
-import com.openfashion.ledgerservice.repository.AccountRepository;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -15,10 +15,6 @@ import java.math.BigDecimal;
 @Component
 public class TransferStrategy extends LedgerStrategy {
 
-    public TransferStrategy(AccountRepository accountRepository) {
-        super(accountRepository);
-    }
-
     /**
      * Supports {@code TRANSFER} and {@code PAYMENT} transaction types.
      */
@@ -43,7 +39,7 @@ public class TransferStrategy extends LedgerStrategy {
      * debit = sender account, credit = receiver account (same currency).
      */
     @Override
-    public TransactionRequest mapToRequest(TransactionInitiatedEvent event) {
+    public TransactionRequest mapToRequest(TransactionInitiatedEvent event, ResolvedAccounts accounts) {
 
         TransactionPayload payload = event.payload();
 
@@ -54,8 +50,8 @@ public class TransferStrategy extends LedgerStrategy {
         request.setReceiverId(payload.receiverId());
         request.setAmount(payload.amount());
         request.setCurrency(payload.currency());
-        request.setDebitAccountId(resolveUserAccount(payload.senderId(), payload.currency()));
-        request.setCreditAccountId(resolveUserAccount(payload.receiverId(), payload.currency()));
+        request.setDebitAccountId(resolveUserAccount(accounts, payload.senderId(), payload.currency()));
+        request.setCreditAccountId(resolveUserAccount(accounts, payload.receiverId(), payload.currency()));
 
         return request;
     }
@@ -1,11 +1,11 @@
 package com.openfashion.ledgerservice.service.strategy;
 
 import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.dto.consumer.ResolvedAccounts;
 import com.openfashion.ledgerservice.dto.event.TransactionInitiatedEvent;
 import com.openfashion.ledgerservice.dto.event.TransactionPayload;
 import com.openfashion.ledgerservice.model.CurrencyType;
 import com.openfashion.ledgerservice.model.TransactionType;
-import com.openfashion.ledgerservice.repository.AccountRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -24,11 +24,6 @@ import java.math.BigDecimal;
 @Slf4j
 public class WithdrawalStrategy extends LedgerStrategy {
 
-    public WithdrawalStrategy(AccountRepository accountRepository) {
-        super(accountRepository);
-    }
-
-
     /**
      * Supports {@code WITHDRAWAL} inbound type.
      */
@@ -64,7 +59,7 @@ public class WithdrawalStrategy extends LedgerStrategy {
      * release: PENDING_WITHDRAWAL -> user.
      */
     @Override
-    public TransactionRequest mapToRequest(TransactionInitiatedEvent event) {
+    public TransactionRequest mapToRequest(TransactionInitiatedEvent event, ResolvedAccounts accounts) {
 
         TransactionPayload payload = event.payload();
         CurrencyType currencyType = payload.currency();
@@ -80,20 +75,20 @@ public class WithdrawalStrategy extends LedgerStrategy {
             case PENDING -> {
                 log.info("Mapping Withdrawal Reserve Phase for {}", event.referenceId());
                 request.setType(TransactionType.WITHDRAWAL_RESERVE);
-                request.setDebitAccountId(resolveUserAccount(payload.senderId(), currencyType));
-                request.setCreditAccountId(resolveSystemAccount(PENDING_WITHDRAWAL_ACC, currencyType));
+                request.setDebitAccountId(resolveUserAccount(accounts, payload.senderId(), currencyType));
+                request.setCreditAccountId(resolveSystemAccount(accounts, PENDING_WITHDRAWAL_ACC, currencyType));
             }
             case POSTED -> {
                 log.info("Mapping Withdrawal Settle Phase for {}", event.referenceId());
                 request.setType(TransactionType.WITHDRAWAL_SETTLE);
-                request.setDebitAccountId(resolveSystemAccount(PENDING_WITHDRAWAL_ACC, currencyType));
-                request.setCreditAccountId(resolveSystemAccount(WORLD_LIQUIDITY_ACC, currencyType));
+                request.setDebitAccountId(resolveSystemAccount(accounts, PENDING_WITHDRAWAL_ACC, currencyType));
+                request.setCreditAccountId(resolveSystemAccount(accounts, WORLD_LIQUIDITY_ACC, currencyType));
             }
             case FAILED -> {
                 log.info("Mapping Withdrawal Release Phase for {}", event.referenceId());
                 request.setType(TransactionType.WITHDRAWAL_RELEASE);
-                request.setDebitAccountId(resolveSystemAccount(PENDING_WITHDRAWAL_ACC, currencyType));
-                request.setCreditAccountId(resolveUserAccount(payload.senderId(), currencyType));
+                request.setDebitAccountId(resolveSystemAccount(accounts, PENDING_WITHDRAWAL_ACC, currencyType));
+                request.setCreditAccountId(resolveUserAccount(accounts, payload.senderId(), currencyType));
             }
             default -> throw new IllegalArgumentException("Unknown withdrawal status: " + payload.status());
         }
@@ -0,0 +1,17 @@
+-- Result events published directly to Kafka (ledger.results.publisher=KAFKA).
+-- Not part of the Debezium table.include.list, so rows here are never routed twice.
+CREATE TABLE result_events
+(
+    id            UUID PRIMARY KEY,
+    aggregate_id  VARCHAR(255)             NOT NULL,
+    event_type    VARCHAR(50)              NOT NULL,
+    payload       JSONB                    NOT NULL,
+    created_at    TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    published_at  TIMESTAMP WITH TIME ZONE,
+    claimed_until TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX idx_result_events_unpublished ON result_events (created_at) WHERE published_at IS NULL;
+
+-- Retention purge of acknowledged rows
+CREATE INDEX idx_result_events_published ON result_events (published_at) WHERE published_at IS NOT NULL;
@@ -0,0 +1,5 @@
+-- Staging stream entry (stream key and entry id) that carried each posted transaction.
+-- A redelivered entry finds its own id on the committed row; a request staged again after its
+-- Redis idempotency key expired finds another one, and only that replay releases its pending delta.
+ALTER TABLE transactions
+    ADD COLUMN staging_id VARCHAR(255);
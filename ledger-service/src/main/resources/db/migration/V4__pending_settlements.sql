@@ -0,0 +1,13 @@
+-- Redis settlements of committed batches. A row is written in the batch's transaction and deleted
+-- once Redis has applied it; a row left behind by a failed settle is retried by the settlement sweep.
+-- Arrays are aligned by position: committed changes settle the snapshot, released ones only the pending delta.
+CREATE TABLE pending_settlements
+(
+    id          UUID PRIMARY KEY,
+    account_ids UUID[]                   NOT NULL,
+    committed   DECIMAL(19, 4)[]         NOT NULL,
+    released    DECIMAL(19, 4)[]         NOT NULL,
+    created_at  TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_pending_settlements_created_at ON pending_settlements (created_at);
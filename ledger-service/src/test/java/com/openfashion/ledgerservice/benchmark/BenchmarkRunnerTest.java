@@ -0,0 +1,53 @@
+package com.openfashion.ledgerservice.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs each JMH benchmark of this package in its own forked JVM; JMH prints the results table.
+ * The Docker-backed benchmarks start their containers inside the fork.
+ *
+ * <p>Run with {@code mvn test -Pbenchmark}, or a single one with
+ * {@code mvn test -Pbenchmark -Dtest=BenchmarkRunnerTest#streamCodec}.
+ */
+@Tag("benchmark")
+class BenchmarkRunnerTest {
+
+    @Test
+    void eventDeserializer() throws RunnerException {
+        run(EventDeserializerBenchmark.class);
+    }
+
+    @Test
+    void streamCodec() throws RunnerException {
+        run(StreamCodecBenchmark.class);
+    }
+
+    @Test
+    void ingestionOrdering() throws RunnerException {
+        run(IngestionOrderingBenchmark.class);
+    }
+
+    @Test
+    void resultPublishLatency() throws RunnerException {
+        run(ResultPublishLatencyBenchmark.class);
+    }
+
+    private static void run(Class<?> benchmark) throws RunnerException {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(Pattern.quote(benchmark.getName() + "."))
+                .shouldFailOnError(true)
+                .build()).run();
+
+        assertThat(results).isNotEmpty();
+    }
+}
@@ -0,0 +1,87 @@
+package com.openfashion.ledgerservice.benchmark;
+
+import com.openfashion.ledgerservice.core.kafka.TransactionInitiatedEventDeserializer;
+import com.openfashion.ledgerservice.dto.event.TransactionInitiatedEvent;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JacksonJsonDeserializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming deserializer with the reflective path it replaced, on valid and on
+ * malformed records.
+ *
+ * <p>Run through {@link BenchmarkRunnerTest} with {@code mvn test -Pbenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDeserializerBenchmark {
+
+    private static final byte[] VALID = """
+            {"eventId":"%s","eventType":"TRANSFER","aggregatedId":"%s","timestamp":"2026-03-01T10:15:30Z",
+             "payload":{"senderId":"%s","receiverId":"%s","amount":125.50,"currency":"EUR","status":"PENDING",
+             "userMessage":"rent","timestamp":"2026-03-01T10:15:30Z","metadata":{"channel":"mobile"}}}
+            """.formatted(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID())
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] MALFORMED = "{\"eventId\":\"broken\",\"payload\":{".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"valid", "malformed"})
+    public String input;
+
+    private final Deserializer<TransactionInitiatedEvent> streaming = new TransactionInitiatedEventDeserializer();
+    private final Deserializer<TransactionInitiatedEvent> reflective =
+            new ErrorHandlingDeserializer<>(new JacksonJsonDeserializer<>(TransactionInitiatedEvent.class, false));
+
+    // A field rather than a constant, so the input cannot be folded into the benchmark
+    private byte[] value;
+
+    @Setup
+    public void setUp() {
+        value = "valid".equals(input) ? VALID : MALFORMED;
+
+        TransactionInitiatedEvent expected = reflective.deserialize("t", new RecordHeaders(), value);
+        if (!Objects.equals(streaming.deserialize("t", new RecordHeaders(), value), expected)) {
+            throw new IllegalStateException("Deserializers disagree on the " + input + " record");
+        }
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) {
+        deserialize(streaming, blackhole);
+    }
+
+    @Benchmark
+    public void reflective(Blackhole blackhole) {
+        deserialize(reflective, blackhole);
+    }
+
+    private void deserialize(Deserializer<TransactionInitiatedEvent> deserializer, Blackhole blackhole) {
+        // Fresh headers per record, as the consumer does; both paths write failure headers
+        Headers headers = new RecordHeaders();
+        blackhole.consume(deserializer.deserialize("t", headers, value));
+        blackhole.consume(headers);
+    }
+}
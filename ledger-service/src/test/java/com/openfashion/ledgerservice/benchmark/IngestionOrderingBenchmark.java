@@ -0,0 +1,317 @@
+package com.openfashion.ledgerservice.benchmark;
+
+import com.openfashion.ledgerservice.core.kafka.AccountOrderingKey;
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.model.CurrencyType;
+import com.openfashion.ledgerservice.model.TransactionType;
+import io.confluent.parallelconsumer.ParallelConsumerOptions;
+import io.confluent.parallelconsumer.ParallelStreamProcessor;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.kafka.KafkaContainer;
+import tools.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the time to drain one workload under {@code ordering=KEY} and {@code ordering=ACCOUNT}.
+ *
+ * <p>Both modes drain the same pre-produced, power-law skewed workload through Parallel Consumer
+ * with the production options (key ordering, batch 150, concurrency 100). Staging is replaced by a
+ * fixed per-batch cost so the numbers isolate the ordering layer: KEY stages inbound records
+ * directly, ACCOUNT pays the extra re-key hop and then stages the wallet-keyed topic. Every
+ * invocation reads the workload from the start with fresh consumer groups and, for ACCOUNT, a
+ * fresh re-keyed topic; an ACCOUNT invocation fails if any wallet saw its requests out of
+ * production order.
+ *
+ * <p>Run through {@link BenchmarkRunnerTest} with {@code mvn test -Pbenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IngestionOrderingBenchmark {
+
+    private static final int EVENTS = 20_000;
+    private static final int USERS = 2_000;
+    private static final int PARTITIONS = 12;
+    private static final long STAGING_COST_MILLIS = 2;
+    private static final String INBOUND_TOPIC = "bench.transaction.request";
+    private static final String ACCOUNT_TOPIC_PREFIX = "bench.transaction.request.by-account.";
+
+    private static final UUID WORLD_LIQUIDITY = UUID.randomUUID();
+    private static final UUID PENDING_WITHDRAWAL = UUID.randomUUID();
+    private static final Set<UUID> SYSTEM_ACCOUNTS = Set.of(WORLD_LIQUIDITY, PENDING_WITHDRAWAL);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Param({"KEY", "ACCOUNT"})
+    public String ordering;
+
+    private KafkaContainer kafka;
+    private int invocation;
+
+    private KafkaProducer<String, String> producer;
+    private List<ParallelStreamProcessor<String, String>> processors;
+    private String accountTopic;
+
+    @Setup(Level.Trial)
+    public void produceWorkload() throws Exception {
+        kafka = new KafkaContainer("apache/kafka-native:3.8.0");
+        kafka.start();
+
+        createTopic(INBOUND_TOPIC);
+
+        List<UUID> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(UUID.randomUUID());
+        }
+
+        double[] cumulative = zipfCumulative(USERS);
+        Random random = new Random(42);
+
+        try (KafkaProducer<String, String> workloadProducer = producer()) {
+            for (int sequence = 0; sequence < EVENTS; sequence++) {
+                TransactionRequest request = nextRequest(sequence, users, cumulative, random);
+                workloadProducer.send(new ProducerRecord<>(INBOUND_TOPIC, request.getSenderId().toString(),
+                        OBJECT_MAPPER.writeValueAsString(request)));
+            }
+            workloadProducer.flush();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopKafka() {
+        kafka.stop();
+    }
+
+    /**
+     * Fresh groups and re-keyed topic, so the invocation starts from the first inbound record.
+     */
+    @Setup(Level.Invocation)
+    public void prepareInvocation() throws Exception {
+        invocation++;
+        producer = producer();
+        processors = new ArrayList<>();
+        accountTopic = ACCOUNT_TOPIC_PREFIX + invocation;
+
+        if ("ACCOUNT".equals(ordering)) {
+            createTopic(accountTopic);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeInvocation() {
+        processors.forEach(ParallelStreamProcessor::close);
+        producer.close();
+    }
+
+    @Benchmark
+    public int drainWorkload() throws InterruptedException {
+        return "KEY".equals(ordering) ? drainKeyOrdered() : drainAccountOrdered();
+    }
+
+    private int drainKeyOrdered() throws InterruptedException {
+        CountDownLatch staged = new CountDownLatch(EVENTS);
+
+        ParallelStreamProcessor<String, String> stage = processor("bench-key-" + invocation, INBOUND_TOPIC);
+        stage.poll(context -> {
+            simulateStaging();
+            context.stream().forEach(_ -> staged.countDown());
+        });
+
+        await(staged);
+        return EVENTS;
+    }
+
+    private int drainAccountOrdered() throws InterruptedException {
+        CountDownLatch staged = new CountDownLatch(EVENTS);
+        Map<String, Integer> lastSequenceByWallet = new ConcurrentHashMap<>();
+        AtomicInteger outOfOrder = new AtomicInteger();
+
+        ParallelStreamProcessor<String, String> rekey = processor("bench-account-rekey-" + invocation, INBOUND_TOPIC);
+        rekey.poll(context -> {
+            List<Future<RecordMetadata>> sends = new ArrayList<>();
+            context.stream().forEach(recordContext -> {
+                TransactionRequest request = OBJECT_MAPPER.readValue(recordContext.value(), TransactionRequest.class);
+                sends.add(producer.send(new ProducerRecord<>(accountTopic,
+                        AccountOrderingKey.of(request, SYSTEM_ACCOUNTS), recordContext.value())));
+            });
+            for (Future<RecordMetadata> send : sends) {
+                try {
+                    send.get();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        ParallelStreamProcessor<String, String> stage = processor("bench-account-stage-" + invocation, accountTopic);
+        stage.poll(context -> {
+            simulateStaging();
+            context.stream().forEach(recordContext -> {
+                TransactionRequest request = OBJECT_MAPPER.readValue(recordContext.value(), TransactionRequest.class);
+                int sequence = Integer.parseInt(request.getMetadata());
+
+                lastSequenceByWallet.merge(recordContext.key(), sequence, (previous, current) -> {
+                    if (current < previous) {
+                        outOfOrder.incrementAndGet();
+                    }
+                    return Math.max(previous, current);
+                });
+                staged.countDown();
+            });
+        });
+
+        await(staged);
+        if (outOfOrder.get() > 0) {
+            throw new IllegalStateException(outOfOrder.get() + " requests were staged out of wallet order");
+        }
+        return lastSequenceByWallet.size();
+    }
+
+    private ParallelStreamProcessor<String, String> processor(String groupId, String topic) {
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        var options = ParallelConsumerOptions.<String, String>builder()
+                .ordering(ParallelConsumerOptions.ProcessingOrder.KEY)
+                .maxConcurrency(100)
+                .batchSize(150)
+                .consumer(new KafkaConsumer<>(props, new StringDeserializer(), new StringDeserializer()))
+                .commitMode(ParallelConsumerOptions.CommitMode.PERIODIC_CONSUMER_SYNC)
+                .build();
+
+        ParallelStreamProcessor<String, String> processor = ParallelStreamProcessor.createEosStreamProcessor(options);
+        processors.add(processor);
+        processor.subscribe(List.of(topic));
+        return processor;
+    }
+
+    private KafkaProducer<String, String> producer() {
+        Properties props = new Properties();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        return new KafkaProducer<>(props, new StringSerializer(), new StringSerializer());
+    }
+
+    private void createTopic(String topic) throws Exception {
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers()))) {
+            admin.createTopics(List.of(new NewTopic(topic, PARTITIONS, (short) 1))).all().get();
+        }
+    }
+
+    private static void await(CountDownLatch staged) throws InterruptedException {
+        if (!staged.await(5, TimeUnit.MINUTES)) {
+            throw new IllegalStateException(staged.getCount() + " of " + EVENTS + " events were never staged");
+        }
+    }
+
+    private static void simulateStaging() {
+        try {
+            Thread.sleep(STAGING_COST_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Half transfers, a quarter deposits, a quarter withdrawal reserves, over three currencies.
+     * The production sequence travels in {@code metadata} for the ordering check.
+     */
+    private static TransactionRequest nextRequest(int sequence, List<UUID> users, double[] cumulative, Random random) {
+        UUID user = users.get(sample(cumulative, random));
+        UUID other = users.get(sample(cumulative, random));
+        CurrencyType currency = CurrencyType.values()[random.nextInt(3)];
+        int roll = random.nextInt(4);
+
+        TransactionRequest request = new TransactionRequest();
+        request.setReferenceId(UUID.randomUUID());
+        request.setAmount(BigDecimal.TEN);
+        request.setCurrency(currency);
+        request.setMetadata(Integer.toString(sequence));
+        request.setSenderId(user);
+
+        switch (roll) {
+            case 0 -> {
+                request.setType(TransactionType.DEPOSIT);
+                request.setReceiverId(user);
+                request.setDebitAccountId(WORLD_LIQUIDITY);
+                request.setCreditAccountId(wallet(user, currency));
+            }
+            case 1 -> {
+                request.setType(TransactionType.WITHDRAWAL_RESERVE);
+                request.setReceiverId(user);
+                request.setDebitAccountId(wallet(user, currency));
+                request.setCreditAccountId(PENDING_WITHDRAWAL);
+            }
+            default -> {
+                request.setType(TransactionType.TRANSFER);
+                request.setReceiverId(other);
+                request.setDebitAccountId(wallet(user, currency));
+                request.setCreditAccountId(wallet(other, currency));
+            }
+        }
+
+        return request;
+    }
+
+    private static UUID wallet(UUID user, CurrencyType currency) {
+        return UUID.nameUUIDFromBytes((user + ":" + currency).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static double[] zipfCumulative(int size) {
+        double[] cumulative = new double[size];
+        double total = 0;
+
+        for (int rank = 1; rank <= size; rank++) {
+            total += 1.0 / rank;
+            cumulative[rank - 1] = total;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}
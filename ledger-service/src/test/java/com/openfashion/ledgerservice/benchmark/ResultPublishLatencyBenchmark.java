@@ -0,0 +1,325 @@
+package com.openfashion.ledgerservice.benchmark;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.kafka.KafkaContainer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares result delivery latency of {@code ledger.results.publisher=OUTBOX} against
+ * {@code KAFKA}. One operation writes and commits one ledger transaction's worth of result rows
+ * and ends when every one of them has arrived on {@code transaction.response}; JMH samples the
+ * operation time and reports its percentiles.
+ *
+ * <p>OUTBOX runs the real path: rows in {@code outbox_events}, routed by the Debezium connector
+ * with the docker-compose configuration. KAFKA commits {@code result_events} rows and then sends
+ * them with an idempotent producer, as {@code KafkaResultPublisher} does after commit. Both modes
+ * write the same rows against the Flyway schema, so the write itself costs the same in both.
+ *
+ * <p>Run through {@link BenchmarkRunnerTest} with {@code mvn test -Pbenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ResultPublishLatencyBenchmark {
+
+    private static final int EVENTS_PER_ROUND = 50;
+    private static final String RESULT_TOPIC = "transaction.response";
+    private static final String CONNECTOR = "ledger-outbox-connector";
+
+    @Param({"OUTBOX", "KAFKA"})
+    public String publisher;
+
+    private final Map<String, CountDownLatch> awaitingDelivery = new ConcurrentHashMap<>();
+
+    private Network network;
+    private KafkaContainer kafka;
+    private PostgreSQLContainer<?> postgres;
+    private GenericContainer<?> debezium;
+    private KafkaProducer<String, String> producer;
+    private Thread consumerThread;
+    private volatile boolean consuming = true;
+
+    @Setup(Level.Trial)
+    public void startPipeline() throws Exception {
+        network = Network.newNetwork();
+        kafka = new KafkaContainer("apache/kafka-native:3.8.0")
+                .withNetwork(network)
+                .withListener("kafka:19092");
+        postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+                .withNetwork(network)
+                .withNetworkAliases("postgres")
+                .withDatabaseName("ledger_db")
+                .withCommand("postgres", "-c", "wal_level=logical");
+        kafka.start();
+        postgres.start();
+
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers()))) {
+            admin.createTopics(List.of(new NewTopic(RESULT_TOPIC, 12, (short) 1))).all().get();
+        }
+
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute(Files.readString(Path.of("src/main/resources/db/migration/V1__init_tables.sql")));
+            statement.execute(Files.readString(Path.of("src/main/resources/db/migration/V2__result_events.sql")));
+        }
+
+        startConsumer();
+
+        if ("OUTBOX".equals(publisher)) {
+            debezium = new GenericContainer<>("quay.io/debezium/connect:2.5.0.Final")
+                    .withNetwork(network)
+                    .withExposedPorts(8083)
+                    .withEnv("BOOTSTRAP_SERVERS", "kafka:19092")
+                    .withEnv("GROUP_ID", "1")
+                    .withEnv("CONFIG_STORAGE_TOPIC", "bench_connect_configs")
+                    .withEnv("OFFSET_STORAGE_TOPIC", "bench_connect_offsets")
+                    .withEnv("STATUS_STORAGE_TOPIC", "bench_connect_statuses")
+                    .waitingFor(Wait.forHttp("/connectors").forPort(8083).withStartupTimeout(Duration.ofMinutes(3)));
+            debezium.start();
+            registerConnector();
+
+            // The connector is live once a row written now comes out on the topic
+            writeAndAwait(1, Duration.ofMinutes(2));
+        } else {
+            producer = producer();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopPipeline() throws InterruptedException {
+        consuming = false;
+        consumerThread.join(5_000);
+
+        if (producer != null) {
+            producer.close();
+        }
+        if (debezium != null) {
+            debezium.stop();
+        }
+        postgres.stop();
+        kafka.stop();
+        network.close();
+    }
+
+    @Benchmark
+    public int publishRound() throws Exception {
+        return writeAndAwait(EVENTS_PER_ROUND, Duration.ofSeconds(30));
+    }
+
+    private int writeAndAwait(int events, Duration timeout) throws Exception {
+        List<String> ids = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+
+        CountDownLatch delivered = new CountDownLatch(events);
+        ids.forEach(id -> awaitingDelivery.put(id, delivered));
+
+        try {
+            if ("OUTBOX".equals(publisher)) {
+                writeOutboxRound(ids);
+            } else {
+                writeDirectRound(ids);
+            }
+
+            if (!delivered.await(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException(delivered.getCount() + " of " + events + " results were not delivered");
+            }
+            return events;
+        } finally {
+            ids.forEach(awaitingDelivery::remove);
+        }
+    }
+
+    /**
+     * One ledger transaction's worth of outbox rows; Debezium picks them up from the WAL.
+     */
+    private void writeOutboxRound(List<String> ids) throws Exception {
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            insert(connection, "outbox_events", ids);
+            connection.commit();
+        }
+    }
+
+    /**
+     * Same rows in {@code result_events}, sent after commit and stamped on acknowledgement.
+     */
+    private void writeDirectRound(List<String> ids) throws Exception {
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            insert(connection, "result_events", ids);
+            connection.commit();
+        }
+
+        CountDownLatch acknowledged = new CountDownLatch(ids.size());
+        for (String id : ids) {
+            ProducerRecord<String, String> producerRecord =
+                    new ProducerRecord<>(RESULT_TOPIC, "\"" + id + "\"", payload(id));
+            producerRecord.headers().add("id", id.getBytes(StandardCharsets.UTF_8));
+            producer.send(producerRecord, (_, _) -> acknowledged.countDown());
+        }
+        if (!acknowledged.await(30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Result sends were not acknowledged");
+        }
+
+        try (Connection connection = connect();
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE result_events SET published_at = ? WHERE id = ANY (?)")) {
+            update.setTimestamp(1, Timestamp.from(Instant.now()));
+            update.setArray(2, connection.createArrayOf("uuid", ids.toArray()));
+            update.executeUpdate();
+        }
+    }
+
+    private static void insert(Connection connection, String table, List<String> ids) throws Exception {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO " + table + " (id, aggregate_id, event_type, payload, created_at) VALUES (?, ?, 'TRANSFER', ?::jsonb, ?)")) {
+            for (String id : ids) {
+                insert.setObject(1, UUID.fromString(id));
+                insert.setString(2, id);
+                insert.setString(3, payload(id));
+                insert.setTimestamp(4, Timestamp.from(Instant.now()));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private void startConsumer() {
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "bench-results-" + UUID.randomUUID());
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props, new StringDeserializer(), new StringDeserializer());
+        consumer.subscribe(List.of(RESULT_TOPIC));
+
+        consumerThread = Thread.ofPlatform().name("bench-results-consumer").start(() -> {
+            try (consumer) {
+                while (consuming) {
+                    for (ConsumerRecord<String, String> consumerRecord : consumer.poll(Duration.ofMillis(10))) {
+                        Header idHeader = consumerRecord.headers().lastHeader("id");
+                        if (idHeader == null) {
+                            continue;
+                        }
+                        // Debezium writes the id header as a JSON string
+                        String id = new String(idHeader.value(), StandardCharsets.UTF_8).replace("\"", "");
+                        CountDownLatch delivered = awaitingDelivery.remove(id);
+                        if (delivered != null) {
+                            delivered.countDown();
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private void registerConnector() throws Exception {
+        String config = """
+                {
+                  "connector.class": "io.debezium.connector.postgresql.PostgresConnector",
+                  "tasks.max": "1",
+                  "database.hostname": "postgres",
+                  "database.port": "5432",
+                  "database.user": "%s",
+                  "database.password": "%s",
+                  "database.dbname": "ledger_db",
+                  "slot.name": "bench_outbox_slot",
+                  "topic.prefix": "ledger-server",
+                  "plugin.name": "pgoutput",
+                  "table.include.list": "public.outbox_events",
+                  "tombstones.on.delete": "false",
+                  "key.converter": "org.apache.kafka.connect.json.JsonConverter",
+                  "key.converter.schemas.enable": "false",
+                  "value.converter": "org.apache.kafka.connect.json.JsonConverter",
+                  "value.converter.schemas.enable": "false",
+                  "transforms": "outbox",
+                  "transforms.outbox.type": "io.debezium.transforms.outbox.EventRouter",
+                  "transforms.outbox.table.field.event.id": "id",
+                  "transforms.outbox.table.field.event.key": "aggregate_id",
+                  "transforms.outbox.table.field.event.type": "event_type",
+                  "transforms.outbox.table.field.event.payload": "payload",
+                  "transforms.outbox.table.expand.json.payload": "true",
+                  "transforms.outbox.route.by.field": "event_type",
+                  "transforms.outbox.route.topic.regex": ".*",
+                  "transforms.outbox.route.topic.replacement": "%s"
+                }
+                """.formatted(postgres.getUsername(), postgres.getPassword(), RESULT_TOPIC);
+
+        String baseUrl = "http://" + debezium.getHost() + ":" + debezium.getMappedPort(8083) + "/connectors/" + CONNECTOR;
+
+        try (HttpClient http = HttpClient.newHttpClient()) {
+            HttpResponse<String> created = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/config"))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(config))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (created.statusCode() != 200 && created.statusCode() != 201) {
+                throw new IllegalStateException("Connector registration failed: " + created.body());
+            }
+        }
+    }
+
+    private KafkaProducer<String, String> producer() {
+        Properties props = new Properties();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        return new KafkaProducer<>(props, new StringSerializer(), new StringSerializer());
+    }
+
+    private Connection connect() throws Exception {
+        return DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+
+    private static String payload(String id) {
+        return "{\"referenceId\":\"" + id + "\",\"status\":\"COMPLETED\"}";
+    }
+}
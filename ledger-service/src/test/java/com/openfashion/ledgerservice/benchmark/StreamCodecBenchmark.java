@@ -0,0 +1,94 @@
+package com.openfashion.ledgerservice.benchmark;
+
+import com.openfashion.ledgerservice.core.config.StreamPayloadFormat;
+import com.openfashion.ledgerservice.core.redis.TransactionRequestCodec;
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.model.CurrencyType;
+import com.openfashion.ledgerservice.model.TransactionType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the stream payload formats on encode and decode time, for a typical transfer and for
+ * a metadata-heavy one that crosses the LZ4 threshold. The encoded size of each combination is
+ * printed once per trial; it is deterministic and needs no timing.
+ *
+ * <p>Run through {@link BenchmarkRunnerTest} with {@code mvn test -Pbenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamCodecBenchmark {
+
+    private static final int LZ4_THRESHOLD = 256;
+
+    @Param({"json", "binary", "binary-lz4"})
+    public String format;
+
+    @Param({"typical", "heavy"})
+    public String payload;
+
+    private TransactionRequestCodec codec;
+    private TransactionRequest request;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        codec = switch (format) {
+            case "json" -> new TransactionRequestCodec(new SimpleMeterRegistry(), StreamPayloadFormat.JSON, false, LZ4_THRESHOLD);
+            case "binary" -> new TransactionRequestCodec(new SimpleMeterRegistry(), StreamPayloadFormat.BINARY, false, LZ4_THRESHOLD);
+            default -> new TransactionRequestCodec(new SimpleMeterRegistry(), StreamPayloadFormat.BINARY, true, LZ4_THRESHOLD);
+        };
+        request = request("typical".equals(payload)
+                ? "{\"channel\":\"mobile\",\"note\":\"rent\"}"
+                : "{\"channel\":\"mobile\",\"device\":\"ios\",\"note\":\"rent\"}".repeat(12));
+        encoded = codec.encode(request);
+
+        if (!request.equals(codec.decode(encoded))) {
+            throw new IllegalStateException(format + " does not round-trip the " + payload + " request");
+        }
+        System.out.printf("%n%s/%s: %d bytes per entry%n", format, payload, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(request);
+    }
+
+    @Benchmark
+    public TransactionRequest decode() throws IOException {
+        return codec.decode(encoded);
+    }
+
+    private static TransactionRequest request(String metadata) {
+        TransactionRequest request = new TransactionRequest();
+        request.setReferenceId(UUID.randomUUID());
+        request.setType(TransactionType.TRANSFER);
+        request.setAmount(new BigDecimal("125.5000"));
+        request.setCurrency(CurrencyType.EUR);
+        request.setSenderId(UUID.randomUUID());
+        request.setReceiverId(UUID.randomUUID());
+        request.setDebitAccountId(UUID.randomUUID());
+        request.setCreditAccountId(UUID.randomUUID());
+        request.setMetadata(metadata);
+        return request;
+    }
+}
@@ -0,0 +1,73 @@
+package com.openfashion.ledgerservice.core.kafka;
+
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.model.CurrencyType;
+import com.openfashion.ledgerservice.model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountOrderingKeyTest {
+
+    private static final UUID WORLD_LIQUIDITY = UUID.randomUUID();
+    private static final UUID PENDING_WITHDRAWAL = UUID.randomUUID();
+    private static final Set<UUID> SYSTEM_ACCOUNTS = Set.of(WORLD_LIQUIDITY, PENDING_WITHDRAWAL);
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID aliceUsd = UUID.randomUUID();
+    private final UUID bobUsd = UUID.randomUUID();
+
+    @Test
+    void depositToXSharesKeyWithLaterTransferFromX() {
+        TransactionRequest deposit = request(TransactionType.DEPOSIT, bob, alice, WORLD_LIQUIDITY, aliceUsd);
+        TransactionRequest transfer = request(TransactionType.TRANSFER, alice, bob, aliceUsd, bobUsd);
+
+        assertThat(AccountOrderingKey.of(deposit, SYSTEM_ACCOUNTS))
+                .isEqualTo(AccountOrderingKey.of(transfer, SYSTEM_ACCOUNTS))
+                .isEqualTo(alice + ":USD");
+    }
+
+    @Test
+    void withdrawalLegsShareTheWithdrawingUsersKey() {
+        TransactionRequest reserve = request(TransactionType.WITHDRAWAL_RESERVE, alice, alice, aliceUsd, PENDING_WITHDRAWAL);
+        TransactionRequest settle = request(TransactionType.WITHDRAWAL_SETTLE, alice, alice, PENDING_WITHDRAWAL, WORLD_LIQUIDITY);
+        TransactionRequest release = request(TransactionType.WITHDRAWAL_RELEASE, alice, alice, PENDING_WITHDRAWAL, aliceUsd);
+
+        String key = AccountOrderingKey.of(reserve, SYSTEM_ACCOUNTS);
+
+        assertThat(AccountOrderingKey.of(settle, SYSTEM_ACCOUNTS)).isEqualTo(key);
+        assertThat(AccountOrderingKey.of(release, SYSTEM_ACCOUNTS)).isEqualTo(key);
+    }
+
+    @Test
+    void transferIsKeyedByTheDebitedWalletNotTheReceiver() {
+        TransactionRequest transfer = request(TransactionType.TRANSFER, alice, bob, aliceUsd, bobUsd);
+
+        assertThat(AccountOrderingKey.of(transfer, SYSTEM_ACCOUNTS)).isEqualTo(alice + ":USD");
+    }
+
+    @Test
+    void walletsOfOneUserInDifferentCurrenciesGetDifferentKeys() {
+        TransactionRequest usd = request(TransactionType.TRANSFER, alice, bob, aliceUsd, bobUsd);
+        TransactionRequest eur = request(TransactionType.TRANSFER, alice, bob, UUID.randomUUID(), UUID.randomUUID());
+        eur.setCurrency(CurrencyType.EUR);
+
+        assertThat(AccountOrderingKey.of(usd, SYSTEM_ACCOUNTS)).isNotEqualTo(AccountOrderingKey.of(eur, SYSTEM_ACCOUNTS));
+    }
+
+    private static TransactionRequest request(TransactionType type, UUID sender, UUID receiver, UUID debit, UUID credit) {
+        TransactionRequest request = new TransactionRequest();
+        request.setReferenceId(UUID.randomUUID());
+        request.setType(type);
+        request.setSenderId(sender);
+        request.setReceiverId(receiver);
+        request.setCurrency(CurrencyType.USD);
+        request.setDebitAccountId(debit);
+        request.setCreditAccountId(credit);
+        return request;
+    }
+}
@@ -0,0 +1,192 @@
+package com.openfashion.ledgerservice.core.kafka;
+
+import com.openfashion.ledgerservice.dto.event.TransactionInitiatedEvent;
+import com.openfashion.ledgerservice.model.CurrencyType;
+import com.openfashion.ledgerservice.model.TransactionStatus;
+import com.openfashion.ledgerservice.model.TransactionType;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionInitiatedEventDeserializerTest {
+
+    private static final String TOPIC = "transaction.request";
+
+    private static final UUID EVENT_ID = UUID.fromString("6f1c9a52-3d5b-4a3e-9a9e-0c1f2b3d4e5f");
+    private static final UUID AGGREGATE_ID = UUID.fromString("0b7e2f10-8c4d-4e2a-b1f3-5d6c7e8f9a0b");
+    private static final UUID SENDER_ID = UUID.fromString("11111111-2222-4333-8444-555555555555");
+    private static final UUID RECEIVER_ID = UUID.fromString("66666666-7777-4888-9999-aaaaaaaaaaaa");
+
+    private static final String VALID_EVENT = """
+            {
+              "eventId": "%s",
+              "eventType": "TRANSFER",
+              "aggregatedId": "%s",
+              "timestamp": "2026-03-01T10:15:30.123Z",
+              "payload": {
+                "senderId": "%s",
+                "receiverId": "%s",
+                "amount": 125.50,
+                "currency": "EUR",
+                "status": "PENDING",
+                "userMessage": "rent",
+                "timestamp": 1772360130.5,
+                "metadata": {"channel": "mobile", "attempt": 2, "note": null}
+              }
+            }
+            """.formatted(EVENT_ID, AGGREGATE_ID, SENDER_ID, RECEIVER_ID);
+
+    private final TransactionInitiatedEventDeserializer deserializer = new TransactionInitiatedEventDeserializer();
+
+    @Test
+    void readsEventAndNestedPayload() {
+        RecordHeaders headers = new RecordHeaders();
+
+        TransactionInitiatedEvent event = deserialize(headers, VALID_EVENT);
+
+        assertThat(event.eventId()).isEqualTo(EVENT_ID);
+        assertThat(event.eventType()).isEqualTo(TransactionType.TRANSFER);
+        assertThat(event.referenceId()).isEqualTo(AGGREGATE_ID);
+        assertThat(event.timestamp()).isEqualTo(Instant.parse("2026-03-01T10:15:30.123Z"));
+
+        assertThat(event.payload().senderId()).isEqualTo(SENDER_ID);
+        assertThat(event.payload().receiverId()).isEqualTo(RECEIVER_ID);
+        assertThat(event.payload().amount()).isEqualByComparingTo(new BigDecimal("125.50"));
+        assertThat(event.payload().currency()).isEqualTo(CurrencyType.EUR);
+        assertThat(event.payload().status()).isEqualTo(TransactionStatus.PENDING);
+        assertThat(event.payload().userMessage()).isEqualTo("rent");
+        assertThat(event.payload().timestamp()).isEqualTo(Instant.ofEpochSecond(1772360130L, 500_000_000L));
+        assertThat(event.payload().metadata())
+                .containsEntry("channel", "mobile")
+                .containsEntry("attempt", "2")
+                .containsEntry("note", null);
+
+        assertThat(headers.lastHeader(TransactionInitiatedEventDeserializer.ERROR_HEADER)).isNull();
+    }
+
+    @Test
+    void skipsUnknownFieldsIncludingNestedOnes() {
+        String json = """
+                {
+                  "schemaVersion": 3,
+                  "eventId": "%s",
+                  "trace": {"spans": [{"id": 1}, {"id": 2}], "sampled": true},
+                  "eventType": "DEPOSIT",
+                  "aggregatedId": "%s",
+                  "payload": {
+                    "receiverId": "%s",
+                    "fx": {"rate": 1.1, "legs": [1, 2, 3]},
+                    "amount": "10",
+                    "currency": "USD",
+                    "tags": ["a", "b"]
+                  },
+                  "trailer": null
+                }
+                """.formatted(EVENT_ID, AGGREGATE_ID, RECEIVER_ID);
+
+        TransactionInitiatedEvent event = deserialize(new RecordHeaders(), json);
+
+        assertThat(event.eventType()).isEqualTo(TransactionType.DEPOSIT);
+        assertThat(event.payload().receiverId()).isEqualTo(RECEIVER_ID);
+        assertThat(event.payload().amount()).isEqualByComparingTo(BigDecimal.TEN);
+        assertThat(event.payload().currency()).isEqualTo(CurrencyType.USD);
+        assertThat(event.payload().senderId()).isNull();
+    }
+
+    @Test
+    void acceptsNullPayloadAndMissingOptionalFields() {
+        TransactionInitiatedEvent event = deserialize(new RecordHeaders(), """
+                {"eventType": "TRANSFER", "payload": null}
+                """);
+
+        assertThat(event.eventType()).isEqualTo(TransactionType.TRANSFER);
+        assertThat(event.payload()).isNull();
+        assertThat(event.eventId()).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "not json at all",
+            "[]",
+            "{\"eventId\": \"not-a-uuid\"}",
+            "{\"eventType\": \"TELEPORT\"}",
+            "{\"eventType\": 7}",
+            "{\"payload\": \"flat\"}",
+            "{\"payload\": {\"amount\": true}}",
+            "{\"payload\": {\"metadata\": {\"nested\": {\"deep\": 1}}}}",
+            "{\"timestamp\": \"yesterday\"}",
+            "{} {}",
+            "{\"eventType\": \"TRANSFER\",}"
+    })
+    void marksMalformedInputInsteadOfThrowing(String json) {
+        RecordHeaders headers = new RecordHeaders();
+
+        assertThat(deserialize(headers, json)).isNull();
+
+        assertMarkedMalformed(headers, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void marksTruncatedInputInsteadOfThrowing() {
+        byte[] full = VALID_EVENT.getBytes(StandardCharsets.UTF_8);
+
+        // Every proper prefix that cuts into the object must be rejected, wherever the cut lands
+        for (int length = 1; length < VALID_EVENT.stripTrailing().length(); length++) {
+            byte[] truncated = Arrays.copyOf(full, length);
+            RecordHeaders headers = new RecordHeaders();
+
+            assertThat(deserializer.deserialize(TOPIC, headers, truncated))
+                    .as("prefix of %d bytes", length)
+                    .isNull();
+            assertMarkedMalformed(headers, truncated);
+        }
+    }
+
+    @Test
+    void replacesStaleMarkersOnRedelivery() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(TransactionInitiatedEventDeserializer.ERROR_HEADER, "old".getBytes(StandardCharsets.UTF_8));
+
+        deserialize(headers, "{");
+
+        assertThat(headers.headers(TransactionInitiatedEventDeserializer.ERROR_HEADER)).hasSize(1);
+        assertThat(headers.headers(TransactionInitiatedEventDeserializer.RAW_VALUE_HEADER)).hasSize(1);
+    }
+
+    @Test
+    void returnsNullForTombstonesWithoutMarking() {
+        RecordHeaders headers = new RecordHeaders();
+
+        assertThat(deserializer.deserialize(TOPIC, headers, null)).isNull();
+        assertThat(headers.toArray()).isEmpty();
+    }
+
+    @Test
+    void toleratesMissingHeadersOnMalformedInput() {
+        assertThat(deserializer.deserialize(TOPIC, "{".getBytes(StandardCharsets.UTF_8))).isNull();
+    }
+
+    private TransactionInitiatedEvent deserialize(RecordHeaders headers, String json) {
+        return deserializer.deserialize(TOPIC, headers, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertMarkedMalformed(RecordHeaders headers, byte[] raw) {
+        Header rawHeader = headers.lastHeader(TransactionInitiatedEventDeserializer.RAW_VALUE_HEADER);
+        Header errorHeader = headers.lastHeader(TransactionInitiatedEventDeserializer.ERROR_HEADER);
+
+        assertThat(rawHeader).isNotNull();
+        assertThat(rawHeader.value()).isEqualTo(raw);
+        assertThat(errorHeader).isNotNull();
+        assertThat(new String(errorHeader.value(), StandardCharsets.UTF_8)).isNotBlank();
+    }
+}
@@ -0,0 +1,227 @@
+package com.openfashion.ledgerservice.core.redis;
+
+import com.openfashion.ledgerservice.core.config.StreamPayloadFormat;
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.model.CurrencyType;
+import com.openfashion.ledgerservice.model.TransactionType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionRequestCodecTest {
+
+    private static final byte MAGIC = (byte) 0xFE;
+
+    private final TransactionRequestCodec binary = codec(StreamPayloadFormat.BINARY, true);
+    private final TransactionRequestCodec binaryWithoutLz4 = codec(StreamPayloadFormat.BINARY, false);
+    private final TransactionRequestCodec json = codec(StreamPayloadFormat.JSON, true);
+
+    @Test
+    void roundTripsEveryFieldInBinary() throws IOException {
+        TransactionRequest request = fullRequest("rent");
+
+        byte[] encoded = binary.encode(request);
+
+        assertThat(encoded[0]).isEqualTo(MAGIC);
+        assertThat(encoded[2]).as("small payloads are not framed").isZero();
+        assertThat(binary.decode(encoded)).isEqualTo(request);
+    }
+
+    @Test
+    void roundTripsLz4FramedPayloads() throws IOException {
+        TransactionRequest request = fullRequest("{\"channel\":\"mobile\"}".repeat(64));
+
+        byte[] framed = binary.encode(request);
+        byte[] plain = binaryWithoutLz4.encode(request);
+
+        assertThat(framed[2]).as("LZ4 flag").isEqualTo((byte) 1);
+        assertThat(framed.length).isLessThan(plain.length);
+        assertThat(binary.decode(framed)).isEqualTo(request);
+        assertThat(binaryWithoutLz4.decode(framed)).as("readers decode frames regardless of their own setting")
+                .isEqualTo(request);
+    }
+
+    @Test
+    void keepsIncompressiblePayloadsUnframed() throws IOException {
+        TransactionRequest request = fullRequest(randomAscii(512));
+
+        byte[] encoded = binary.encode(request);
+
+        assertThat(encoded[2]).isZero();
+        assertThat(binary.decode(encoded)).isEqualTo(request);
+    }
+
+    @Test
+    void roundTripsAbsentFieldsThroughThePresenceMask() throws IOException {
+        TransactionRequest request = new TransactionRequest();
+        request.setReferenceId(UUID.randomUUID());
+        request.setType(TransactionType.DEPOSIT);
+        request.setCreditAccountId(UUID.randomUUID());
+
+        TransactionRequest decoded = binary.decode(binary.encode(request));
+
+        assertThat(decoded).isEqualTo(request);
+        assertThat(decoded.getAmount()).isNull();
+        assertThat(decoded.getCurrency()).isNull();
+        assertThat(decoded.getSenderId()).isNull();
+        assertThat(decoded.getMetadata()).isNull();
+
+        assertThat(binary.decode(binary.encode(new TransactionRequest()))).isEqualTo(new TransactionRequest());
+    }
+
+    @Test
+    void keepsEmptyMetadataDistinctFromAbsent() throws IOException {
+        assertThat(binary.decode(binary.encode(fullRequest(""))).getMetadata()).isEmpty();
+    }
+
+    @Test
+    void decodesJsonWrittenInJsonMode() throws IOException {
+        TransactionRequest request = fullRequest("rent");
+
+        byte[] encoded = json.encode(request);
+
+        assertThat(encoded[0]).isEqualTo((byte) '{');
+        assertThat(binary.decode(encoded)).isEqualTo(request);
+    }
+
+    @Test
+    void decodesLegacyJsonEntries() throws IOException {
+        UUID referenceId = UUID.randomUUID();
+        UUID debit = UUID.randomUUID();
+        String legacy = """
+                {"referenceId":"%s","type":"TRANSFER","amount":12.5,"currency":"RON",
+                 "debitAccountId":"%s","metadata":null}
+                """.formatted(referenceId, debit);
+
+        TransactionRequest decoded = binary.decode(legacy.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(decoded.getReferenceId()).isEqualTo(referenceId);
+        assertThat(decoded.getType()).isEqualTo(TransactionType.TRANSFER);
+        assertThat(decoded.getAmount()).isEqualByComparingTo("12.5");
+        assertThat(decoded.getCurrency()).isEqualTo(CurrencyType.RON);
+        assertThat(decoded.getDebitAccountId()).isEqualTo(debit);
+        assertThat(decoded.getCreditAccountId()).isNull();
+    }
+
+    @Test
+    void writesOversizedMetadataAsJson() throws IOException {
+        TransactionRequest request = fullRequest(randomAscii(TransactionRequestCodec.MAX_BODY_BYTES));
+
+        byte[] encoded = binary.encode(request);
+
+        assertThat(encoded[0]).isEqualTo((byte) '{');
+        assertThat(binary.decode(encoded)).isEqualTo(request);
+    }
+
+    @Test
+    void rejectsEveryTruncatedPrefix() {
+        for (byte[] full : new byte[][]{
+                binary.encode(fullRequest("rent")),
+                binary.encode(fullRequest("{\"channel\":\"mobile\"}".repeat(64)))}) {
+            for (int length = 0; length < full.length; length++) {
+                byte[] truncated = Arrays.copyOf(full, length);
+
+                assertThatThrownBy(() -> binary.decode(truncated))
+                        .as("prefix of %d bytes", length)
+                        .isInstanceOf(IOException.class);
+            }
+        }
+    }
+
+    @Test
+    void rejectsNullAndUnknownVersions() {
+        byte[] encoded = binary.encode(fullRequest("rent"));
+        encoded[1] = 2;
+
+        assertThatThrownBy(() -> binary.decode(null)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> binary.decode(encoded))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("unsupported version");
+    }
+
+    @Test
+    void rejectsOutOfRangeEnumOrdinals() {
+        byte[] encoded = binaryWithoutLz4.encode(fullRequest("rent"));
+        // Header, mask and reference id come before the type ordinal
+        encoded[3 + Short.BYTES + 16] = (byte) 0x7F;
+
+        assertThatThrownBy(() -> binary.decode(encoded)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void rejectsLz4LengthsOutsideTheBodyBoundWithoutAllocating() {
+        byte[] framed = binary.encode(fullRequest("{\"channel\":\"mobile\"}".repeat(64)));
+
+        for (int declared : new int[]{Integer.MAX_VALUE, TransactionRequestCodec.MAX_BODY_BYTES + 1, -1, 0}) {
+            byte[] corrupt = framed.clone();
+            ByteBuffer.wrap(corrupt, 3, Integer.BYTES).putInt(declared);
+
+            assertThatThrownBy(() -> binary.decode(corrupt))
+                    .as("declared length %d", declared)
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("LZ4 frame declares");
+        }
+    }
+
+    @Test
+    void rejectsLz4LengthsThatDisagreeWithTheFrame() {
+        byte[] framed = binary.encode(fullRequest("{\"channel\":\"mobile\"}".repeat(64)));
+        int actual = ByteBuffer.wrap(framed, 3, Integer.BYTES).getInt();
+        ByteBuffer.wrap(framed, 3, Integer.BYTES).putInt(actual + 1);
+
+        assertThatThrownBy(() -> binary.decode(framed)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void rejectsCorruptMetadataLengths() {
+        byte[] encoded = binaryWithoutLz4.encode(fullRequest("rent"));
+        int metadataLengthOffset = encoded.length - "rent".length() - Integer.BYTES;
+
+        for (int declared : new int[]{Integer.MAX_VALUE, -1, 5}) {
+            byte[] corrupt = encoded.clone();
+            ByteBuffer.wrap(corrupt, metadataLengthOffset, Integer.BYTES).putInt(declared);
+
+            assertThatThrownBy(() -> binary.decode(corrupt))
+                    .as("declared length %d", declared)
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("metadata declares");
+        }
+    }
+
+    private static TransactionRequestCodec codec(StreamPayloadFormat format, boolean lz4Enabled) {
+        return new TransactionRequestCodec(new SimpleMeterRegistry(), format, lz4Enabled, 256);
+    }
+
+    private static TransactionRequest fullRequest(String metadata) {
+        TransactionRequest request = new TransactionRequest();
+        request.setReferenceId(UUID.randomUUID());
+        request.setType(TransactionType.TRANSFER);
+        request.setAmount(new BigDecimal("125.5000"));
+        request.setCurrency(CurrencyType.EUR);
+        request.setSenderId(UUID.randomUUID());
+        request.setReceiverId(UUID.randomUUID());
+        request.setDebitAccountId(UUID.randomUUID());
+        request.setCreditAccountId(UUID.randomUUID());
+        request.setMetadata(metadata);
+        return request;
+    }
+
+    private static String randomAscii(int length) {
+        Random random = new Random(7);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('!' + random.nextInt(94)));
+        }
+        return builder.toString();
+    }
+}
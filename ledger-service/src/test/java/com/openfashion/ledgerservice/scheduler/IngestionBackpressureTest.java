@@ -0,0 +1,148 @@
+package com.openfashion.ledgerservice.scheduler;
+
+import com.openfashion.ledgerservice.dto.redis.StreamLag;
+import com.openfashion.ledgerservice.service.RedisService;
+import io.confluent.parallelconsumer.ParallelConsumer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IngestionBackpressureTest {
+
+    private static final long HIGH_BACKLOG = 1000;
+    private static final long LOW_BACKLOG = 100;
+    private static final Duration HIGH_AGE = Duration.ofSeconds(10);
+    private static final Duration LOW_AGE = Duration.ofSeconds(2);
+
+    private final ParallelConsumer<?, ?> inbound = mock(ParallelConsumer.class);
+    private final ParallelConsumer<?, ?> byAccount = mock(ParallelConsumer.class);
+    private final RedisService redisService = mock(RedisService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private IngestionBackpressure backpressure;
+
+    @BeforeEach
+    void setUp() {
+        backpressure = backpressure(true);
+    }
+
+    @Test
+    void pausesEveryConsumerOnceTheBacklogReachesTheHighMark() {
+        evaluate(HIGH_BACKLOG - 1, Duration.ZERO);
+        verify(inbound, never()).pauseIfRunning();
+
+        evaluate(HIGH_BACKLOG, Duration.ZERO);
+
+        verify(inbound).pauseIfRunning();
+        verify(byAccount).pauseIfRunning();
+        assertThat(pausedGauge()).isEqualTo(1);
+    }
+
+    @Test
+    void staysPausedBetweenTheWatermarks() {
+        evaluate(HIGH_BACKLOG, Duration.ZERO);
+
+        evaluate(LOW_BACKLOG + 1, Duration.ZERO);
+        evaluate(HIGH_BACKLOG / 2, Duration.ZERO);
+
+        verify(inbound, never()).resumeIfPaused();
+        assertThat(pausedGauge()).isEqualTo(1);
+
+        evaluate(LOW_BACKLOG, Duration.ZERO);
+
+        verify(inbound).resumeIfPaused();
+        verify(byAccount).resumeIfPaused();
+        assertThat(pausedGauge()).isZero();
+    }
+
+    @Test
+    void doesNotPauseAgainBelowTheHighMarkAfterResuming() {
+        evaluate(HIGH_BACKLOG, Duration.ZERO);
+        evaluate(LOW_BACKLOG, Duration.ZERO);
+
+        evaluate(HIGH_BACKLOG - 1, Duration.ZERO);
+
+        verify(inbound, times(1)).pauseIfRunning();
+        assertThat(pausedGauge()).isZero();
+    }
+
+    @Test
+    void pausesOnAnOldPendingEntryWithASmallBacklog() {
+        evaluate(1, HIGH_AGE);
+
+        verify(inbound).pauseIfRunning();
+    }
+
+    @Test
+    void resumesOnlyOnceBothSignalsAreUnderTheLowMark() {
+        evaluate(1, HIGH_AGE);
+
+        evaluate(1, LOW_AGE.plusMillis(1));
+        evaluate(LOW_BACKLOG + 1, LOW_AGE);
+        verify(inbound, never()).resumeIfPaused();
+
+        evaluate(LOW_BACKLOG, LOW_AGE);
+        verify(inbound).resumeIfPaused();
+    }
+
+    @Test
+    void probesOnlyUpToTheWatermarkThatCanFlipTheState() {
+        evaluate(HIGH_BACKLOG, Duration.ZERO);
+        verify(redisService).readStreamLag(HIGH_BACKLOG);
+
+        evaluate(LOW_BACKLOG, Duration.ZERO);
+        verify(redisService).readStreamLag(LOW_BACKLOG + 1);
+    }
+
+    @Test
+    void keepsTheCurrentStateWhenSamplingFails() {
+        evaluate(HIGH_BACKLOG, Duration.ZERO);
+
+        when(redisService.readStreamLag(anyLong())).thenThrow(new IllegalStateException("redis down"));
+        backpressure.evaluate();
+
+        verify(inbound, never()).resumeIfPaused();
+        assertThat(pausedGauge()).isEqualTo(1);
+        assertThat(meterRegistry.get("ledger.stream.tx.backlog").gauge().value()).isEqualTo(HIGH_BACKLOG);
+    }
+
+    @Test
+    void onlyReportsLagWhenDisabled() {
+        backpressure = backpressure(false);
+
+        evaluate(HIGH_BACKLOG * 2, HIGH_AGE);
+
+        verify(inbound, never()).pauseIfRunning();
+        assertThat(meterRegistry.get("ledger.stream.tx.backlog").gauge().value()).isEqualTo(HIGH_BACKLOG * 2);
+    }
+
+    private IngestionBackpressure backpressure(boolean enabled) {
+        meterRegistry.clear();
+        IngestionBackpressure created = new IngestionBackpressure(List.of(inbound, byAccount), redisService, meterRegistry,
+                enabled, HIGH_BACKLOG, LOW_BACKLOG, HIGH_AGE, LOW_AGE);
+        created.init();
+        return created;
+    }
+
+    private void evaluate(long backlog, Duration oldestPendingAge) {
+        // Half undelivered, half pending, so both parts of the backlog count
+        StreamLag lag = new StreamLag(backlog, backlog / 2, backlog - backlog / 2, oldestPendingAge);
+        when(redisService.readStreamLag(anyLong())).thenReturn(lag);
+        backpressure.evaluate();
+    }
+
+    private double pausedGauge() {
+        return meterRegistry.get("ledger.ingestion.paused").gauge().value();
+    }
+}
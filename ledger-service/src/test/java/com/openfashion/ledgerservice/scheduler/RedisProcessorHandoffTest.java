@@ -0,0 +1,201 @@
+package com.openfashion.ledgerservice.scheduler;
+
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.dto.redis.AckResult;
+import com.openfashion.ledgerservice.dto.redis.StreamEnvelope;
+import com.openfashion.ledgerservice.service.IngestionController;
+import com.openfashion.ledgerservice.service.LedgerBatchService;
+import com.openfashion.ledgerservice.service.RedisService;
+import com.openfashion.ledgerservice.service.imp.StreamPartitionAssignor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Hands a staging stream partition between two nodes sharing a real Redis, with the stream
+ * reads and the Postgres writes stubbed out.
+ */
+@Testcontainers
+class RedisProcessorHandoffTest {
+
+    private static final String STREAM = "ledger:stream:tx";
+    private static final Duration TTL = Duration.ofSeconds(10);
+    private static final long WAIT_SECONDS = 5;
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    // Stream reads and commits of both nodes, in the order they happened
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private final List<RedisProcessor> processors = new ArrayList<>();
+    private final List<StreamPartitionAssignor> assignors = new ArrayList<>();
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate template;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        template = new StringRedisTemplate(connectionFactory);
+        template.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        processors.forEach(RedisProcessor::stop);
+        assignors.forEach(StreamPartitionAssignor::leave);
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void theNewOwnerWaitsForTheReleasedWorkerToFinishItsBatch() throws Exception {
+        CountDownLatch persisting = new CountDownLatch(1);
+        CountDownLatch finishPersisting = new CountDownLatch(1);
+
+        StreamPartitionAssignor firstAssignor = assignor("node-a");
+        RedisService firstRedis = streamWithOneEntry("a", () -> {
+        });
+        LedgerBatchService firstLedger = mock(LedgerBatchService.class);
+        doAnswer(_ -> {
+            events.add("a:persist");
+            persisting.countDown();
+            finishPersisting.await(WAIT_SECONDS, TimeUnit.SECONDS);
+            return null;
+        }).when(firstLedger).saveTransactions(anyList());
+        RedisProcessor first = processor(firstRedis, firstLedger, firstAssignor);
+
+        first.rebalance();
+        assertThat(persisting.await(WAIT_SECONDS, TimeUnit.SECONDS)).isTrue();
+
+        // A second node joins and wins the partition while the first is mid-batch
+        StreamPartitionAssignor secondAssignor = challenger();
+        RedisService secondRedis = emptyStream("b");
+        RedisProcessor second = processor(secondRedis, mock(LedgerBatchService.class), secondAssignor);
+        first.rebalance();
+        second.rebalance();
+
+        verify(secondRedis, after(500).never()).readNewFromStream(eq(STREAM), anyInt(), any());
+        verify(secondRedis, never()).claimStaleFromStream(eq(STREAM), anyInt(), any());
+
+        finishPersisting.countDown();
+
+        verify(secondRedis, timeout(WAIT_SECONDS * 1000).atLeastOnce()).readNewFromStream(eq(STREAM), anyInt(), any());
+        verify(firstRedis).acknowledgePersisted(anyList());
+        assertThat(events.indexOf("a:ack")).isLessThan(events.indexOf("b:read"));
+    }
+
+    @Test
+    void leavesTheBatchUncommittedOnceTheLeaseIsLost() {
+        StreamPartitionAssignor assignor = assignor("node-a");
+        // Another node took the lease while the entries were being read
+        RedisService redis = streamWithOneEntry("a", () -> template.opsForValue().set("ledger:stream:lease:" + STREAM, "node-b"));
+        LedgerBatchService ledger = mock(LedgerBatchService.class);
+        RedisProcessor processor = processor(redis, ledger, assignor);
+
+        processor.rebalance();
+
+        verify(redis, timeout(WAIT_SECONDS * 1000)).readNewFromStream(eq(STREAM), anyInt(), any());
+        verify(ledger, after(500).never()).saveTransactions(anyList());
+        verify(redis, never()).acknowledgePersisted(anyList());
+    }
+
+    private RedisProcessor processor(RedisService redisService, LedgerBatchService ledgerBatchService,
+                                     StreamPartitionAssignor assignor) {
+        RedisProcessor processor = new RedisProcessor(redisService, ledgerBatchService,
+                mock(IngestionController.class), assignor);
+        processors.add(processor);
+        return processor;
+    }
+
+    private StreamPartitionAssignor assignor(String nodeId) {
+        StreamPartitionAssignor assignor = new StreamPartitionAssignor(template, TTL, nodeId);
+        assignors.add(assignor);
+        return assignor;
+    }
+
+    /**
+     * A node that wins the partition against the nodes already live; ids are tried until one does.
+     */
+    private StreamPartitionAssignor challenger() {
+        for (int i = 0; ; i++) {
+            StreamPartitionAssignor candidate = new StreamPartitionAssignor(template, TTL, "node-b-" + i);
+            if (candidate.heartbeatAndAssign(List.of(STREAM)).contains(STREAM)) {
+                assignors.add(candidate);
+                return candidate;
+            }
+            candidate.leave();
+        }
+    }
+
+    /**
+     * A partition that hands out one entry on the first read, after running {@code onRead}.
+     */
+    private RedisService streamWithOneEntry(String node, Runnable onRead) {
+        RedisService redisService = emptyStream(node);
+        AtomicBoolean delivered = new AtomicBoolean();
+        StreamEnvelope<TransactionRequest> entry =
+                new StreamEnvelope<>(STREAM, "1-0", "batch-1", new byte[0], new TransactionRequest(), 1);
+
+        when(redisService.readNewFromStream(eq(STREAM), anyInt(), any())).thenAnswer(_ -> {
+            events.add(node + ":read");
+            if (delivered.compareAndSet(false, true)) {
+                onRead.run();
+                return List.of(entry);
+            }
+            Thread.sleep(20);
+            return List.of();
+        });
+        return redisService;
+    }
+
+    private RedisService emptyStream(String node) {
+        RedisService redisService = mock(RedisService.class);
+        when(redisService.stagingStreams()).thenReturn(List.of(STREAM));
+        when(redisService.claimStaleFromStream(eq(STREAM), anyInt(), any())).thenReturn(List.of());
+        when(redisService.readNewFromStream(eq(STREAM), anyInt(), any())).thenAnswer(_ -> {
+            events.add(node + ":read");
+            Thread.sleep(20);
+            return List.of();
+        });
+        when(redisService.acknowledgePersisted(anyList())).thenAnswer(invocation -> {
+            List<?> acked = invocation.getArgument(0);
+            events.add(node + ":ack");
+            return new AckResult(acked.size(), acked.size(), List.of(), true, null);
+        });
+        return redisService;
+    }
+}
@@ -0,0 +1,212 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.core.redis.RedisKeyspace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StreamOperations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Drives the dispatcher against an in-memory done stream and meta hash, so read failures and
+ * missed notifications can be injected.
+ */
+class BatchCompletionDispatcherTest {
+
+    private static final String BATCH_DONE_STREAM = "ledger:stream:batch:done";
+    private static final String BATCH_META_PREFIX = "ledger:batch:meta:";
+    private static final Duration LONG_TIMEOUT = Duration.ofSeconds(30);
+
+    private final Map<String, BlockingQueue<Object>> doneStreams = new ConcurrentHashMap<>();
+    private final Map<String, String> metaStatus = new ConcurrentHashMap<>();
+    private final AtomicLong eventSequence = new AtomicLong();
+
+    private RedisKeyspace keyspace;
+    private BatchCompletionDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+    }
+
+    @Test
+    void completesOnTheDoneEvent() throws Exception {
+        start(1);
+        CompletableFuture<Boolean> done = dispatcher.register("corr", LONG_TIMEOUT);
+        assertThat(done).isNotDone();
+
+        publish(0, "corr", "DONE");
+
+        assertThat(done.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void ignoresEventsOfOtherBatchesAndOtherStatuses() throws Exception {
+        start(1);
+        CompletableFuture<Boolean> done = dispatcher.register("corr", LONG_TIMEOUT);
+
+        publish(0, "other", "DONE");
+        publish(0, "corr", "PENDING");
+        publish(0, "corr", "DONE");
+
+        assertThat(done.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(dispatcher.register("other", Duration.ofMillis(100)).get(5, TimeUnit.SECONDS)).isFalse();
+    }
+
+    @Test
+    void completesOnRegistrationWhenTheBatchFinishedFirst() {
+        start(1);
+        markDone("corr", 0);
+
+        CompletableFuture<Boolean> done = dispatcher.register("corr", LONG_TIMEOUT);
+
+        assertThat(done).isCompletedWithValue(true);
+    }
+
+    @Test
+    void rechecksTheMetaHashAfterAReadFailure() throws Exception {
+        start(1);
+        CompletableFuture<Boolean> done = dispatcher.register("corr", LONG_TIMEOUT);
+
+        // The DONE event is lost with the failed read; only the meta hash records it
+        markDone("corr", 0);
+        doneStreams.get(doneStream(0)).add(new IllegalStateException("connection reset"));
+
+        assertThat(done.get(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void rechecksTheMetaHashWhenTheWaiterTimesOut() throws Exception {
+        start(1);
+        CompletableFuture<Boolean> finished = dispatcher.register("finished", Duration.ofMillis(200));
+        CompletableFuture<Boolean> stuck = dispatcher.register("stuck", Duration.ofMillis(200));
+
+        markDone("finished", 0);
+
+        assertThat(finished.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(stuck.get(5, TimeUnit.SECONDS)).isFalse();
+    }
+
+    @Test
+    void completesOnlyTheWaiterOfTheMatchingShardSubBatch() throws Exception {
+        start(2);
+        CompletableFuture<Boolean> shard0 = dispatcher.register("corr@0", LONG_TIMEOUT);
+        CompletableFuture<Boolean> shard1 = dispatcher.register("corr@1", LONG_TIMEOUT);
+
+        publish(1, "corr@1", "DONE");
+
+        assertThat(shard1.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(shard0).isNotDone();
+
+        publish(0, "corr@0", "DONE");
+        assertThat(shard0.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void readsTheMetaHashOnTheShardOfTheSubBatch() {
+        start(2);
+        // A DONE status under another shard's key belongs to a different sub-batch
+        metaStatus.put(keyspace.key(BATCH_META_PREFIX + "corr@1", 0), "DONE");
+        assertThat(dispatcher.register("corr@1", LONG_TIMEOUT)).isNotDone();
+
+        markDone("corr@0", 0);
+        assertThat(dispatcher.register("corr@0", LONG_TIMEOUT)).isCompletedWithValue(true);
+    }
+
+    @Test
+    void completesOutstandingWaitersWithFalseOnStop() {
+        start(1);
+        CompletableFuture<Boolean> done = dispatcher.register("corr", LONG_TIMEOUT);
+
+        dispatcher.stop();
+        dispatcher = null;
+
+        assertThat(done).isCompletedWithValue(false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void start(int shards) {
+        keyspace = new RedisKeyspace(shards, 1);
+        keyspace.keys(BATCH_DONE_STREAM).forEach(stream -> doneStreams.put(stream, new LinkedBlockingQueue<>()));
+
+        RedisTemplate<String, String> balanceTemplate = mock(RedisTemplate.class);
+        StreamOperations<String, Object, Object> streamOperations = mock(StreamOperations.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+
+        doReturn(streamOperations).when(balanceTemplate).opsForStream();
+        doReturn(hashOperations).when(balanceTemplate).opsForHash();
+        doReturn(List.of()).when(streamOperations).reverseRange(anyString(), any(Range.class), any(Limit.class));
+        doAnswer(invocation -> read(invocation.getArgument(1)))
+                .when(streamOperations).read(any(StreamReadOptions.class), any(StreamOffset.class));
+        doAnswer(invocation -> metaStatus.get(invocation.<String>getArgument(0)))
+                .when(hashOperations).get(anyString(), eq("status"));
+
+        dispatcher = new BatchCompletionDispatcher(balanceTemplate, keyspace);
+        dispatcher.start();
+    }
+
+    /**
+     * Blocks briefly like {@code XREAD BLOCK}, then returns the next queued event, throws the
+     * next queued failure, or returns nothing.
+     */
+    private List<MapRecord<String, Object, Object>> read(StreamOffset<String> offset) {
+        Object next;
+        try {
+            next = doneStreams.get(offset.getKey()).poll(50, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException _) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        }
+
+        return switch (next) {
+            case null -> List.of();
+            case RuntimeException failure -> throw failure;
+            default -> {
+                @SuppressWarnings("unchecked")
+                MapRecord<String, Object, Object> event = (MapRecord<String, Object, Object>) next;
+                yield List.of(event);
+            }
+        };
+    }
+
+    private void publish(int shard, String batchId, String status) {
+        String stream = doneStream(shard);
+        Map<Object, Object> fields = Map.of("batchId", batchId, "status", status);
+        doneStreams.get(stream).add(MapRecord.create(stream, fields)
+                .withId(RecordId.of(eventSequence.incrementAndGet() + "-0")));
+    }
+
+    private void markDone(String batchId, int shard) {
+        metaStatus.put(keyspace.key(BATCH_META_PREFIX + batchId, shard), "DONE");
+    }
+
+    private String doneStream(int shard) {
+        return keyspace.key(BATCH_DONE_STREAM, shard);
+    }
+}
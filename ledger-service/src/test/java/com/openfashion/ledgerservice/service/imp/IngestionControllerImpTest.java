@@ -0,0 +1,154 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.dto.consumer.IngestionTuningSnapshot;
+import com.openfashion.ledgerservice.service.IngestionController.Stage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngestionControllerImpTest {
+
+    private static final int MAX_IN_FLIGHT = 32;
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private final IngestionControllerImp controller = controller(true);
+
+    @Test
+    void cutsBothKnobsWhenAStageIsOverTarget() {
+        recordFast(Stage.DB_PERSIST);
+        controller.recordLatency(Stage.REDIS_STAGE, Duration.ofMillis(300));
+
+        controller.adjust();
+
+        assertThat(controller.snapshot())
+                .returns(22, IngestionTuningSnapshot::inFlightLimit)
+                .returns(350, IngestionTuningSnapshot::batchSize)
+                .returns("DECREASE", IngestionTuningSnapshot::lastDecision);
+    }
+
+    @Test
+    void growsBothKnobsAdditivelyOnceEveryStageIsUnderTarget() {
+        overTarget();
+        controller.adjust();
+
+        recordFast(Stage.REDIS_STAGE);
+        recordFast(Stage.DONE_WAIT);
+        controller.adjust();
+
+        assertThat(controller.snapshot())
+                .returns(23, IngestionTuningSnapshot::inFlightLimit)
+                .returns(400, IngestionTuningSnapshot::batchSize)
+                .returns("INCREASE", IngestionTuningSnapshot::lastDecision);
+    }
+
+    @Test
+    void aSingleSpikeCutsOnlyOnce() {
+        overTarget();
+        controller.adjust();
+
+        // The spike is still inside a decaying timer window, but not in this interval
+        for (int tick = 0; tick < 5; tick++) {
+            recordFast(Stage.REDIS_STAGE);
+            controller.adjust();
+        }
+
+        assertThat(controller.snapshot())
+                .returns(27, IngestionTuningSnapshot::inFlightLimit)
+                .returns(MAX_BATCH_SIZE, IngestionTuningSnapshot::batchSize);
+    }
+
+    @Test
+    void holdsWhenNoStageHasFreshSamples() {
+        overTarget();
+        controller.adjust();
+
+        controller.adjust();
+
+        assertThat(controller.snapshot())
+                .returns(22, IngestionTuningSnapshot::inFlightLimit)
+                .returns("HOLD", IngestionTuningSnapshot::lastDecision);
+    }
+
+    @Test
+    void staysWithinTheConfiguredBounds() {
+        for (int tick = 0; tick < 20; tick++) {
+            overTarget();
+            controller.adjust();
+        }
+        assertThat(controller.snapshot())
+                .returns(1, IngestionTuningSnapshot::inFlightLimit)
+                .returns(50, IngestionTuningSnapshot::batchSize);
+
+        for (int tick = 0; tick < 40; tick++) {
+            recordFast(Stage.REDIS_STAGE);
+            controller.adjust();
+        }
+        assertThat(controller.snapshot())
+                .returns(MAX_IN_FLIGHT, IngestionTuningSnapshot::inFlightLimit)
+                .returns(MAX_BATCH_SIZE, IngestionTuningSnapshot::batchSize);
+    }
+
+    @Test
+    void onlyReportsLatencyWhenDisabled() {
+        IngestionControllerImp disabled = controller(false);
+        disabled.recordLatency(Stage.REDIS_STAGE, Duration.ofMillis(300));
+
+        disabled.adjust();
+
+        assertThat(disabled.snapshot())
+                .returns(MAX_IN_FLIGHT, IngestionTuningSnapshot::inFlightLimit)
+                .returns("HOLD", IngestionTuningSnapshot::lastDecision);
+        assertThat(disabled.snapshot().p99Millis().get("REDIS_STAGE")).isBetween(290.0, 310.0);
+    }
+
+    @Test
+    void aLoweredLimitDelaysNewSlotsUntilEnoughBatchesComplete() throws Exception {
+        for (int slot = 0; slot < MAX_IN_FLIGHT; slot++) {
+            controller.acquireSlot();
+        }
+        overTarget();
+        controller.adjust();
+
+        CompletableFuture<Void> next = CompletableFuture.runAsync(() -> {
+            try {
+                controller.acquireSlot();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // 32 taken against a limit of 22: the 11th release frees the slot
+        for (int released = 0; released < 10; released++) {
+            controller.releaseSlot();
+        }
+        Thread.sleep(100);
+        assertThat(next).isNotDone();
+
+        controller.releaseSlot();
+        next.get(5, TimeUnit.SECONDS);
+        assertThat(controller.snapshot().inFlight()).isEqualTo(22);
+    }
+
+    private void overTarget() {
+        controller.recordLatency(Stage.REDIS_STAGE, Duration.ofMillis(300));
+    }
+
+    private void recordFast(Stage stage) {
+        for (int sample = 0; sample < 100; sample++) {
+            controller.recordLatency(stage, Duration.ofMillis(5));
+        }
+    }
+
+    private static IngestionControllerImp controller(boolean enabled) {
+        IngestionControllerImp controller = new IngestionControllerImp(new SimpleMeterRegistry(), enabled,
+                1, MAX_IN_FLIGHT, 50, MAX_BATCH_SIZE, 50, 0.7,
+                Duration.ofMillis(50), Duration.ofMillis(200), Duration.ofMillis(500));
+        controller.init();
+        return controller;
+    }
+}
@@ -0,0 +1,246 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.dto.redis.DurabilityRequirement;
+import com.openfashion.ledgerservice.dto.redis.Settlement;
+import com.openfashion.ledgerservice.dto.redis.StreamEnvelope;
+import com.openfashion.ledgerservice.model.Account;
+import com.openfashion.ledgerservice.model.Transaction;
+import com.openfashion.ledgerservice.model.TransactionType;
+import com.openfashion.ledgerservice.repository.AccountRepository;
+import com.openfashion.ledgerservice.repository.AccountSnapshotRepository;
+import com.openfashion.ledgerservice.repository.PostingRepository;
+import com.openfashion.ledgerservice.repository.SettlementRepository;
+import com.openfashion.ledgerservice.repository.TransactionBatchRepository;
+import com.openfashion.ledgerservice.repository.TransactionRepository;
+import com.openfashion.ledgerservice.service.ResultPublisher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.openfashion.ledgerservice.service.imp.RedisServiceHarness.request;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Settles and releases Redis pending deltas against a real Redis, with the Postgres repositories
+ * replaced by in-memory transactions and settlements tables.
+ */
+@Testcontainers
+class LedgerBatchServiceImpTest {
+
+    private static final String PENDING_DELTA = "ledger:pending:delta:minor";
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final TransactionBatchRepository transactionBatchRepository = mock(TransactionBatchRepository.class);
+    private final SettlementRepository settlementRepository = mock(SettlementRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    // Committed transactions by reference id and type, as the unique constraint sees them
+    private final Map<String, Transaction> committed = new ConcurrentHashMap<>();
+    // Settlement records not deleted yet, and every record ever saved
+    private final Map<UUID, Settlement> pendingSettlements = new ConcurrentHashMap<>();
+    private final List<Settlement> recordedSettlements = new CopyOnWriteArrayList<>();
+
+    private final UUID wallet = UUID.randomUUID();
+    private final UUID merchant = UUID.randomUUID();
+
+    private RedisServiceHarness harness;
+    private RedisServiceImp redisService;
+    private LedgerBatchServiceImp ledgerBatchService;
+
+    @BeforeEach
+    void setUp() {
+        harness = RedisServiceHarness.standalone(REDIS.getHost(), REDIS.getMappedPort(6379), 100);
+        harness.snapshots.put(wallet, "100");
+        harness.snapshots.put(merchant, "0");
+        redisService = spy(harness.redisService);
+
+        when(accountRepository.findAllById(anyIterable())).thenReturn(List.of(account(wallet), account(merchant)));
+        when(transactionBatchRepository.upsertTransactions(anyList())).thenAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            return transactions.stream()
+                    .mapToInt(tx -> committed.putIfAbsent(signature(tx), tx) == null ? 1 : 0)
+                    .toArray();
+        });
+        when(transactionRepository.findAllByReferenceIdIn(anySet())).thenAnswer(invocation -> {
+            Set<UUID> referenceIds = invocation.getArgument(0);
+            return committed.values().stream()
+                    .filter(tx -> referenceIds.contains(tx.getReferenceId()))
+                    .toList();
+        });
+
+        doAnswer(invocation -> {
+            Settlement settlement = invocation.getArgument(0);
+            pendingSettlements.put(settlement.id(), settlement);
+            recordedSettlements.add(settlement);
+            return null;
+        }).when(settlementRepository).save(any());
+        doAnswer(invocation -> {
+            Collection<UUID> ids = invocation.getArgument(0);
+            ids.forEach(pendingSettlements::remove);
+            return null;
+        }).when(settlementRepository).delete(anyCollection());
+        when(settlementRepository.lockStale(any(), anyInt()))
+                .thenAnswer(_ -> List.copyOf(pendingSettlements.values()));
+        when(transactionManager.getTransaction(any())).thenAnswer(_ -> new SimpleTransactionStatus());
+
+        ledgerBatchService = new LedgerBatchServiceImp(
+                redisService,
+                accountRepository,
+                transactionRepository,
+                mock(PostingRepository.class),
+                mock(ResultPublisher.class),
+                transactionBatchRepository,
+                mock(AccountSnapshotRepository.class),
+                settlementRepository,
+                transactionManager);
+        ReflectionTestUtils.setField(ledgerBatchService, "settlementSweepGrace", Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    void redeliveringACommittedEntryLeavesPendingUnchanged() {
+        StreamEnvelope<TransactionRequest> entry = stage(request(TransactionType.TRANSFER, wallet, merchant, "30"));
+        assertThat(pending(wallet)).isEqualTo("-300000");
+
+        ledgerBatchService.saveTransactions(List.of(entry));
+        assertThat(pending(wallet)).isEqualTo("0");
+        assertThat(pending(merchant)).isEqualTo("0");
+
+        // A lost ack, a reclaim or a partition handoff delivers the same entry again
+        ledgerBatchService.saveTransactions(List.of(entry));
+
+        assertThat(pending(wallet)).isEqualTo("0");
+        assertThat(pending(merchant)).isEqualTo("0");
+    }
+
+    @Test
+    void releasesTheDeltaOfAReplayStagedAfterItsIdempotencyKeyExpired() {
+        TransactionRequest transfer = request(TransactionType.TRANSFER, wallet, merchant, "30");
+        ledgerBatchService.saveTransactions(List.of(stage(transfer)));
+
+        expireIdempotencyKeys();
+        StreamEnvelope<TransactionRequest> replay = stage(transfer);
+        assertThat(pending(wallet)).isEqualTo("-300000");
+
+        ledgerBatchService.saveTransactions(List.of(replay));
+
+        assertThat(pending(wallet)).isEqualTo("0");
+        assertThat(pending(merchant)).isEqualTo("0");
+        assertThat(committed).hasSize(1);
+    }
+
+    @Test
+    void releasesTheDeltaOfAReplayOfARejectedRequest() {
+        TransactionRequest transfer = request(TransactionType.TRANSFER, wallet, merchant, "30");
+        Transaction rejected = Transaction.builder()
+                .referenceId(transfer.getReferenceId())
+                .type(transfer.getType())
+                .build();
+        committed.put(signature(rejected), rejected);
+
+        ledgerBatchService.saveTransactions(List.of(stage(transfer)));
+
+        assertThat(pending(wallet)).isEqualTo("0");
+    }
+
+    @Test
+    void aFailedSettleIsRetriedByTheSweep() {
+        StreamEnvelope<TransactionRequest> entry = stage(request(TransactionType.TRANSFER, wallet, merchant, "30"));
+        doThrow(new RedisConnectionFailureException("down")).doCallRealMethod().when(redisService).settle(any());
+
+        ledgerBatchService.saveTransactions(List.of(entry));
+
+        assertThat(pending(wallet)).isEqualTo("-300000");
+        assertThat(pendingSettlements).hasSize(1);
+
+        ledgerBatchService.retryPendingSettlements();
+
+        assertThat(pending(wallet)).isEqualTo("0");
+        assertThat(pending(merchant)).isEqualTo("0");
+        assertThat(pendingSettlements).isEmpty();
+    }
+
+    @Test
+    void retryingASettlementThatAlreadyLandedChangesNothing() {
+        StreamEnvelope<TransactionRequest> entry = stage(request(TransactionType.TRANSFER, wallet, merchant, "30"));
+        ledgerBatchService.saveTransactions(List.of(entry));
+        assertThat(pending(wallet)).isEqualTo("0");
+
+        // The settle landed but deleting its record did not
+        Settlement settled = recordedSettlements.getFirst();
+        pendingSettlements.put(settled.id(), settled);
+
+        ledgerBatchService.retryPendingSettlements();
+
+        assertThat(pending(wallet)).isEqualTo("0");
+        assertThat(pending(merchant)).isEqualTo("0");
+        assertThat(pendingSettlements).isEmpty();
+    }
+
+    private StreamEnvelope<TransactionRequest> stage(TransactionRequest request) {
+        assertThat(harness.redisService.stageBatch(List.of(request), DurabilityRequirement.NONE).accepted())
+                .containsExactly(request);
+
+        List<StreamEnvelope<TransactionRequest>> read = harness.redisService.stagingStreams().stream()
+                .flatMap(stream -> harness.redisService.readNewFromStream(stream, 10, null).stream())
+                .toList();
+        assertThat(read).hasSize(1);
+        return read.getFirst();
+    }
+
+    private void expireIdempotencyKeys() {
+        Collection<String> buckets = harness.balanceTemplate.keys("ledger:idempotency:*");
+        assertThat(buckets).isNotEmpty();
+        harness.balanceTemplate.delete(buckets);
+    }
+
+    private Object pending(UUID accountId) {
+        return harness.balanceTemplate.opsForHash().get(PENDING_DELTA, accountId.toString());
+    }
+
+    private static String signature(Transaction tx) {
+        return tx.getReferenceId() + "_" + tx.getType();
+    }
+
+    private static Account account(UUID id) {
+        Account account = new Account();
+        account.setId(id);
+        return account;
+    }
+}
@@ -0,0 +1,193 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.core.config.RedisConfig;
+import com.openfashion.ledgerservice.core.config.StreamPayloadFormat;
+import com.openfashion.ledgerservice.core.redis.RedisFieldCodec;
+import com.openfashion.ledgerservice.core.redis.RedisKeyspace;
+import com.openfashion.ledgerservice.core.redis.TransactionRequestCodec;
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.dto.redis.BalanceSnapshot;
+import com.openfashion.ledgerservice.model.CurrencyType;
+import com.openfashion.ledgerservice.model.TransactionType;
+import com.openfashion.ledgerservice.repository.AccountSnapshotRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConfiguration;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Wires a {@link RedisServiceImp} against a real Redis the way the application context does,
+ * with Postgres balances served from memory unless a repository is passed in. Redis is flushed
+ * before the service initializes.
+ */
+final class RedisServiceHarness implements AutoCloseable {
+
+    final LettuceConnectionFactory connectionFactory;
+    final RedisTemplate<String, String> balanceTemplate;
+    final RedisTemplate<String, byte[]> streamTemplate;
+    final RedisKeyspace keyspace;
+    final InMemoryAccountSnapshots snapshots = new InMemoryAccountSnapshots();
+    final RedisServiceImp redisService;
+
+    private final BatchCompletionDispatcher dispatcher;
+
+    private RedisServiceHarness(RedisConfiguration configuration, int shards, int partitions, int chunkSize,
+                                AccountSnapshotRepository balances, Consumer<RedisTemplate<String, String>> beforeInit) {
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        RedisConfig redisConfig = new RedisConfig();
+        balanceTemplate = redisConfig.balanceTemplate(connectionFactory);
+        balanceTemplate.afterPropertiesSet();
+        streamTemplate = redisConfig.streamTemplate(connectionFactory);
+        streamTemplate.afterPropertiesSet();
+
+        balanceTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        beforeInit.accept(balanceTemplate);
+
+        keyspace = new RedisKeyspace(shards, partitions);
+        dispatcher = new BatchCompletionDispatcher(balanceTemplate, keyspace);
+        dispatcher.start();
+
+        redisService = new RedisServiceImp(
+                balanceTemplate,
+                streamTemplate,
+                dispatcher,
+                new TransactionRequestCodec(new SimpleMeterRegistry(), StreamPayloadFormat.BINARY, true, 256),
+                new RedisFieldCodec(false),
+                keyspace,
+                balances != null ? balances : snapshots);
+        ReflectionTestUtils.setField(redisService, "stagingChunkSize", chunkSize);
+        ReflectionTestUtils.setField(redisService, "idempotencyBucket", Duration.ofHours(1));
+        ReflectionTestUtils.setField(redisService, "idempotencyLookback", Duration.ofHours(24));
+        ReflectionTestUtils.setField(redisService, "encodingCheckInterval", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(redisService, "settlementMarkerTtl", Duration.ofHours(24));
+        redisService.init();
+    }
+
+    static RedisServiceHarness standalone(String host, int port, int chunkSize) {
+        return standalone(host, port, chunkSize, _ -> {
+        });
+    }
+
+    /**
+     * @param beforeInit writes keys into the flushed Redis before the service initializes, e.g.
+     *                   the legacy hashes it migrates on startup
+     */
+    static RedisServiceHarness standalone(String host, int port, int chunkSize,
+                                          Consumer<RedisTemplate<String, String>> beforeInit) {
+        return new RedisServiceHarness(new RedisStandaloneConfiguration(host, port), 1, 1, chunkSize, null, beforeInit);
+    }
+
+    /**
+     * @param balances Postgres balances read by lazy hydration, instead of {@link #snapshots}
+     */
+    static RedisServiceHarness standalone(String host, int port, int chunkSize, AccountSnapshotRepository balances) {
+        return new RedisServiceHarness(new RedisStandaloneConfiguration(host, port), 1, 1, chunkSize, balances, _ -> {
+        });
+    }
+
+    /**
+     * A sharded keyspace on a single node, for tests that only care about per-shard outcomes.
+     *
+     * @param balances Postgres balances read by lazy hydration, instead of {@link #snapshots}
+     */
+    static RedisServiceHarness standalone(String host, int port, int shards, int chunkSize,
+                                          AccountSnapshotRepository balances) {
+        return new RedisServiceHarness(new RedisStandaloneConfiguration(host, port), shards, 1, chunkSize, balances, _ -> {
+        });
+    }
+
+    static RedisServiceHarness cluster(List<String> nodes, String password, int shards) {
+        RedisClusterConfiguration configuration = new RedisClusterConfiguration(nodes);
+        configuration.setPassword(RedisPassword.of(password));
+        return new RedisServiceHarness(configuration, shards, 1, 100, null, _ -> {
+        });
+    }
+
+    /**
+     * A random account id whose keys live on the given shard.
+     */
+    UUID accountOnShard(int shard) {
+        UUID accountId;
+        do {
+            accountId = UUID.randomUUID();
+        } while (keyspace.shardOf(accountId) != shard);
+        return accountId;
+    }
+
+    static TransactionRequest request(TransactionType type, UUID debit, UUID credit, String amount) {
+        TransactionRequest request = new TransactionRequest();
+        request.setReferenceId(UUID.randomUUID());
+        request.setType(type);
+        request.setAmount(new BigDecimal(amount));
+        request.setCurrency(CurrencyType.USD);
+        request.setSenderId(UUID.randomUUID());
+        request.setReceiverId(UUID.randomUUID());
+        request.setDebitAccountId(debit);
+        request.setCreditAccountId(credit);
+        return request;
+    }
+
+    @Override
+    public void close() {
+        dispatcher.stop();
+        connectionFactory.destroy();
+    }
+
+    /**
+     * Committed Postgres balances, as the lazy hydration reads them.
+     */
+    static final class InMemoryAccountSnapshots implements AccountSnapshotRepository {
+
+        private final Map<UUID, BigDecimal> balances = new ConcurrentHashMap<>();
+
+        void put(UUID accountId, String balance) {
+            balances.put(accountId, new BigDecimal(balance));
+        }
+
+        @Override
+        public long streamBalances(int fetchSize, int chunkSize, Consumer<List<BalanceSnapshot>> chunkHandler) {
+            List<BalanceSnapshot> all = balances.entrySet().stream()
+                    .map(entry -> new BalanceSnapshot(entry.getKey(), entry.getValue()))
+                    .toList();
+
+            for (int from = 0; from < all.size(); from += chunkSize) {
+                chunkHandler.accept(new ArrayList<>(all.subList(from, Math.min(all.size(), from + chunkSize))));
+            }
+            return all.size();
+        }
+
+        @Override
+        public List<BalanceSnapshot> findBalances(Collection<UUID> accountIds) {
+            return accountIds.stream()
+                    .filter(balances::containsKey)
+                    .map(accountId -> new BalanceSnapshot(accountId, balances.get(accountId)))
+                    .toList();
+        }
+
+        @Override
+        public void seedGuardedBalances(Collection<UUID> accountIds, Consumer<List<BalanceSnapshot>> seed) {
+            seed.accept(findBalances(accountIds));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.dto.consumer.StagedBatch;
+import com.openfashion.ledgerservice.dto.redis.DurabilityRequirement;
+import com.openfashion.ledgerservice.model.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.openfashion.ledgerservice.service.imp.RedisServiceHarness.request;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs sharded staging against the {@code redis-cluster} compose profile: three masters on
+ * 127.0.0.1:7001-7003 without replicas, AOF enabled.
+ *
+ * <p>Start the cluster with {@code docker compose --profile redis-cluster up -d}, then run
+ * {@code REDIS_PASSWORD=... mvn test -Predis-cluster}.
+ */
+@Tag("redis-cluster")
+class RedisServiceImpClusterTest {
+
+    private static final List<String> NODES = List.of("127.0.0.1:7001", "127.0.0.1:7002", "127.0.0.1:7003");
+    private static final int SHARDS = 3;
+    private static final String TX_STREAM = "ledger:stream:tx";
+
+    private RedisServiceHarness harness;
+
+    @BeforeEach
+    void setUp() {
+        harness = RedisServiceHarness.cluster(NODES, System.getenv().getOrDefault("REDIS_PASSWORD", ""), SHARDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    void everyShardIsServedByItsOwnMaster() {
+        try (RedisClusterConnection cluster = harness.connectionFactory.getClusterConnection()) {
+            Set<String> masters = IntStream.range(0, SHARDS)
+                    .mapToObj(shard -> cluster.clusterGetNodeForSlot(harness.keyspace.slotOf(shard)).getId())
+                    .collect(Collectors.toSet());
+
+            assertThat(masters).hasSize(SHARDS);
+        }
+    }
+
+    @Test
+    void stagesOnEveryShardAndConfirmsAofOnEachShardsMaster() {
+        List<TransactionRequest> batch = crossShardTransfers();
+
+        StagedBatch staged = harness.redisService.stageBatch(batch, new DurabilityRequirement(0, true, Duration.ofSeconds(2)));
+
+        assertThat(staged.accepted()).containsExactlyInAnyOrderElementsOf(batch);
+        assertThat(staged.durable()).isTrue();
+        assertThat(harness.keyspace.shardBatchIds(staged.batchId())).hasSize(SHARDS);
+
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertThat(harness.balanceTemplate.opsForStream().size(harness.keyspace.partitionKey(TX_STREAM, shard, 0)))
+                    .as("tx stream of shard %d", shard)
+                    .isEqualTo(1L);
+        }
+
+        // Every credit lives on the next shard, so each one goes through the relay
+        assertThat(harness.redisService.relayCreditFollowUps(100)).isEqualTo(SHARDS);
+        assertThat(harness.redisService.relayCreditFollowUps(100)).isZero();
+    }
+
+    @Test
+    void reportsMissingReplicasAsNotDurable() {
+        // The masters have no replicas, so WAIT 1 on each shard's master runs into its timeout
+        StagedBatch staged = harness.redisService.stageBatch(crossShardTransfers(),
+                new DurabilityRequirement(1, false, Duration.ofMillis(200)));
+
+        assertThat(staged.accepted()).hasSize(SHARDS);
+        assertThat(staged.durable()).isFalse();
+    }
+
+    private List<TransactionRequest> crossShardTransfers() {
+        List<TransactionRequest> batch = new ArrayList<>();
+
+        for (int shard = 0; shard < SHARDS; shard++) {
+            UUID debit = harness.accountOnShard(shard);
+            UUID credit = harness.accountOnShard((shard + 1) % SHARDS);
+            harness.snapshots.put(debit, "100");
+            batch.add(request(TransactionType.TRANSFER, debit, credit, "40"));
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,262 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.dto.consumer.StagedBatch;
+import com.openfashion.ledgerservice.dto.redis.DurabilityRequirement;
+import com.openfashion.ledgerservice.dto.redis.Settlement;
+import com.openfashion.ledgerservice.model.Account;
+import com.openfashion.ledgerservice.model.Posting;
+import com.openfashion.ledgerservice.model.PostingDirection;
+import com.openfashion.ledgerservice.model.TransactionType;
+import com.openfashion.ledgerservice.repository.AccountSnapshotRepository;
+import com.openfashion.ledgerservice.repository.SettlementRepository;
+import com.openfashion.ledgerservice.repository.TransactionBatchRepository;
+import com.openfashion.ledgerservice.repository.implementation.AccountSnapshotRepositoryImp;
+import com.openfashion.ledgerservice.repository.implementation.SettlementRepositoryImp;
+import com.openfashion.ledgerservice.repository.implementation.TransactionBatchRepositoryImp;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.openfashion.ledgerservice.service.imp.RedisServiceHarness.request;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Interleaves lazy snapshot hydration with balance settlements, against real Postgres and Redis.
+ */
+@Testcontainers
+class RedisServiceImpHydrationTest {
+
+    private static final String DB_SNAPSHOT = "ledger:db:snapshot:minor";
+    private static final String PENDING_DELTA = "ledger:pending:delta:minor";
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private AnnotationConfigApplicationContext context;
+    private RedisServiceHarness harness;
+    private TransactionBatchRepository transactionBatchRepository;
+    private SettlementRepository settlementRepository;
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate writeTemplate;
+    private JdbcTemplate jdbcTemplate;
+
+    private final UUID world = UUID.randomUUID();
+    private final UUID wallet = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext(PostgresConfig.class);
+        transactionBatchRepository = context.getBean(TransactionBatchRepository.class);
+        settlementRepository = context.getBean(SettlementRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        writeTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        writeTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        harness = RedisServiceHarness.standalone(REDIS.getHost(), REDIS.getMappedPort(6379), 100,
+                context.getBean(AccountSnapshotRepository.class));
+
+        insertAccount(world, "0");
+        insertAccount(wallet, "100");
+    }
+
+    @AfterEach
+    void tearDown() {
+        harness.close();
+        context.close();
+    }
+
+    @Test
+    void hydrationWaitsForACommittedDepositToSettle() throws Exception {
+        stageDeposit("50");
+
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch settle = new CountDownLatch(1);
+
+        CompletableFuture<Void> settlement = CompletableFuture.runAsync(() -> persistDeposit("50", () -> {
+            committed.countDown();
+            await(settle);
+        }));
+        assertThat(committed.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // Postgres already holds 150 while Redis still has the deposit as a pending delta
+        TransactionRequest overdraft = request(TransactionType.TRANSFER, wallet, UUID.randomUUID(), "180");
+        CompletableFuture<StagedBatch> staging = CompletableFuture.supplyAsync(() ->
+                harness.redisService.stageBatch(List.of(overdraft), DurabilityRequirement.NONE));
+
+        assertThatThrownBy(() -> staging.get(500, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+        settle.countDown();
+        settlement.get(10, TimeUnit.SECONDS);
+        StagedBatch staged = staging.get(10, TimeUnit.SECONDS);
+
+        // Seeding 150 next to the unsettled +50 would have let the overdraft through
+        assertThat(staged.nsf()).containsExactly(overdraft);
+        assertThat(harness.balanceTemplate.opsForHash().get(DB_SNAPSHOT, wallet.toString())).isEqualTo("1500000");
+        assertThat(harness.balanceTemplate.opsForHash().get(PENDING_DELTA, wallet.toString())).isEqualTo("0");
+    }
+
+    @Test
+    void settlementsAfterTheSeedAddToTheSnapshot() {
+        TransactionRequest spend = request(TransactionType.TRANSFER, wallet, UUID.randomUUID(), "30");
+        assertThat(harness.redisService.stageBatch(List.of(spend), DurabilityRequirement.NONE).accepted())
+                .containsExactly(spend);
+        assertThat(harness.balanceTemplate.opsForHash().get(DB_SNAPSHOT, wallet.toString())).isEqualTo("1000000");
+
+        stageDeposit("50");
+        persistDeposit("50", () -> {
+        });
+
+        assertThat(harness.balanceTemplate.opsForHash().get(DB_SNAPSHOT, wallet.toString())).isEqualTo("1500000");
+        assertThat(harness.balanceTemplate.opsForHash().get(PENDING_DELTA, wallet.toString())).isEqualTo("-300000");
+    }
+
+    @Test
+    void releasesTheGuardOnRollback() throws Exception {
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(_ -> {
+            settlementRepository.holdSettlementGuard(List.of(world, wallet));
+            throw new IllegalStateException("rollback");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertSpendHydratesTheWallet();
+    }
+
+    @Test
+    void refusesToTakeTheGuardOutsideATransaction() throws Exception {
+        assertThatThrownBy(() -> settlementRepository.holdSettlementGuard(List.of(world, wallet)))
+                .isInstanceOf(IllegalTransactionStateException.class);
+
+        assertSpendHydratesTheWallet();
+    }
+
+    /**
+     * Stages a spend that needs the wallet's snapshot, which only hydrates while no guard is held.
+     */
+    private void assertSpendHydratesTheWallet() throws Exception {
+        TransactionRequest spend = request(TransactionType.TRANSFER, wallet, UUID.randomUUID(), "30");
+        StagedBatch staged = CompletableFuture.supplyAsync(() ->
+                harness.redisService.stageBatch(List.of(spend), DurabilityRequirement.NONE)).get(10, TimeUnit.SECONDS);
+
+        assertThat(staged.accepted()).containsExactly(spend);
+        assertThat(harness.balanceTemplate.opsForHash().get(DB_SNAPSHOT, wallet.toString())).isEqualTo("1000000");
+    }
+
+    private void stageDeposit(String amount) {
+        TransactionRequest deposit = request(TransactionType.DEPOSIT, world, wallet, amount);
+        assertThat(harness.redisService.stageBatch(List.of(deposit), DurabilityRequirement.NONE).accepted())
+                .containsExactly(deposit);
+    }
+
+    /**
+     * Commits the balance update in an inner transaction and settles Redis before the outer one
+     * releases the guard, as {@code LedgerBatchServiceImp} does.
+     */
+    private void persistDeposit(String amount, Runnable beforeSettle) {
+        transactionTemplate.executeWithoutResult(_ -> {
+            settlementRepository.holdSettlementGuard(List.of(world, wallet));
+            writeTemplate.executeWithoutResult(_ ->
+                    transactionBatchRepository.updateAccountBalances(depositPostings(amount)));
+
+            beforeSettle.run();
+            harness.redisService.settle(new Settlement(UUID.randomUUID(), Map.of(
+                    world, new BigDecimal(amount).negate(),
+                    wallet, new BigDecimal(amount)), Map.of()));
+        });
+    }
+
+    private List<Posting> depositPostings(String amount) {
+        return List.of(
+                new Posting(null, account(world), new BigDecimal(amount), PostingDirection.DEBIT),
+                new Posting(null, account(wallet), new BigDecimal(amount), PostingDirection.CREDIT));
+    }
+
+    private static Account account(UUID id) {
+        Account account = new Account();
+        account.setId(id);
+        return account;
+    }
+
+    private void insertAccount(UUID id, String balance) {
+        jdbcTemplate.update("""
+                INSERT INTO accounts (id, user_id, name, type, currency, balance)
+                VALUES (?, ?, ?, 'ASSET', 'USD', ?)
+                """, id, UUID.randomUUID(), "test-" + id, new BigDecimal(balance));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    @Import({AccountSnapshotRepositoryImp.class, SettlementRepositoryImp.class, TransactionBatchRepositoryImp.class})
+    static class PostgresConfig {
+
+        @Bean(destroyMethod = "close")
+        HikariDataSource dataSource() {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl(POSTGRES.getJdbcUrl());
+            dataSource.setUsername(POSTGRES.getUsername());
+            dataSource.setPassword(POSTGRES.getPassword());
+            // Few connections, so a guard left on a pooled connection would block the next test
+            dataSource.setMaximumPoolSize(3);
+
+            Flyway flyway = Flyway.configure().dataSource(dataSource).cleanDisabled(false).load();
+            flyway.clean();
+            flyway.migrate();
+            return dataSource;
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+            return new TransactionTemplate(transactionManager);
+        }
+    }
+}
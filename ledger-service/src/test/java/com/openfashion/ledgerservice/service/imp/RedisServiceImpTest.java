@@ -0,0 +1,312 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.dto.consumer.StagedBatch;
+import com.openfashion.ledgerservice.dto.redis.BalanceSnapshot;
+import com.openfashion.ledgerservice.dto.redis.DurabilityRequirement;
+import com.openfashion.ledgerservice.dto.redis.StreamEnvelope;
+import com.openfashion.ledgerservice.model.TransactionType;
+import com.openfashion.ledgerservice.repository.AccountSnapshotRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static com.openfashion.ledgerservice.service.imp.RedisServiceHarness.request;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the staging, migration, reclaim and trim scripts against a real single-node Redis.
+ */
+@Testcontainers
+class RedisServiceImpTest {
+
+    private static final String TX_STREAM = "ledger:stream:tx";
+    private static final String STREAM_GROUP = "ledger-stream-group";
+    private static final String DB_SNAPSHOT = "ledger:db:snapshot:minor";
+    private static final String PENDING_DELTA = "ledger:pending:delta:minor";
+    private static final String BATCH_META_PREFIX = "ledger:batch:meta:";
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private RedisServiceHarness harness;
+
+    @AfterEach
+    void tearDown() {
+        if (harness != null) {
+            harness.close();
+        }
+    }
+
+    @Test
+    void carriesPendingDeltasAcrossChunksAndSealsOnTheLastChunk() {
+        start(2);
+        UUID debit = UUID.randomUUID();
+        harness.redisService.initializeSnapshotsIfMissing(List.of(new BalanceSnapshot(debit, new BigDecimal("100"))));
+
+        List<TransactionRequest> batch = transfers(debit, 5, "30");
+        StagedBatch staged = harness.redisService.stageBatch(batch, DurabilityRequirement.NONE);
+
+        // Three chunks of two; the third transfer already sees the deltas of the first chunk
+        assertThat(staged.accepted()).containsExactlyElementsOf(batch.subList(0, 3));
+        assertThat(staged.nsf()).containsExactlyElementsOf(batch.subList(3, 5));
+        assertThat(hash().get(PENDING_DELTA, debit.toString())).isEqualTo("-900000");
+        assertThat(streamSize()).isEqualTo(3);
+
+        String metaKey = BATCH_META_PREFIX + staged.batchId();
+        assertThat(hash().get(metaKey, "expected")).isEqualTo("3");
+        assertThat(hash().get(metaKey, "sealed")).isEqualTo("1");
+        assertThat(hash().get(metaKey, "status")).isEqualTo("PENDING");
+
+        harness.redisService.markBatchProgress(staged.batchId(), 2);
+        assertThat(hash().get(metaKey, "status")).isEqualTo("PENDING");
+
+        harness.redisService.markBatchProgress(staged.batchId(), 1);
+        assertThat(hash().get(metaKey, "status")).isEqualTo("DONE");
+        assertThat(harness.redisService.awaitBatchCompletion(staged.batchId(), Duration.ofSeconds(1))).isTrue();
+    }
+
+    @Test
+    void hydratesMissedSnapshotsAndTakesTheMissesBackOut() {
+        start(2);
+        UUID known = UUID.randomUUID();
+        UUID unknown = UUID.randomUUID();
+        harness.snapshots.put(known, "50");
+
+        TransactionRequest fits = request(TransactionType.TRANSFER, known, UUID.randomUUID(), "20");
+        TransactionRequest tooLarge = request(TransactionType.TRANSFER, known, UUID.randomUUID(), "40");
+        TransactionRequest noAccount = request(TransactionType.TRANSFER, unknown, UUID.randomUUID(), "1");
+
+        StagedBatch staged = harness.redisService.stageBatch(List.of(fits, tooLarge, noAccount), DurabilityRequirement.NONE);
+
+        assertThat(staged.accepted()).containsExactly(fits);
+        assertThat(staged.nsf()).containsExactlyInAnyOrder(tooLarge, noAccount);
+        assertThat(hash().get(DB_SNAPSHOT, known.toString())).isEqualTo("500000");
+        assertThat(hash().get(DB_SNAPSHOT, unknown.toString())).as("missing accounts are seeded as zero").isEqualTo("0");
+
+        String metaKey = BATCH_META_PREFIX + staged.batchId();
+        assertThat(hash().get(metaKey, "misses")).isEqualTo("0");
+        assertThat(hash().get(metaKey, "expected")).isEqualTo("1");
+        assertThat(hash().get(metaKey, "sealed")).isEqualTo("1");
+    }
+
+    @Test
+    void keepsTheOtherShardsStagedWhenHydrationFailsOnOne() {
+        AccountSnapshotRepository unreachable = new AccountSnapshotRepository() {
+            @Override
+            public long streamBalances(int fetchSize, int chunkSize, Consumer<List<BalanceSnapshot>> chunkHandler) {
+                return 0;
+            }
+
+            @Override
+            public List<BalanceSnapshot> findBalances(Collection<UUID> accountIds) {
+                return List.of();
+            }
+
+            @Override
+            public void seedGuardedBalances(Collection<UUID> accountIds, Consumer<List<BalanceSnapshot>> seed) {
+                throw new QueryTimeoutException("postgres unreachable");
+            }
+        };
+        harness = RedisServiceHarness.standalone(REDIS.getHost(), REDIS.getMappedPort(6379), 2, 100, unreachable);
+        UUID known = harness.accountOnShard(0);
+        UUID unhydrated = harness.accountOnShard(1);
+        harness.redisService.initializeSnapshotsIfMissing(List.of(new BalanceSnapshot(known, new BigDecimal("50"))));
+
+        TransactionRequest fits = request(TransactionType.TRANSFER, known, UUID.randomUUID(), "20");
+        TransactionRequest stuck = request(TransactionType.TRANSFER, unhydrated, UUID.randomUUID(), "1");
+
+        StagedBatch staged = harness.redisService.stageBatch(List.of(fits, stuck), DurabilityRequirement.NONE);
+
+        assertThat(staged.accepted()).containsExactly(fits);
+        assertThat(staged.failed()).containsExactly(stuck);
+        assertThat(staged.nsf()).isEmpty();
+        assertThat(hash().get(harness.keyspace.key(PENDING_DELTA, 0), known.toString())).isEqualTo("-200000");
+        assertThat(hash().get(harness.keyspace.key(PENDING_DELTA, 1), unhydrated.toString())).isNull();
+
+        // Both sub-batches were sealed; the one that gave up on its miss completes without it
+        List<String> subBatches = harness.keyspace.shardBatchIds(staged.batchId());
+        assertThat(subBatches).hasSize(2);
+        String abandonedMeta = harness.keyspace.key(BATCH_META_PREFIX + subBatches.get(1), 1);
+        assertThat(hash().get(abandonedMeta, "misses")).isEqualTo("0");
+        assertThat(hash().get(abandonedMeta, "status")).isEqualTo("DONE");
+
+        harness.redisService.markBatchProgress(subBatches.get(0), 1);
+        assertThat(harness.redisService.awaitBatchCompletion(staged.batchId(), Duration.ofSeconds(1))).isTrue();
+    }
+
+    @Test
+    void rejectsDuplicatesFromEarlierBatchesAndFromTheNextBucket() {
+        start(100);
+        UUID debit = UUID.randomUUID();
+        harness.redisService.initializeSnapshotsIfMissing(List.of(new BalanceSnapshot(debit, new BigDecimal("100"))));
+
+        TransactionRequest first = request(TransactionType.TRANSFER, debit, UUID.randomUUID(), "10");
+        assertThat(harness.redisService.stageBatch(List.of(first), DurabilityRequirement.NONE).accepted()).containsExactly(first);
+
+        // Written by a node whose clock is an hour ahead
+        TransactionRequest skewed = request(TransactionType.TRANSFER, debit, UUID.randomUUID(), "10");
+        long nextBucket = System.currentTimeMillis() / Duration.ofHours(1).toMillis() + 1;
+        harness.balanceTemplate.opsForSet().add("ledger:idempotency:" + nextBucket,
+                skewed.getReferenceId() + "-" + TransactionType.TRANSFER.name());
+
+        StagedBatch staged = harness.redisService.stageBatch(List.of(first, skewed), DurabilityRequirement.NONE);
+
+        assertThat(staged.accepted()).isEmpty();
+        assertThat(staged.nsf()).isEmpty();
+        assertThat(streamSize()).isEqualTo(1);
+        assertThat(hash().get(BATCH_META_PREFIX + staged.batchId(), "status"))
+                .as("a sealed batch with nothing to persist completes right away")
+                .isEqualTo("DONE");
+    }
+
+    @Test
+    void migratesLegacyDecimalHashesToMinorUnits() {
+        UUID rounded = UUID.randomUUID();
+        UUID drifted = UUID.randomUUID();
+        UUID alreadyMigrated = UUID.randomUUID();
+
+        start(100, template -> {
+            HashOperations<String, Object, Object> hash = template.opsForHash();
+            hash.put("ledger:db:snapshot", rounded.toString(), "12.34565");
+            hash.put("ledger:db:snapshot", alreadyMigrated.toString(), "7");
+            hash.put("ledger:db:snapshot", "broken", "not-a-number");
+            hash.put(DB_SNAPSHOT, alreadyMigrated.toString(), "90000");
+
+            hash.put("ledger:pending:delta", drifted.toString(), "0.30000000000000004");
+            hash.put("ledger:pending:delta", rounded.toString(), "-1.5");
+            hash.put(PENDING_DELTA, rounded.toString(), "10000");
+        });
+
+        // HALF_EVEN at scale 4, and HINCRBYFLOAT drift is rounded away
+        assertThat(hash().get(DB_SNAPSHOT, rounded.toString())).isEqualTo("123456");
+        assertThat(hash().get(PENDING_DELTA, drifted.toString())).isEqualTo("3000");
+
+        // Snapshots keep a value that is already there, deltas add up
+        assertThat(hash().get(DB_SNAPSHOT, alreadyMigrated.toString())).isEqualTo("90000");
+        assertThat(hash().get(PENDING_DELTA, rounded.toString())).isEqualTo("-5000");
+
+        assertThat(hash().entries("ledger:db:snapshot")).containsOnlyKeys("broken");
+        assertThat(harness.balanceTemplate.hasKey("ledger:pending:delta")).isFalse();
+    }
+
+    @Test
+    void resumesReclaimFromTheStoredCursor() {
+        start(100);
+        List<StreamEnvelope<TransactionRequest>> read = stageAndRead(5);
+        List<String> readIds = read.stream().map(StreamEnvelope::streamId).toList();
+        String cursorKey = TX_STREAM + ":claim-cursor";
+
+        List<StreamEnvelope<TransactionRequest>> claimed = new ArrayList<>(
+                harness.redisService.claimStaleFromStream(TX_STREAM, 2, Duration.ZERO));
+        assertThat(harness.balanceTemplate.opsForValue().get(cursorKey)).isEqualTo(readIds.get(2));
+
+        claimed.addAll(harness.redisService.claimStaleFromStream(TX_STREAM, 2, Duration.ZERO));
+        assertThat(harness.balanceTemplate.opsForValue().get(cursorKey)).isEqualTo(readIds.get(4));
+
+        claimed.addAll(harness.redisService.claimStaleFromStream(TX_STREAM, 2, Duration.ZERO));
+        assertThat(harness.balanceTemplate.opsForValue().get(cursorKey)).as("wrapped around").isEqualTo("0-0");
+
+        assertThat(claimed).extracting(StreamEnvelope::streamId).containsExactlyElementsOf(readIds);
+        assertThat(claimed).extracting(StreamEnvelope::deliveryCount).containsOnly(2L);
+        assertThat(claimed).extracting(StreamEnvelope::data)
+                .containsExactlyElementsOf(read.stream().map(StreamEnvelope::data).toList());
+    }
+
+    @Test
+    void dropsPendingEntriesThatWereDeletedFromTheStream() {
+        start(100);
+        List<StreamEnvelope<TransactionRequest>> read = stageAndRead(3);
+        harness.balanceTemplate.opsForStream().delete(TX_STREAM, RecordId.of(read.get(1).streamId()));
+
+        List<StreamEnvelope<TransactionRequest>> claimed = harness.redisService.claimStaleFromStream(TX_STREAM, 10, Duration.ZERO);
+
+        assertThat(claimed).extracting(StreamEnvelope::streamId)
+                .containsExactly(read.get(0).streamId(), read.get(2).streamId());
+        assertThat(harness.balanceTemplate.opsForStream().pending(TX_STREAM, STREAM_GROUP).getTotalPendingMessages())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void trimsUpToTheOldestPendingEntryAndKeepsUndeliveredOnes() {
+        start(100);
+        List<StreamEnvelope<TransactionRequest>> read = stageAndRead(5);
+        stage(2);
+
+        harness.redisService.acknowledgePersisted(read.subList(0, 2));
+        assertThat(harness.redisService.trimAcknowledged().entries()).isEqualTo(2);
+        assertThat(streamSize()).isEqualTo(5);
+
+        harness.redisService.acknowledgePersisted(read.subList(2, 5));
+        assertThat(harness.redisService.trimAcknowledged().entries()).isEqualTo(3);
+        assertThat(streamSize()).as("entries after the last delivered one").isEqualTo(2);
+
+        assertThat(harness.redisService.trimAcknowledged().entries()).isZero();
+    }
+
+    @Test
+    void keepsEntriesALaggingGroupHasNotRead() {
+        start(100);
+        harness.balanceTemplate.opsForStream().createGroup(TX_STREAM, ReadOffset.from("0-0"), "audit");
+
+        List<StreamEnvelope<TransactionRequest>> read = stageAndRead(3);
+        harness.redisService.acknowledgePersisted(read);
+
+        assertThat(harness.redisService.trimAcknowledged().entries()).isZero();
+        assertThat(streamSize()).isEqualTo(3);
+    }
+
+    private void start(int chunkSize) {
+        start(chunkSize, _ -> {
+        });
+    }
+
+    private void start(int chunkSize, Consumer<RedisTemplate<String, String>> beforeInit) {
+        harness = RedisServiceHarness.standalone(REDIS.getHost(), REDIS.getMappedPort(6379), chunkSize, beforeInit);
+    }
+
+    private List<StreamEnvelope<TransactionRequest>> stageAndRead(int count) {
+        stage(count);
+        List<StreamEnvelope<TransactionRequest>> read = harness.redisService.readNewFromStream(TX_STREAM, count, null);
+        assertThat(read).hasSize(count);
+        return read;
+    }
+
+    private void stage(int count) {
+        UUID debit = UUID.randomUUID();
+        harness.redisService.initializeSnapshotsIfMissing(List.of(new BalanceSnapshot(debit, new BigDecimal("1000"))));
+        assertThat(harness.redisService.stageBatch(transfers(debit, count, "1"), DurabilityRequirement.NONE).accepted())
+                .hasSize(count);
+    }
+
+    private static List<TransactionRequest> transfers(UUID debit, int count, String amount) {
+        return IntStream.range(0, count)
+                .mapToObj(_ -> request(TransactionType.TRANSFER, debit, UUID.randomUUID(), amount))
+                .toList();
+    }
+
+    private HashOperations<String, Object, Object> hash() {
+        return harness.balanceTemplate.opsForHash();
+    }
+
+    private long streamSize() {
+        Long size = harness.balanceTemplate.opsForStream().size(TX_STREAM);
+        return size == null ? 0 : size;
+    }
+}
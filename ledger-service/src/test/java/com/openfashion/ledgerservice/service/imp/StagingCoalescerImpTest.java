@@ -0,0 +1,314 @@
+package com.openfashion.ledgerservice.service.imp;
+
+import com.openfashion.ledgerservice.core.config.IngestionAckMode;
+import com.openfashion.ledgerservice.core.exceptions.DbTimeoutException;
+import com.openfashion.ledgerservice.core.exceptions.StagingDurabilityException;
+import com.openfashion.ledgerservice.core.exceptions.StagingFailedException;
+import com.openfashion.ledgerservice.dto.TransactionRequest;
+import com.openfashion.ledgerservice.dto.consumer.StagedBatch;
+import com.openfashion.ledgerservice.dto.consumer.StagingTicket;
+import com.openfashion.ledgerservice.model.TransactionStatus;
+import com.openfashion.ledgerservice.model.TransactionType;
+import com.openfashion.ledgerservice.service.IngestionController;
+import com.openfashion.ledgerservice.service.LedgerBatchService;
+import com.openfashion.ledgerservice.service.RedisService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static com.openfashion.ledgerservice.service.imp.RedisServiceHarness.request;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Exercises windowing, ticket fan-out and rejection persistence of the coalescer, with staging
+ * and the done-wait stubbed out.
+ */
+class StagingCoalescerImpTest {
+
+    private static final long WAIT_SECONDS = 5;
+
+    private final RedisService redisService = mock(RedisService.class);
+    private final LedgerBatchService ledgerBatchService = mock(LedgerBatchService.class);
+    private final IngestionController ingestionController = mock(IngestionController.class);
+
+    private final BlockingQueue<List<TransactionRequest>> stagedBatches = new LinkedBlockingQueue<>();
+    private final BlockingQueue<CompletableFuture<Boolean>> doneWaits = new LinkedBlockingQueue<>();
+    private final Set<TransactionRequest> nsf = ConcurrentHashMap.newKeySet();
+    private final Set<TransactionRequest> overflow = ConcurrentHashMap.newKeySet();
+    private final Set<TransactionRequest> failed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger batchSequence = new AtomicInteger();
+    private volatile boolean durable = true;
+
+    private StagingCoalescerImp coalescer;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            List<TransactionRequest> merged = List.copyOf(invocation.getArgument(0));
+            stagedBatches.add(merged);
+            return new StagedBatch("batch-" + batchSequence.incrementAndGet(),
+                    merged.stream()
+                            .filter(r -> !nsf.contains(r) && !overflow.contains(r) && !failed.contains(r))
+                            .toList(),
+                    merged.stream().filter(nsf::contains).toList(),
+                    merged.stream().filter(overflow::contains).toList(),
+                    merged.stream().filter(failed::contains).toList(),
+                    durable);
+        }).when(redisService).stageBatch(anyList(), any());
+
+        when(redisService.awaitBatchCompletionAsync(anyString(), any())).thenAnswer(_ -> {
+            CompletableFuture<Boolean> done = new CompletableFuture<>();
+            doneWaits.add(done);
+            return done;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (coalescer != null) {
+            coalescer.stop();
+        }
+    }
+
+    @Test
+    void mergesSubmissionsThatArriveWithinTheLinger() throws Exception {
+        start(10, Duration.ofMillis(300), IngestionAckMode.PERSISTED);
+        List<TransactionRequest> first = requests(2);
+        List<TransactionRequest> second = requests(2);
+
+        coalescer.submit(first);
+        coalescer.submit(second);
+
+        assertThat(nextStagedBatch()).containsExactlyElementsOf(concat(first, second));
+    }
+
+    @Test
+    void flushesAsSoonAsTheBatchSizeIsBuffered() throws Exception {
+        start(4, Duration.ofSeconds(30), IngestionAckMode.PERSISTED);
+
+        coalescer.submit(requests(2));
+        coalescer.submit(requests(2));
+
+        assertThat(nextStagedBatch()).hasSize(4);
+    }
+
+    @Test
+    void flushesAPartialBatchOnceTheLingerExpires() throws Exception {
+        start(100, Duration.ofMillis(50), IngestionAckMode.PERSISTED);
+        List<TransactionRequest> only = requests(1);
+
+        StagingTicket ticket = coalescer.submit(only);
+
+        assertThat(nextStagedBatch()).containsExactlyElementsOf(only);
+        ticket.staged().get(WAIT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void carriesASubmissionThatWouldOverflowTheBatchIntoTheNextOne() throws Exception {
+        start(4, Duration.ofMillis(300), IngestionAckMode.PERSISTED);
+        List<TransactionRequest> first = requests(3);
+        List<TransactionRequest> second = requests(3);
+
+        coalescer.submit(first);
+        coalescer.submit(second);
+
+        // Never split across batches, never dropped
+        assertThat(nextStagedBatch()).containsExactlyElementsOf(first);
+        assertThat(nextStagedBatch()).containsExactlyElementsOf(second);
+    }
+
+    @Test
+    void completesEverySubmissionsTicketOnceTheMergedBatchIsPersisted() throws Exception {
+        start(10, Duration.ofMillis(100), IngestionAckMode.PERSISTED);
+
+        StagingTicket first = coalescer.submit(requests(2));
+        StagingTicket second = coalescer.submit(requests(3));
+        assertThat(nextStagedBatch()).hasSize(5);
+
+        CompletableFuture<Boolean> done = nextDoneWait();
+        first.staged().get(WAIT_SECONDS, TimeUnit.SECONDS);
+        second.staged().get(WAIT_SECONDS, TimeUnit.SECONDS);
+        assertThat(first.persisted()).isNotDone();
+        assertThat(second.persisted()).isNotDone();
+
+        done.complete(true);
+
+        first.persisted().get(WAIT_SECONDS, TimeUnit.SECONDS);
+        second.persisted().get(WAIT_SECONDS, TimeUnit.SECONDS);
+        verify(ingestionController).releaseSlot();
+    }
+
+    @Test
+    void failsEveryTicketWhenPersistenceIsNotConfirmed() throws Exception {
+        start(10, Duration.ofMillis(100), IngestionAckMode.PERSISTED);
+
+        StagingTicket first = coalescer.submit(requests(1));
+        StagingTicket second = coalescer.submit(requests(1));
+        nextDoneWait().complete(false);
+
+        assertPersistedFailsWith(first, DbTimeoutException.class);
+        assertPersistedFailsWith(second, DbTimeoutException.class);
+        verify(ingestionController, timeout(1000)).releaseSlot();
+    }
+
+    @Test
+    void persistsNsfAndOverflowRejectionsBeforeAcknowledging() throws Exception {
+        start(10, Duration.ofMillis(50), IngestionAckMode.PERSISTED);
+        List<TransactionRequest> batch = requests(3);
+        nsf.add(batch.get(0));
+        overflow.add(batch.get(1));
+
+        CountDownLatch rejectionsWritten = new CountDownLatch(1);
+        doAnswer(_ -> {
+            rejectionsWritten.await(WAIT_SECONDS, TimeUnit.SECONDS);
+            return null;
+        }).when(ledgerBatchService).persistRejected(List.of(batch.get(0)), TransactionStatus.REJECTED_NSF);
+
+        StagingTicket ticket = coalescer.submit(batch);
+        nextDoneWait().complete(true);
+
+        // The accepted record is persisted, the NSF rejection is still being written
+        Thread.sleep(200);
+        assertThat(ticket.persisted()).isNotDone();
+
+        rejectionsWritten.countDown();
+        ticket.persisted().get(WAIT_SECONDS, TimeUnit.SECONDS);
+
+        verify(ledgerBatchService).persistRejected(List.of(batch.get(0)), TransactionStatus.REJECTED_NSF);
+        verify(ledgerBatchService).persistRejected(List.of(batch.get(1)), TransactionStatus.REJECTED_VALIDATION);
+    }
+
+    @Test
+    void skipsTheDoneWaitWhenEveryRecordWasRejected() throws Exception {
+        start(10, Duration.ofMillis(50), IngestionAckMode.PERSISTED);
+        List<TransactionRequest> batch = requests(2);
+        nsf.addAll(batch);
+
+        coalescer.submit(batch).persisted().get(WAIT_SECONDS, TimeUnit.SECONDS);
+
+        verify(ledgerBatchService).persistRejected(batch, TransactionStatus.REJECTED_NSF);
+        verify(redisService, never()).awaitBatchCompletionAsync(anyString(), any());
+    }
+
+    @Test
+    void acknowledgesAStagedAckOnceRedisHoldsTheBatchDurably() throws Exception {
+        start(10, Duration.ofMillis(50), IngestionAckMode.STAGED);
+
+        coalescer.submit(requests(2)).persisted().get(WAIT_SECONDS, TimeUnit.SECONDS);
+
+        verify(redisService, never()).awaitBatchCompletionAsync(anyString(), any());
+    }
+
+    @Test
+    void failsAStagedAckWhenTheDurabilityWaitFellShort() throws Exception {
+        durable = false;
+        start(10, Duration.ofMillis(50), IngestionAckMode.STAGED);
+
+        StagingTicket ticket = coalescer.submit(requests(2));
+
+        ticket.staged().get(WAIT_SECONDS, TimeUnit.SECONDS);
+        assertPersistedFailsWith(ticket, StagingDurabilityException.class);
+    }
+
+    @Test
+    void failsOnlyTheSubmissionsWithRequestsOnAFailedShard() throws Exception {
+        start(10, Duration.ofMillis(100), IngestionAckMode.PERSISTED);
+        List<TransactionRequest> unstaged = requests(2);
+        failed.add(unstaged.get(1));
+
+        StagingTicket failing = coalescer.submit(unstaged);
+        StagingTicket staging = coalescer.submit(requests(1));
+        assertThat(nextStagedBatch()).hasSize(3);
+
+        assertThatThrownBy(() -> failing.staged().get(WAIT_SECONDS, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(StagingFailedException.class);
+        assertPersistedFailsWith(failing, StagingFailedException.class);
+
+        staging.staged().get(WAIT_SECONDS, TimeUnit.SECONDS);
+        nextDoneWait().complete(true);
+        staging.persisted().get(WAIT_SECONDS, TimeUnit.SECONDS);
+        verify(ingestionController, timeout(1000)).releaseSlot();
+    }
+
+    @Test
+    void failsEveryTicketAndFreesTheSlotWhenStagingThrows() {
+        doAnswer(_ -> {
+            throw new IllegalStateException("redis down");
+        }).when(redisService).stageBatch(anyList(), any());
+        start(10, Duration.ofMillis(100), IngestionAckMode.PERSISTED);
+
+        StagingTicket first = coalescer.submit(requests(1));
+        StagingTicket second = coalescer.submit(requests(1));
+
+        for (StagingTicket ticket : List.of(first, second)) {
+            assertThatThrownBy(() -> ticket.staged().get(WAIT_SECONDS, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IllegalStateException.class);
+            assertPersistedFailsWith(ticket, IllegalStateException.class);
+        }
+        verify(ingestionController, timeout(1000)).releaseSlot();
+        verify(ledgerBatchService, never()).persistRejected(anyList(), eq(TransactionStatus.REJECTED_NSF));
+    }
+
+    private void start(int batchSize, Duration linger, IngestionAckMode ackMode) {
+        when(ingestionController.batchSize()).thenReturn(batchSize);
+        coalescer = new StagingCoalescerImp(redisService, ledgerBatchService, ingestionController,
+                linger, ackMode, 0, false, Duration.ofSeconds(1));
+        coalescer.start();
+    }
+
+    private List<TransactionRequest> nextStagedBatch() throws InterruptedException {
+        List<TransactionRequest> batch = stagedBatches.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        assertThat(batch).as("staged batch").isNotNull();
+        return batch;
+    }
+
+    private CompletableFuture<Boolean> nextDoneWait() throws InterruptedException {
+        CompletableFuture<Boolean> done = doneWaits.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        assertThat(done).as("done-wait").isNotNull();
+        return done;
+    }
+
+    private static void assertPersistedFailsWith(StagingTicket ticket, Class<? extends Throwable> cause) {
+        assertThatThrownBy(() -> ticket.persisted().get(WAIT_SECONDS, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(cause);
+    }
+
+    private static List<TransactionRequest> requests(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(_ -> request(TransactionType.TRANSFER, UUID.randomUUID(), UUID.randomUUID(), "10"))
+                .toList();
+    }
+
+    private static List<TransactionRequest> concat(List<TransactionRequest> first, List<TransactionRequest> second) {
+        List<TransactionRequest> all = new ArrayList<>(first);
+        all.addAll(second);
+        return all;
+    }
+}